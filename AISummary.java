@@ -1,43 +1,163 @@
 import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
 
 import org.commonmark.node.*;
 import org.commonmark.parser.Parser;
 import org.commonmark.renderer.html.HtmlRenderer;
 
-import java.util.Map;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Consumer;
 
-public class AISummary {
+public class AISummary implements Summarizer {
     final String API_KEY = System.getenv("GROQ_API_KEY");
+    static final String MODEL = "llama-3.3-70b-versatile";
+    static final String PROMPT = "The following is a response from an API call. Summarise all the key info here and present it in a neat, concise manner. Request: \n\n ";
+    // OpenAI-compatible chat completions endpoint; point it at FakeLlmServer to work offline
+    static final String ENDPOINT = System.getProperty("creo.ai.endpoint", "https://api.groq.com/openai/v1/chat/completions");
+    // Minimum time between two partial renders while a summary streams in
+    static final long RENDER_INTERVAL_MS = Long.getLong("creo.ai.renderIntervalMs", 100);
 
-    PostmanBackendService backendService;
+    private static final HttpClient streamingClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
 
-    AISummary (PostmanBackendService backendService) {
-        this.backendService = backendService;
+    private final SummaryCache cache;
+    private final Gson gson = new Gson();
+
+    // Streams from the LLM on its own client: summary calls are not recorded in the request history
+    AISummary () {
+        this(new SummaryCache());
+    }
+
+    AISummary (SummaryCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public String getName() {
+        return "remote";
+    }
+
+    // Without an API key the default endpoint cannot answer; a custom endpoint (e.g. FakeLlmServer) may not need one
+    public boolean isConfigured() {
+        return API_KEY != null || System.getProperty("creo.ai.endpoint") != null;
     }
 
-    public String summarizeResponse(String responseString) {
-        Map<String, String> headers = Map.of("Content-Type", "application/json", "Authorization", "Bearer " + API_KEY);
-        String prompt = "The following is a response from an API call. Summarise all the key info here and present it in a neat, concise manner. Request: \n\n " + responseString;
-        Gson gson = new Gson();
-        String formattedPrompt = gson.toJson(prompt);
+    @Override
+    public String summarize(String body, String headers, Consumer<String> onPartial) throws IOException, InterruptedException {
+        return summarizeResponse(body, headers, onPartial);
+    }
+
+    public String summarizeResponse(String body, String headers) throws IOException, InterruptedException {
+        return summarizeResponse(body, headers, null);
+    }
+
+    /**
+     * Summarize a response, streaming the answer. onPartial (optional) receives
+     * the Markdown received so far, at most once per RENDER_INTERVAL_MS, so the
+     * caller can render it while the rest arrives. Returns the final HTML.
+     * Summaries are cached by body, prompt and model; headers only add context to the prompt.
+     * Large bodies go through the token-budgeted SummaryPipeline.
+     */
+    public String summarizeResponse(String body, String headers, Consumer<String> onPartial)
+            throws IOException, InterruptedException {
+        String key = SummaryCache.key(body, PROMPT, MODEL);
+        String cached = cache.get(key);
+        if (cached != null) {
+            return convertMarkdownToHtml(cached) + cacheFooter("Cached summary");
+        }
+
+        SummaryPipeline.Result result = new SummaryPipeline(this).summarize(body, headers, onPartial);
+        cache.put(key, MODEL, result.getMarkdown(), result.getTotalTokens());
+        return convertMarkdownToHtml(result.getMarkdown()) + result.toHtmlReport() + cacheFooter("New summary");
+    }
 
+    // One streamed chat completion for the prompt
+    LlmCompletion complete(String prompt, Consumer<String> onPartial) throws IOException, InterruptedException {
+        long start = System.nanoTime();
         String requestBody = """
                 {
-                  "model": "llama-3.3-70b-versatile",
+                  "model": "%s",
+                  "stream": true,
                   "messages": [{
                       "role": "user",
                       "content":  %s
                   }]
                 }
-                """.formatted(formattedPrompt);
+                """.formatted(MODEL, gson.toJson(prompt));
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(ENDPOINT))
+                .timeout(Duration.ofSeconds(120))
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .header("Authorization", "Bearer " + API_KEY)
+                .POST(HttpRequest.BodyPublishers.ofString(requestBody, StandardCharsets.UTF_8))
+                .build();
+        java.net.http.HttpResponse<InputStream> response =
+                streamingClient.send(request, java.net.http.HttpResponse.BodyHandlers.ofInputStream());
+
+        StringBuilder markdown = new StringBuilder();
+        GroqAPIResponse.Usage usage = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            if (response.statusCode() != 200) {
+                StringBuilder error = new StringBuilder();
+                for (String line; (line = reader.readLine()) != null; ) error.append(line).append('\n');
+                throw new IOException("Summary request failed with HTTP " + response.statusCode() + ": " + error);
+            }
+            long lastRender = 0;
+            StringBuilder data = new StringBuilder();
+            for (String line; (line = reader.readLine()) != null; ) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedException("Summary cancelled");
+                // Server-sent events: "data:" lines accumulate until a blank line ends the event
+                if (line.startsWith("data:")) {
+                    if (data.length() > 0) data.append('\n');
+                    data.append(line.substring(line.startsWith("data: ") ? 6 : 5));
+                    continue;
+                }
+                if (!line.isEmpty() || data.length() == 0) continue;
+                String event = data.toString();
+                data.setLength(0);
+                if (event.equals("[DONE]")) break;
 
-        HttpResponse response = this.backendService.handleRequest("https://api.groq.com/openai/v1/chat/completions", "POST", headers, requestBody);
-        String body = response.getBody();
+                GroqAPIResponse chunk;
+                try {
+                    chunk = gson.fromJson(event, GroqAPIResponse.class);
+                } catch (JsonSyntaxException e) {
+                    continue;  // ignore keep-alives and anything else we do not understand
+                }
+                if (chunk == null) continue;
+                String delta = chunk.deltaContent();
+                if (delta != null) markdown.append(delta);
+                if (chunk.streamUsage() != null) usage = chunk.streamUsage();
+
+                long now = System.currentTimeMillis();
+                if (onPartial != null && delta != null && now - lastRender >= RENDER_INTERVAL_MS) {
+                    lastRender = now;
+                    onPartial.accept(markdown.toString());
+                }
+            }
+        }
 
-        GroqAPIResponse aiResponse = gson.fromJson(body, GroqAPIResponse.class);
+        long promptTokens = usage != null ? (long) usage.prompt_tokens : SummaryPipeline.estimateTokens(prompt);
+        long completionTokens = usage != null ? (long) usage.completion_tokens : SummaryPipeline.estimateTokens(markdown.toString());
+        return new LlmCompletion(markdown.toString(), promptTokens, completionTokens, System.nanoTime() - start);
+    }
 
-        return convertMarkdownToHtml(aiResponse.choices.getFirst().message.content);
+    public SummaryCache getCache() {
+        return cache;
+    }
 
+    private String cacheFooter(String label) {
+        return "<p><small><i>" + label + " &middot; cache hits " + cache.getHits() + ", misses " + cache.getMisses() + "</i></small></p>";
     }
 
     /**
@@ -53,3 +173,21 @@ public class AISummary {
         return renderer.render(document);
     }
 }
+
+// Text and cost of one completion
+class LlmCompletion {
+    private final String markdown;
+    private final long promptTokens, completionTokens, nanos;
+
+    LlmCompletion(String markdown, long promptTokens, long completionTokens, long nanos) {
+        this.markdown = markdown;
+        this.promptTokens = promptTokens;
+        this.completionTokens = completionTokens;
+        this.nanos = nanos;
+    }
+
+    public String getMarkdown() { return markdown; }
+    public long getPromptTokens() { return promptTokens; }
+    public long getCompletionTokens() { return completionTokens; }
+    public long getNanos() { return nanos; }
+}
@@ -0,0 +1,116 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * How many requests can be in flight on a fixed number of threads: the old
+ * executeRequestAsync (blocking executeRequest on a pool thread) against the
+ * sendAsync pipeline, both given the same pool.
+ *
+ * In blocking mode the client keeps its default executor and the pool only
+ * waits; in sendAsync mode the pool is the client's executor and does all the
+ * work. A local server answers every request after a fixed delay, so each
+ * request is "on the network" for that long and nothing else limits
+ * concurrency. The server counts how many requests it holds at once.
+ *
+ * Usage: java -cp "out/production/Creo:lib/*" AsyncBenchmark [requests] [threads] [latencyMs]
+ * Defaults: 500 requests, 4 threads, 200 ms.
+ */
+public class AsyncBenchmark {
+    private static final byte[] BODY = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicInteger peakInFlight = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int latencyMs = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        // Per-host limits would cap both modes at the same number in flight; this measures threads, not the server
+        if (System.getProperty("creo.http.governor") == null) System.setProperty("creo.http.governor", "false");
+
+        HttpServer server = startServer(latencyMs);
+        String url = "http://localhost:" + server.getAddress().getPort() + "/slow";
+
+        System.out.println("===========================================");
+        System.out.println("  ASYNC REQUEST BENCHMARK");
+        System.out.println("===========================================\n");
+        System.out.printf("%d requests, %d client threads, %d ms server latency%n%n", requests, threads, latencyMs);
+        System.out.printf("%-16s %10s %12s %10s %8s%n", "Mode", "Total (s)", "Requests/s", "Peak in", "Errors");
+        System.out.printf("%-16s %10s %12s %10s %8s%n", "", "", "", "flight", "");
+
+        try {
+            run("blocking pool", requests, threads, url, true);
+            run("sendAsync", requests, threads, url, false);
+        } finally {
+            server.stop(0);
+        }
+        System.out.printf("%nA blocking pool can hold at most %d requests in flight (one per thread);%n", threads);
+        System.out.println("with sendAsync the threads only run when there is work to do.");
+    }
+
+    private static void run(String mode, int requests, int threads, String url, boolean blocking) {
+        ExecutorService pool = HttpClientService.fixedExecutor(threads);
+        // The blocking pool must not also be the client's executor: threads waiting in send() would
+        // starve the response handling they wait for. The old code had the same split (common pool vs HttpClient's own).
+        HttpClientService service = blocking ? new HttpClientService(HttpClientService.executorFromProperty())
+                : new HttpClientService(pool);
+        // Warm-up: open a connection and load the classes on both paths
+        send(service, pool, url, blocking).join();
+
+        inFlight.set(0);
+        peakInFlight.set(0);
+        AtomicInteger errors = new AtomicInteger();
+        long start = System.nanoTime();
+        List<CompletableFuture<HttpResponse>> futures = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            futures.add(send(service, pool, url, blocking).whenComplete((response, e) -> {
+                if (e != null || response.isError() || response.getStatusCode() != 200) errors.incrementAndGet();
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdownNow();
+
+        System.out.printf("%-16s %10.2f %12.1f %10d %8d%n", mode, seconds, requests / seconds, peakInFlight.get(), errors.get());
+    }
+
+    private static CompletableFuture<HttpResponse> send(HttpClientService service, ExecutorService pool, String url, boolean blocking) {
+        HttpRequestData request = new HttpRequestData(url, "GET");
+        request.setBypassCache(true);
+        if (blocking) {
+            // What executeRequestAsync used to do: a pool thread waits for the whole exchange
+            return CompletableFuture.supplyAsync(() -> service.executeRequest(request), pool);
+        }
+        return service.executeRequestAsync(request);
+    }
+
+    private static HttpServer startServer(int latencyMs) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/slow", exchange -> {
+            int now = inFlight.incrementAndGet();
+            peakInFlight.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(latencyMs);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, BODY.length);
+                exchange.getResponseBody().write(BODY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+}
@@ -0,0 +1,320 @@
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pretty-printing of response bodies for display, done on demand.
+ *
+ * The raw body is what the client keeps and stores; formatting only happens
+ * when someone wants to look at the pretty version, always off the EDT. JSON
+ * and XML (StAX) are formatted as streams; HTML is re-indented tag by tag.
+ * Results are cached by body hash, small ones as strings and large ones as
+ * temp files, so switching between responses or views does not format again.
+ */
+public class BodyFormatter {
+    private static final int CACHED_RESULTS = 32;
+    private static final Set<String> VOID_ELEMENTS = Set.of("area", "base", "br", "col", "embed", "hr", "img",
+            "input", "link", "meta", "param", "source", "track", "wbr");
+    private static final Set<String> RAW_TEXT_ELEMENTS = Set.of("script", "style", "pre", "textarea");
+    private static final Pattern HTML_TOKEN = Pattern.compile("(?s)<!--.*?-->|<![^>]*>|<\\?[^>]*>|</?[a-zA-Z][^>]*>|[^<]+|<");
+
+    enum Kind { JSON, XML, HTML }
+
+    private static final Map<String, FormattedBody> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FormattedBody> eldest) {
+            if (size() > CACHED_RESULTS) {
+                eldest.getValue().delete();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // What kind of formatting a body gets, from the content type or failing that its first characters; null = none
+    static Kind kindOf(String contentType, String head) {
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        if (type.contains("json")) return Kind.JSON;
+        if (type.contains("html")) return Kind.HTML;
+        if (type.contains("xml")) return Kind.XML;
+        if (!type.isEmpty() && !type.startsWith("text/plain") && !type.contains("octet-stream")) return null;
+        String start = head == null ? "" : head.stripLeading();
+        if (start.startsWith("{") || start.startsWith("[")) return Kind.JSON;
+        if (start.regionMatches(true, 0, "<!doctype html", 0, 14) || start.regionMatches(true, 0, "<html", 0, 5)) return Kind.HTML;
+        if (start.startsWith("<")) return Kind.XML;
+        return null;
+    }
+
+    // Already formatted version of the body, or null
+    static FormattedBody cached(ResponseBody body, Kind kind) {
+        synchronized (cache) {
+            return cache.get(body.sha256() + ":" + kind);
+        }
+    }
+
+    /**
+     * Format the body (blocking; call off the EDT). Bodies up to
+     * JsonPrettyPrinter.INLINE_FORMAT_LIMIT become a string, larger ones a temp file.
+     */
+    static FormattedBody format(ResponseBody body, Kind kind) throws IOException {
+        FormattedBody formatted = cached(body, kind);
+        if (formatted != null) return formatted;
+
+        boolean inline = body.size() <= JsonPrettyPrinter.INLINE_FORMAT_LIMIT;
+        Path file = inline ? null : Files.createTempFile("creo-pretty-", ".txt");
+        StringWriter text = inline ? new StringWriter((int) body.size() + 1024) : null;
+        try (Reader in = new InputStreamReader(body.openStream(), body.charset());
+             Writer out = inline ? text : Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            format(in, out, kind);
+        } catch (IOException | RuntimeException e) {
+            if (file != null) Files.deleteIfExists(file);
+            throw e;
+        }
+        if (file != null) file.toFile().deleteOnExit();
+        formatted = inline ? new FormattedBody(text.toString(), null) : new FormattedBody(null, file);
+        synchronized (cache) {
+            cache.put(body.sha256() + ":" + kind, formatted);
+        }
+        return formatted;
+    }
+
+    static void format(Reader in, Writer out, Kind kind) throws IOException {
+        switch (kind) {
+            case JSON -> JsonPrettyPrinter.format(in, out);
+            case XML -> formatXml(in, out);
+            case HTML -> formatHtml(in, out);
+        }
+    }
+
+    // ---- XML ----
+
+    // Re-indents element structure; text content and mixed content are kept as they are
+    static void formatXml(Reader in, Writer out) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);  // CDATA arrives as (escaped) text
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            int depth = 0;
+            boolean openTagPending = false;  // '<name ...' written, '>' or '/>' not yet
+            boolean lastWasText = false;
+            boolean first = true;
+            BitSet mixed = new BitSet();      // depths whose element contains text, where children stay inline
+            if (reader.getVersion() != null) {
+                String encoding = reader.getCharacterEncodingScheme();
+                out.write("<?xml version=\"" + reader.getVersion() + "\""
+                        + (encoding != null ? " encoding=\"" + encoding + "\"" : "") + "?>");
+                first = false;
+            }
+            while (reader.hasNext()) {
+                int event = reader.next();
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        if (openTagPending) out.write('>');
+                        if (!first && !mixed.get(depth)) newline(out, depth);
+                        out.write('<');
+                        out.write(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+                        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                            String prefix = reader.getNamespacePrefix(i);
+                            out.write(prefix == null || prefix.isEmpty() ? " xmlns=\"" : " xmlns:" + prefix + "=\"");
+                            out.write(escapeXml(reader.getNamespaceURI(i), true));
+                            out.write('"');
+                        }
+                        for (int i = 0; i < reader.getAttributeCount(); i++) {
+                            out.write(' ');
+                            out.write(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)));
+                            out.write("=\"");
+                            out.write(escapeXml(reader.getAttributeValue(i), true));
+                            out.write('"');
+                        }
+                        openTagPending = true;
+                        lastWasText = false;
+                        first = false;
+                        depth++;
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        if (openTagPending) {
+                            out.write("/>");
+                        } else {
+                            if (!lastWasText && !mixed.get(depth)) newline(out, depth - 1);
+                            out.write("</" + qualifiedName(reader.getPrefix(), reader.getLocalName()) + ">");
+                        }
+                        mixed.clear(depth);
+                        depth--;
+                        openTagPending = false;
+                        lastWasText = false;
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.SPACE -> {
+                        if (reader.isWhiteSpace()) continue;
+                        if (openTagPending) out.write('>');
+                        openTagPending = false;
+                        out.write(escapeXml(reader.getText(), false));
+                        mixed.set(depth);
+                        lastWasText = true;
+                    }
+                    case XMLStreamConstants.COMMENT -> {
+                        if (openTagPending) out.write('>');
+                        openTagPending = false;
+                        if (!first) newline(out, depth);
+                        out.write("<!--" + reader.getText() + "-->");
+                        lastWasText = false;
+                        first = false;
+                    }
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION -> {
+                        if (openTagPending) out.write('>');
+                        openTagPending = false;
+                        if (!first) newline(out, depth);
+                        String data = reader.getPIData();
+                        out.write("<?" + reader.getPITarget() + (data == null || data.isEmpty() ? "" : " " + data) + "?>");
+                        first = false;
+                    }
+                    case XMLStreamConstants.DTD -> {
+                        out.write(reader.getText());
+                        first = false;
+                    }
+                    default -> { }
+                }
+            }
+            out.write('\n');
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Not well-formed XML: " + e.getMessage(), e);
+        }
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    private static String escapeXml(String text, boolean attribute) {
+        String escaped = text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+        return attribute ? escaped.replace("\"", "&quot;") : escaped;
+    }
+
+    // ---- HTML ----
+
+    // One tag or text run per line, indented by nesting. Elements holding only a short text stay on one
+    // line; script, style, pre and textarea are copied verbatim.
+    static void formatHtml(Reader in, Writer out) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[8192];
+        for (int n; (n = in.read(buffer)) != -1; ) sb.append(buffer, 0, n);
+        List<String> tokens = tokenizeHtml(sb.toString());
+
+        int depth = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (i > 0) {
+                if (token.startsWith("</")) depth = Math.max(0, depth - 1);
+                newline(out, depth);
+            }
+            out.write(token);
+            if (!isOpeningTag(token)) continue;
+            String name = tagName(token);
+            if (i + 2 < tokens.size() && !tokens.get(i + 1).startsWith("<") && tokens.get(i + 1).length() <= 80
+                    && tokens.get(i + 2).equalsIgnoreCase("</" + name + ">")) {
+                out.write(tokens.get(i + 1));
+                out.write(tokens.get(i + 2));
+                i += 2;
+                continue;
+            }
+            depth++;
+        }
+        out.write('\n');
+    }
+
+    // Tags and whitespace-collapsed text runs; a raw-text element is one token from its opening to its closing tag
+    private static List<String> tokenizeHtml(String html) {
+        List<String> tokens = new ArrayList<>();
+        Matcher m = HTML_TOKEN.matcher(html);
+        while (m.find()) {
+            String token = m.group();
+            if (!token.startsWith("<") || token.length() == 1) {
+                String text = token.strip().replaceAll("\\s+", " ");
+                if (!text.isEmpty()) tokens.add(text);
+                continue;
+            }
+            String name = tagName(token);
+            if (token.startsWith("</") || !RAW_TEXT_ELEMENTS.contains(name) || token.endsWith("/>")) {
+                tokens.add(token);
+                continue;
+            }
+            int close = indexOfIgnoreCase(html, "</" + name, m.end());
+            int closeEnd = close < 0 ? html.length() : html.indexOf('>', close);
+            closeEnd = closeEnd < 0 ? html.length() : closeEnd + 1;
+            tokens.add(token + html.substring(m.end(), closeEnd));
+            if (closeEnd >= html.length()) break;
+            m.region(closeEnd, html.length());
+        }
+        return tokens;
+    }
+
+    private static boolean isOpeningTag(String token) {
+        if (!token.startsWith("<") || token.startsWith("</") || token.startsWith("<!") || token.startsWith("<?")
+                || token.endsWith("/>") || token.length() == 1) {
+            return false;
+        }
+        String name = tagName(token);
+        return !VOID_ELEMENTS.contains(name) && !RAW_TEXT_ELEMENTS.contains(name);
+    }
+
+    private static String tagName(String tag) {
+        int end = 1;
+        while (end < tag.length() && (Character.isLetterOrDigit(tag.charAt(end)) || tag.charAt(end) == '-' || tag.charAt(end) == ':')) end++;
+        return tag.substring(1, end).toLowerCase(Locale.ROOT);
+    }
+
+    private static int indexOfIgnoreCase(String text, String needle, int from) {
+        for (int i = from; i <= text.length() - needle.length(); i++) {
+            if (text.regionMatches(true, i, needle, 0, needle.length())) return i;
+        }
+        return -1;
+    }
+
+    private static void newline(Writer out, int depth) throws IOException {
+        out.write('\n');
+        for (int i = 0; i < depth; i++) out.write("  ");
+    }
+}
+
+// Formatted version of a body: text for small bodies, a temp file for large ones
+class FormattedBody {
+    private final String text;
+    private final Path file;
+
+    FormattedBody(String text, Path file) {
+        this.text = text;
+        this.file = file;
+    }
+
+    public String getText() { return text; }
+    public Path getFile() { return file; }
+    public boolean isFile() { return file != null; }
+
+    void delete() {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,518 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.HexFormat;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Content-addressed store for response bodies.
+ *
+ * Each distinct body is kept once in the Bodies table, keyed by the SHA-256 of
+ * its bytes, and Responses rows point at it through Body_Hash. Bodies are
+ * compressed with raw deflate at its fastest level; if that does not make a
+ * body smaller it is stored as is. Bodies that spilled to disk are deflated
+ * into Body_Segments rows of 1 MB instead, so neither storing nor reading one
+ * holds more than a segment in memory. Blobs nobody references any more are
+ * removed by triggers on Responses and Http_Cache (segments by cascade).
+ *
+ * Run {@code java BodyStore} to move bodies of an existing database into the
+ * store and print how much space was saved.
+ */
+public class BodyStore {
+    static final String CODEC_IDENTITY = "identity";
+    static final String CODEC_DEFLATE = "deflate";
+    // Raw deflate split over Body_Segments rows; Data is empty
+    static final String CODEC_DEFLATE_SEGMENTS = "deflate-segments";
+    static final int SEGMENT_BYTES = 1024 * 1024;
+    // Not worth compressing below this
+    private static final int MIN_COMPRESS_BYTES = 128;
+    private static final int MIGRATION_BATCH = 200;
+
+    // Store the text (UTF-8) on the caller's connection and return its hash; null text is not stored
+    public static String put(Connection con, String text) throws SQLException {
+        return text == null ? null : put(con, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Store bytes as they are (binary bodies) and return their hash; null is not stored
+    public static String put(Connection con, byte[] raw) throws SQLException {
+        if (raw == null) return null;
+        String hash = sha256(raw);
+        if (exists(con, hash)) return hash;  // already stored, nothing to compress
+        byte[] compressed = raw.length >= MIN_COMPRESS_BYTES ? deflate(raw) : null;
+        boolean useDeflate = compressed != null && compressed.length < raw.length;
+        insert(con, hash, useDeflate ? CODEC_DEFLATE : CODEC_IDENTITY, raw.length, useDeflate ? compressed : raw);
+        return hash;
+    }
+
+    /**
+     * Store a body that spilled to disk without loading it: one pass over the
+     * temp file hashes it, and unless it is already stored a second pass
+     * deflates it into Body_Segments rows of SEGMENT_BYTES each, written as
+     * they fill up. Text in another charset is stored as UTF-8, like
+     * put(con, String). Returns the hash; a null body is not stored.
+     */
+    public static String put(Connection con, ResponseBody body) throws SQLException {
+        if (body == null) return null;
+        if (body.isInMemory()) return body.isBinary() ? put(con, body.bytes()) : put(con, body.text());
+        boolean transcode = !body.isBinary() && !StandardCharsets.UTF_8.equals(body.charset());
+        MessageDigest digest = newDigest();
+        CountingOutputStream counted = new CountingOutputStream(OutputStream.nullOutputStream());
+        copy(body, transcode, new DigestOutputStream(counted, digest));
+        String hash = HexFormat.of().formatHex(digest.digest());
+        if (exists(con, hash)) return hash;
+
+        boolean autoCommit = con.getAutoCommit();
+        if (autoCommit) con.setAutoCommit(false);  // all of the segments or none
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            insert(con, hash, CODEC_DEFLATE_SEGMENTS, counted.count, new byte[0]);
+            SegmentOutputStream segments = new SegmentOutputStream(con, hash);
+            copy(body, transcode, new DeflaterOutputStream(segments, deflater, 16 * 1024));
+            try (PreparedStatement p = con.prepareStatement("UPDATE Bodies SET Stored_Size = ? WHERE Hash = ?;")) {
+                p.setLong(1, segments.stored);
+                p.setString(2, hash);
+                p.executeUpdate();
+            }
+            if (autoCommit) con.commit();
+        } catch (SQLException e) {
+            if (autoCommit) con.rollback();
+            throw e;
+        } finally {
+            deflater.end();
+            if (autoCommit) con.setAutoCommit(true);
+        }
+        return hash;
+    }
+
+    // Copy the body (transcoded to UTF-8 if asked) into out and close it
+    private static void copy(ResponseBody body, boolean transcode, OutputStream out) throws SQLException {
+        try (InputStream in = body.openStream(); OutputStream target = out) {
+            if (transcode) {
+                Writer writer = new OutputStreamWriter(target, StandardCharsets.UTF_8);
+                new InputStreamReader(in, body.charset()).transferTo(writer);
+                writer.flush();
+            } else {
+                in.transferTo(target);
+            }
+        } catch (IOException e) {
+            if (e.getCause() instanceof SQLException sql) throw sql;
+            throw new SQLException("Cannot read spilled body " + body.spillFile() + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Writes what it is given as numbered Body_Segments rows of at most SEGMENT_BYTES
+    private static class SegmentOutputStream extends OutputStream {
+        private final PreparedStatement insert;
+        private final String hash;
+        private final byte[] buffer = new byte[SEGMENT_BYTES];
+        private int length, seq;
+        long stored;
+
+        SegmentOutputStream(Connection con, String hash) throws SQLException {
+            this.insert = con.prepareStatement("INSERT INTO Body_Segments(Hash, Seq, Data) VALUES (?, ?, ?);");
+            this.hash = hash;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, buffer.length - length);
+                System.arraycopy(b, off, buffer, length, n);
+                length += n;
+                off += n;
+                len -= n;
+                if (length == buffer.length) writeSegment();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (length > 0) writeSegment();
+                insert.close();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private void writeSegment() throws IOException {
+            try {
+                insert.setString(1, hash);
+                insert.setInt(2, seq++);
+                insert.setBytes(3, java.util.Arrays.copyOf(buffer, length));
+                insert.executeUpdate();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+            stored += length;
+            length = 0;
+        }
+    }
+
+    // Reads the Body_Segments rows of a body in order, one at a time, each on a short-lived connection
+    private static class SegmentInputStream extends InputStream {
+        private final String hash;
+        private byte[] segment = new byte[0];
+        private int position, seq;
+        private boolean ended;
+
+        SegmentInputStream(String hash) {
+            this.hash = hash;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (position == segment.length) {
+                if (ended || !nextSegment()) return -1;
+            }
+            int n = Math.min(len, segment.length - position);
+            System.arraycopy(segment, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private boolean nextSegment() throws IOException {
+            try (Connection con = DBHandle.connectReadOnly();
+                 PreparedStatement p = con.prepareStatement("SELECT Data FROM Body_Segments WHERE Hash = ? AND Seq = ?;")) {
+                p.setString(1, hash);
+                p.setInt(2, seq);
+                try (ResultSet r = p.executeQuery()) {
+                    if (!r.next()) {
+                        ended = true;
+                        return false;
+                    }
+                    segment = r.getBytes("Data");
+                    position = 0;
+                    seq++;
+                    return true;
+                }
+            } catch (SQLException e) {
+                throw new IOException("Cannot read body " + hash + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private static boolean exists(Connection con, String hash) throws SQLException {
+        try (PreparedStatement p = con.prepareStatement("SELECT 1 FROM Bodies WHERE Hash = ?;")) {
+            p.setString(1, hash);
+            try (ResultSet r = p.executeQuery()) {
+                return r.next();
+            }
+        }
+    }
+
+    private static void insert(Connection con, String hash, String codec, long size, byte[] data) throws SQLException {
+        try (PreparedStatement p = con.prepareStatement(
+                "INSERT OR IGNORE INTO Bodies(Hash, Codec, Size, Stored_Size, Data) VALUES (?, ?, ?, ?, ?);")) {
+            p.setString(1, hash);
+            p.setString(2, codec);
+            p.setLong(3, size);
+            p.setLong(4, data.length);
+            p.setBytes(5, data);
+            p.executeUpdate();
+        }
+    }
+
+    // Load and decompress a text body; null if the hash is unknown
+    public static String loadText(String hash) {
+        byte[] data = loadBytes(hash);
+        return data != null ? new String(data, StandardCharsets.UTF_8) : null;
+    }
+
+    // Load and decompress a body as stored; null if the hash is unknown
+    public static byte[] loadBytes(String hash) {
+        String query = "SELECT Codec, Size, Data FROM Bodies WHERE Hash = ?;";
+        try (Connection con = DBHandle.connectReadOnly();
+             PreparedStatement p = con.prepareStatement(query)) {
+            p.setString(1, hash);
+            try (ResultSet r = p.executeQuery()) {
+                if (r.next()) {
+                    if (CODEC_DEFLATE_SEGMENTS.equals(r.getString("Codec"))) {
+                        try (InputStream in = inflating(new SegmentInputStream(hash))) {
+                            return in.readAllBytes();
+                        }
+                    }
+                    return decode(r.getString("Codec"), r.getBytes("Data"), r.getInt("Size"));
+                }
+            }
+        } catch (SQLException | DataFormatException | IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    // Stream a stored body, decompressed; segmented bodies are read a segment at a time. null if the hash is unknown
+    public static InputStream openStream(String hash) throws SQLException {
+        String query = "SELECT Codec, Data FROM Bodies WHERE Hash = ?;";
+        String codec;
+        byte[] data;
+        try (Connection con = DBHandle.connectReadOnly();
+             PreparedStatement p = con.prepareStatement(query)) {
+            p.setString(1, hash);
+            try (ResultSet r = p.executeQuery()) {
+                if (!r.next()) return null;
+                codec = r.getString("Codec");
+                data = r.getBytes("Data");
+            }
+        }
+        if (CODEC_DEFLATE_SEGMENTS.equals(codec)) return inflating(new SegmentInputStream(hash));
+        if (CODEC_DEFLATE.equals(codec)) return inflating(new ByteArrayInputStream(data));
+        return new ByteArrayInputStream(data);
+    }
+
+    /**
+     * A stored body as a handle, like a live response's: in memory up to
+     * maxInMemory, otherwise streamed into a temp file with only the start in
+     * memory. Text bodies are UTF-8. null if the hash is unknown or unreadable.
+     */
+    public static ResponseBody loadBody(String hash, boolean binary, long maxInMemory) {
+        try (InputStream in = openStream(hash)) {
+            return in == null ? null : ResponseBody.spool(in, maxInMemory, binary ? null : StandardCharsets.UTF_8, binary);
+        } catch (SQLException | IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static InputStream inflating(InputStream compressed) {
+        Inflater inflater = new Inflater(true);
+        return new InflaterInputStream(compressed, inflater, 16 * 1024) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                inflater.end();
+            }
+        };
+    }
+
+    /**
+     * Move bodies still stored inline in Responses.Body into the store, in
+     * batches of one transaction each, then VACUUM so the file actually shrinks.
+     */
+    public static BodyStoreStats migrateLegacyBodies() throws SQLException {
+        long migrated = 0, inlineBytes = 0;
+        long fileBefore = databaseBytes();
+        while (true) {
+            int batch = 0;
+            try (Connection con = DBHandle.connect()) {
+                if (con == null) throw new SQLException("No database connection");
+                con.setAutoCommit(false);
+                try (PreparedStatement select = con.prepareStatement(
+                             "SELECT ID, Body FROM Responses WHERE Body IS NOT NULL AND Body_Hash IS NULL LIMIT " + MIGRATION_BATCH + ";");
+                     PreparedStatement update = con.prepareStatement(
+                             "UPDATE Responses SET Body_Hash = ?, Body = NULL WHERE ID = ?;")) {
+                    try (ResultSet r = select.executeQuery()) {
+                        while (r.next()) {
+                            String body = r.getString("Body");
+                            inlineBytes += body.getBytes(StandardCharsets.UTF_8).length;
+                            update.setString(1, put(con, body));
+                            update.setInt(2, r.getInt("ID"));
+                            update.addBatch();
+                            batch++;
+                        }
+                    }
+                    update.executeBatch();
+                    con.commit();
+                } catch (SQLException e) {
+                    con.rollback();
+                    throw e;
+                } finally {
+                    con.setAutoCommit(true);
+                }
+            }
+            migrated += batch;
+            if (batch < MIGRATION_BATCH) break;
+        }
+        if (migrated > 0) {
+            try (Connection con = DBHandle.connect(); Statement s = con.createStatement()) {
+                s.execute("VACUUM;");
+            }
+        }
+        BodyStoreStats stats = getStats();
+        stats.setMigration(migrated, inlineBytes, fileBefore, databaseBytes());
+        return stats;
+    }
+
+    // Logical size of all stored response bodies vs what the store actually holds
+    public static BodyStoreStats getStats() {
+        BodyStoreStats stats = new BodyStoreStats();
+        String query = "SELECT (SELECT COUNT(*) FROM Responses WHERE Body_Hash IS NOT NULL) AS refs, " +
+                "(SELECT COALESCE(SUM(b.Size), 0) FROM Responses s JOIN Bodies b ON b.Hash = s.Body_Hash) AS logical, " +
+                "(SELECT COUNT(*) FROM Bodies) AS blobs, " +
+                "(SELECT COALESCE(SUM(Size), 0) FROM Bodies) AS unique_bytes, " +
+                "(SELECT COALESCE(SUM(Stored_Size), 0) FROM Bodies) AS stored;";
+        try (Connection con = DBHandle.connectReadOnly();
+             Statement s = con.createStatement();
+             ResultSet r = s.executeQuery(query)) {
+            if (r.next()) {
+                stats.setStore(r.getLong("refs"), r.getLong("logical"), r.getLong("blobs"),
+                        r.getLong("unique_bytes"), r.getLong("stored"));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return stats;
+    }
+
+    private static long databaseBytes() {
+        try (Connection con = DBHandle.connectReadOnly();
+             Statement s = con.createStatement();
+             ResultSet r = s.executeQuery("SELECT page_count * page_size AS bytes FROM pragma_page_count(), pragma_page_size();")) {
+            return r.next() ? r.getLong("bytes") : -1;
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+
+    static String sha256(byte[] data) {
+        return HexFormat.of().formatHex(newDigest().digest(data));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[16 * 1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] decode(String codec, byte[] data, int size) throws DataFormatException {
+        if (!CODEC_DEFLATE.equals(codec)) {
+            return data;
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            byte[] raw = new byte[size];
+            int n = 0;
+            while (n < size && !inflater.finished()) {
+                int read = inflater.inflate(raw, n, size - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                n += read;
+            }
+            if (n != size) throw new DataFormatException("Body is " + n + " bytes, expected " + size);
+            return raw;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        DBHandle.Initialize();
+        System.out.println("Migrating inline response bodies...");
+        System.out.println(migrateLegacyBodies().toReport());
+    }
+}
+
+// Space accounting for the body store, optionally with the result of a migration
+class BodyStoreStats {
+    private long references, logicalBytes, blobs, uniqueBytes, storedBytes;
+    private long migrated = -1, inlineBytes, fileBefore, fileAfter;
+
+    void setStore(long references, long logicalBytes, long blobs, long uniqueBytes, long storedBytes) {
+        this.references = references;
+        this.logicalBytes = logicalBytes;
+        this.blobs = blobs;
+        this.uniqueBytes = uniqueBytes;
+        this.storedBytes = storedBytes;
+    }
+
+    void setMigration(long migrated, long inlineBytes, long fileBefore, long fileAfter) {
+        this.migrated = migrated;
+        this.inlineBytes = inlineBytes;
+        this.fileBefore = fileBefore;
+        this.fileAfter = fileAfter;
+    }
+
+    public long getLogicalBytes() { return logicalBytes; }
+    public long getStoredBytes() { return storedBytes; }
+    public long getSavedBytes() { return logicalBytes - storedBytes; }
+
+    private static String size(long bytes) {
+        if (bytes < 0) return "n/a";
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    private static String percent(long part, long whole) {
+        return whole == 0 ? "0%" : String.format("%.1f%%", 100.0 * part / whole);
+    }
+
+    public String toReport() {
+        StringBuilder sb = new StringBuilder();
+        if (migrated >= 0) {
+            sb.append("Migrated responses: ").append(migrated).append(" (").append(size(inlineBytes)).append(" inline)\n");
+            sb.append("Database file:      ").append(size(fileBefore)).append(" -> ").append(size(fileAfter)).append('\n');
+        }
+        sb.append("Response bodies:    ").append(references).append(" referencing ").append(blobs).append(" unique blobs\n");
+        sb.append("Logical size:       ").append(size(logicalBytes)).append('\n');
+        sb.append("After dedupe:       ").append(size(uniqueBytes)).append('\n');
+        sb.append("After compression:  ").append(size(storedBytes)).append('\n');
+        sb.append("Space saved:        ").append(size(getSavedBytes())).append(" (").append(percent(getSavedBytes(), logicalBytes)).append(")\n");
+        return sb.toString();
+    }
+}
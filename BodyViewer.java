@@ -0,0 +1,566 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only viewer for response bodies of any size.
+ *
+ * The body stays where it is (a byte array, or a memory-mapped file for bodies
+ * that spilled to disk). A background pass splits it into rows and keeps only
+ * every ROWS_PER_CHECKPOINT-th row start; rows are decoded when they scroll
+ * into view, a block at a time, and only the last few blocks stay in memory.
+ * Only visible rows are painted and highlighted.
+ *
+ * Long lines are split at MAX_ROW_BYTES so minified JSON does not become one
+ * giant row. With line wrap on, rows are split at the viewport width instead;
+ * the row index is rebuilt in the background when the width changes.
+ */
+public class BodyViewer extends JComponent implements Scrollable {
+    static final int MAX_ROW_BYTES = 4096;
+    static final int ROWS_PER_CHECKPOINT = 64;
+    private static final int CACHED_BLOCKS = 64;
+    private static final int PUBLISH_EVERY_ROWS = 50_000;
+    private static final int MAX_COPY_BYTES = 64 * 1024 * 1024;
+
+    private static final Color KEY_COLOR = new Color(120, 194, 255);
+    private static final Color STRING_COLOR = new Color(96, 181, 157);
+    private static final Color NUMBER_COLOR = new Color(230, 200, 100);
+    private static final Color LITERAL_COLOR = new Color(200, 140, 230);
+
+    private BodySource source = BodySource.ofBytes(new byte[0]);
+    private Charset charset = StandardCharsets.UTF_8;
+    private boolean highlightJson;
+    private boolean lineWrap;
+
+    // Row index, replaced as a whole when the background pass publishes
+    private long[] checkpoints = {0};
+    private int rowCount = 1;
+    private int longestRow;
+    private boolean indexComplete = true;
+    private RowIndexer indexer;
+    private int indexedRowWidth = MAX_ROW_BYTES;
+
+    private final Map<Integer, String[]> blockCache = new LinkedHashMap<>(CACHED_BLOCKS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > CACHED_BLOCKS;
+        }
+    };
+
+    private int selectionAnchor = -1, selectionEnd = -1;
+    private final Timer rewrapTimer;
+
+    public BodyViewer() {
+        setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        setOpaque(true);
+        setFocusable(true);
+        setForeground(UIManager.getColor("TextArea.foreground"));
+        setBackground(UIManager.getColor("TextArea.background"));
+
+        // Width changes only matter with wrap on; wait until resizing settles
+        rewrapTimer = new Timer(200, e -> rebuildIndex());
+        rewrapTimer.setRepeats(false);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                if (lineWrap && rowWidth() != indexedRowWidth) rewrapTimer.restart();
+            }
+        });
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                requestFocusInWindow();
+                int row = rowAt(e.getY());
+                if ((e.getModifiersEx() & InputEvent.SHIFT_DOWN_MASK) == 0 || selectionAnchor < 0) {
+                    selectionAnchor = row;
+                }
+                selectionEnd = row;
+                repaint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                selectionEnd = rowAt(e.getY());
+                scrollRectToVisible(new Rectangle(0, e.getY(), 1, 1));
+                repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+
+        int menuMask = GraphicsEnvironment.isHeadless()
+                ? InputEvent.CTRL_DOWN_MASK : Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_C, menuMask), "copy");
+        getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_A, menuMask), "selectAll");
+        getActionMap().put("copy", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                copySelection();
+            }
+        });
+        getActionMap().put("selectAll", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                selectionAnchor = 0;
+                selectionEnd = rowCount - 1;
+                repaint();
+            }
+        });
+    }
+
+    // ---- content ----
+
+    public void setText(String text) {
+        setText(text, false);
+    }
+
+    public void setText(String text, boolean json) {
+        byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        setSource(BodySource.ofBytes(bytes), StandardCharsets.UTF_8, json);
+    }
+
+    // Show a response body without copying it: in-memory bodies as they are, spilled ones mapped from disk
+    public void setBody(ResponseBody body, boolean json) {
+        try {
+            BodySource src = body.isInMemory() ? BodySource.ofBytes(body.bytes()) : BodySource.ofFile(body.spillFile());
+            setSource(src, body.charset(), json);
+        } catch (IOException e) {
+            setText("Could not open the body: " + e.getMessage());
+        }
+    }
+
+    public void setFile(Path file, Charset charset, boolean json) throws IOException {
+        setSource(BodySource.ofFile(file), charset, json);
+    }
+
+    private void setSource(BodySource newSource, Charset newCharset, boolean json) {
+        BodySource old = source;
+        source = newSource;
+        charset = newCharset != null ? newCharset : StandardCharsets.UTF_8;
+        highlightJson = json;
+        selectionAnchor = selectionEnd = -1;
+        closeQuietly(old);
+        rebuildIndex();
+        scrollRectToVisible(new Rectangle(0, 0, 1, 1));
+    }
+
+    public void setLineWrap(boolean wrap) {
+        if (wrap == lineWrap) return;
+        lineWrap = wrap;
+        rebuildIndex();
+    }
+
+    public boolean getLineWrap() {
+        return lineWrap;
+    }
+
+    public long getContentSize() {
+        return source.size();
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public boolean isIndexComplete() {
+        return indexComplete;
+    }
+
+    // ---- row index ----
+
+    // Row width in bytes: the viewport width when wrapping, MAX_ROW_BYTES otherwise
+    private int rowWidth() {
+        if (!lineWrap) return MAX_ROW_BYTES;
+        Container parent = getParent();
+        int width = parent instanceof JViewport viewport ? viewport.getWidth() : getWidth();
+        int charWidth = getFontMetrics(getFont()).charWidth('m');
+        return Math.max(20, Math.min(MAX_ROW_BYTES, (width - 8) / Math.max(1, charWidth)));
+    }
+
+    private void rebuildIndex() {
+        if (indexer != null) indexer.cancel(true);
+        blockCache.clear();
+        indexedRowWidth = rowWidth();
+        checkpoints = new long[]{0};
+        rowCount = 1;
+        longestRow = 0;
+        indexComplete = false;
+        indexer = new RowIndexer(source, indexedRowWidth);
+        indexer.execute();
+        revalidate();
+        repaint();
+    }
+
+    // Finds row starts in the background and publishes the index as it grows
+    private class RowIndexer extends SwingWorker<Void, RowIndexer.Snapshot> {
+        private final BodySource src;
+        private final int width;
+
+        record Snapshot(long[] checkpoints, int rows, int longest, boolean complete) {}
+
+        RowIndexer(BodySource src, int width) {
+            this.src = src;
+            this.width = width;
+        }
+
+        @Override
+        protected Void doInBackground() {
+            long[] marks = new long[1024];
+            int markCount = 1;  // marks[0] = 0
+            int rows = 1;
+            long size = src.size();
+            RowSplitter splitter = new RowSplitter(width, 0);
+            byte[] buffer = new byte[1 << 20];
+            for (long pos = 0; pos < size && !isCancelled(); pos += buffer.length) {
+                int length = (int) Math.min(buffer.length, size - pos);
+                src.read(pos, buffer, 0, length);
+                for (int i = 0; i < length; i++) {
+                    long next = splitter.feed(buffer[i], pos + i);
+                    if (next < 0 || next >= size) continue;
+                    if (rows % ROWS_PER_CHECKPOINT == 0) {
+                        if (markCount == marks.length) marks = Arrays.copyOf(marks, markCount * 2);
+                        marks[markCount++] = next;
+                    }
+                    rows++;
+                    if (rows % PUBLISH_EVERY_ROWS == 0) {
+                        // The last row may still grow, so it is not shown yet
+                        publish(new Snapshot(Arrays.copyOf(marks, markCount), rows - 1, splitter.longest, false));
+                    }
+                }
+            }
+            if (!isCancelled()) {
+                publish(new Snapshot(Arrays.copyOf(marks, markCount), rows, splitter.longest, true));
+            }
+            return null;
+        }
+
+        @Override
+        protected void process(List<Snapshot> snapshots) {
+            if (isCancelled() || indexer != this) return;
+            Snapshot latest = snapshots.getLast();
+            checkpoints = latest.checkpoints();
+            rowCount = Math.max(1, latest.rows());
+            longestRow = latest.longest();
+            indexComplete = latest.complete();
+            revalidate();
+            repaint();
+        }
+    }
+
+    /**
+     * The rule that splits bytes into rows, shared by the indexer and the block
+     * loader so both agree: a row ends after '\n', or before the first byte that
+     * starts a character once the row has reached the width.
+     */
+    static class RowSplitter {
+        private final int width;
+        private long rowStart;
+        int longest;
+
+        RowSplitter(int width, long rowStart) {
+            this.width = width;
+            this.rowStart = rowStart;
+        }
+
+        // Returns where a new row starts because of this byte, or -1
+        long feed(byte b, long pos) {
+            long started = -1;
+            if (pos - rowStart >= width && (b & 0xC0) != 0x80 && b != '\n' && b != '\r') {
+                longest = Math.max(longest, (int) (pos - rowStart));
+                rowStart = pos;
+                started = pos;
+            }
+            if (b == '\n') {
+                longest = Math.max(longest, (int) (pos - rowStart));
+                rowStart = pos + 1;
+                return pos + 1;
+            }
+            return started;
+        }
+    }
+
+    // Decoded rows of one checkpoint block, from the cache or read now
+    private String[] block(int index) {
+        String[] rows = blockCache.get(index);
+        if (rows != null) return rows;
+        long start = checkpoints[index];
+        // A block holds at most ROWS_PER_CHECKPOINT rows of at most the row width (plus a split character and CRLF)
+        long maxBlockBytes = (long) ROWS_PER_CHECKPOINT * (indexedRowWidth + 6);
+        long end = index + 1 < checkpoints.length ? checkpoints[index + 1] : Math.min(source.size(), start + maxBlockBytes);
+        int rowsInBlock = Math.min(ROWS_PER_CHECKPOINT, rowCount - index * ROWS_PER_CHECKPOINT);
+        byte[] bytes = new byte[(int) (end - start)];
+        source.read(start, bytes, 0, bytes.length);
+
+        rows = new String[Math.max(0, rowsInBlock)];
+        RowSplitter splitter = new RowSplitter(indexedRowWidth, start);
+        int rowStart = 0, row = 0;
+        for (int i = 0; i < bytes.length && row < rows.length; i++) {
+            long next = splitter.feed(bytes[i], start + i);
+            if (next < 0) continue;
+            int rowEnd = (int) (next - start);
+            rows[row++] = decode(bytes, rowStart, rowEnd);
+            rowStart = rowEnd;
+        }
+        if (row < rows.length) rows[row] = decode(bytes, rowStart, bytes.length);
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] == null) rows[i] = "";
+        }
+        blockCache.put(index, rows);
+        return rows;
+    }
+
+    private String decode(byte[] bytes, int from, int to) {
+        while (to > from && (bytes[to - 1] == '\n' || bytes[to - 1] == '\r')) to--;
+        return new String(bytes, from, to - from, charset);
+    }
+
+    String rowText(int row) {
+        String[] rows = block(row / ROWS_PER_CHECKPOINT);
+        int offset = row % ROWS_PER_CHECKPOINT;
+        return offset < rows.length ? rows[offset] : "";
+    }
+
+    // Byte offset where a row starts (scans forward from its checkpoint)
+    private long rowStartOffset(int row) {
+        int index = row / ROWS_PER_CHECKPOINT;
+        long start = checkpoints[Math.min(index, checkpoints.length - 1)];
+        int skip = row - index * ROWS_PER_CHECKPOINT;
+        if (skip == 0) return start;
+        RowSplitter splitter = new RowSplitter(indexedRowWidth, start);
+        byte[] buffer = new byte[8192];
+        for (long pos = start; pos < source.size(); pos += buffer.length) {
+            int length = (int) Math.min(buffer.length, source.size() - pos);
+            source.read(pos, buffer, 0, length);
+            for (int i = 0; i < length; i++) {
+                long next = splitter.feed(buffer[i], pos + i);
+                if (next >= 0 && --skip == 0) return next;
+            }
+        }
+        return source.size();
+    }
+
+    // ---- painting ----
+
+    private int rowHeight() {
+        return getFontMetrics(getFont()).getHeight();
+    }
+
+    private int rowAt(int y) {
+        return Math.max(0, Math.min(rowCount - 1, y / rowHeight()));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        ((Graphics2D) g).setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        FontMetrics fm = g.getFontMetrics(getFont());
+        g.setFont(getFont());
+        int height = fm.getHeight();
+        int first = rowAt(clip.y);
+        int last = rowAt(clip.y + clip.height);
+        int selFrom = Math.min(selectionAnchor, selectionEnd), selTo = Math.max(selectionAnchor, selectionEnd);
+        for (int row = first; row <= last; row++) {
+            int y = row * height;
+            if (selectionAnchor >= 0 && row >= selFrom && row <= selTo) {
+                Color selection = UIManager.getColor("TextArea.selectionBackground");
+                g.setColor(selection != null ? selection : new Color(0xB8CFE5));
+                g.fillRect(clip.x, y, clip.width, height);
+            }
+            String text = rowText(row);
+            if (highlightJson) {
+                paintJson(g, fm, text, 4, y + fm.getAscent());
+            } else {
+                g.setColor(getForeground());
+                g.drawString(text, 4, y + fm.getAscent());
+            }
+        }
+        if (!indexComplete) {
+            String note = "Indexing... " + rowCount + " rows";
+            g.setColor(Color.GRAY);
+            Rectangle visible = getVisibleRect();
+            g.drawString(note, visible.x + visible.width - fm.stringWidth(note) - 8, visible.y + visible.height - fm.getDescent() - 4);
+        }
+    }
+
+    // Colour one row of JSON; each row is tokenized on its own, only when painted
+    private void paintJson(Graphics g, FontMetrics fm, String text, int x, int baseline) {
+        int i = 0, n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            int end = i + 1;
+            Color color = getForeground();
+            if (c == '"') {
+                while (end < n && text.charAt(end) != '"') {
+                    if (text.charAt(end) == '\\') end++;
+                    end++;
+                }
+                end = Math.min(n, end + 1);
+                int after = end;
+                while (after < n && text.charAt(after) == ' ') after++;
+                color = after < n && text.charAt(after) == ':' ? KEY_COLOR : STRING_COLOR;
+            } else if (c == '-' || Character.isDigit(c)) {
+                while (end < n && "0123456789.eE+-".indexOf(text.charAt(end)) >= 0) end++;
+                color = NUMBER_COLOR;
+            } else if (Character.isLetter(c)) {
+                while (end < n && Character.isLetter(text.charAt(end))) end++;
+                color = LITERAL_COLOR;
+            } else {
+                while (end < n && "\"-0123456789".indexOf(text.charAt(end)) < 0 && !Character.isLetter(text.charAt(end))) end++;
+            }
+            String token = text.substring(i, end);
+            g.setColor(color);
+            g.drawString(token, x, baseline);
+            x += fm.stringWidth(token);
+            i = end;
+        }
+    }
+
+    private void copySelection() {
+        if (selectionAnchor < 0) return;
+        int from = Math.min(selectionAnchor, selectionEnd), to = Math.max(selectionAnchor, selectionEnd);
+        long start = rowStartOffset(from);
+        long end = to + 1 >= rowCount ? source.size() : rowStartOffset(to + 1);
+        if (end - start > MAX_COPY_BYTES) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        byte[] bytes = new byte[(int) (end - start)];
+        source.read(start, bytes, 0, bytes.length);
+        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(new String(bytes, charset)), null);
+    }
+
+    // ---- Scrollable ----
+
+    @Override
+    public Dimension getPreferredSize() {
+        FontMetrics fm = getFontMetrics(getFont());
+        int width = lineWrap ? 0 : Math.min(Integer.MAX_VALUE / 2, (longestRow + 2) * fm.charWidth('m') + 8);
+        long height = (long) rowCount * fm.getHeight();
+        return new Dimension(width, (int) Math.min(Integer.MAX_VALUE / 2, height));
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(400, 300);
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? rowHeight() : getFontMetrics(getFont()).charWidth('m') * 4;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height - rowHeight() : visibleRect.width / 2;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return lineWrap || (getParent() instanceof JViewport viewport && viewport.getWidth() > getPreferredSize().width);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport viewport && viewport.getHeight() > getPreferredSize().height;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
+
+/**
+ * Random access to body bytes. Files are memory-mapped in segments, so only
+ * the pages being read are resident and files beyond 2 GB work too.
+ */
+abstract class BodySource implements Closeable {
+    abstract long size();
+
+    abstract void read(long position, byte[] dst, int offset, int length);
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    static BodySource ofBytes(byte[] bytes) {
+        return new BodySource() {
+            @Override
+            long size() {
+                return bytes.length;
+            }
+
+            @Override
+            void read(long position, byte[] dst, int offset, int length) {
+                System.arraycopy(bytes, (int) position, dst, offset, length);
+            }
+        };
+    }
+
+    static BodySource ofFile(Path file) throws IOException {
+        return new MappedFileSource(file);
+    }
+}
+
+class MappedFileSource extends BodySource {
+    private static final long SEGMENT_BYTES = 256L * 1024 * 1024;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    MappedFileSource(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_BYTES;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_BYTES, size - start));
+            }
+        }
+    }
+
+    @Override
+    long size() {
+        return size;
+    }
+
+    @Override
+    void read(long position, byte[] dst, int offset, int length) {
+        if (position < 0 || position + length > size) {
+            throw new UncheckedIOException(new IOException("Read past end of body: " + (position + length) + " > " + size));
+        }
+        while (length > 0) {
+            MappedByteBuffer segment = segments[(int) (position / SEGMENT_BYTES)];
+            int within = (int) (position % SEGMENT_BYTES);
+            int n = Math.min(length, segment.limit() - within);
+            segment.get(within, dst, offset, n);
+            position += n;
+            offset += n;
+            length -= n;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * "Collections" tab: groups request templates into named collections and runs
+ * them through {@link CollectionRunner}, showing per-step timings and the
+ * speedup over a sequential run.
+ */
+public class CollectionPanel extends JPanel {
+    private final PostmanBackendService backendService;
+    private final Supplier<HttpRequestData> requestSupplier;
+    private final CollectionsDAO collectionsDAO = new CollectionsDAO();
+
+    private final JComboBox<RequestCollection> collectionCombo = new JComboBox<>();
+    private final DefaultListModel<CollectionStep> stepsModel = new DefaultListModel<>();
+    private final JList<CollectionStep> stepsList = new JList<>(stepsModel);
+    private final JSpinner concurrencySpinner = new JSpinner(new SpinnerNumberModel(4, 1, 256, 1));
+    private final JButton runButton = new JButton("Run");
+    private final JButton cancelButton = new JButton("Cancel");
+    private final JTextArea resultsArea = new JTextArea();
+
+    private CollectionRunner runner;
+
+    public CollectionPanel(PostmanBackendService backendService, Supplier<HttpRequestData> requestSupplier) {
+        super(new BorderLayout());
+        this.backendService = backendService;
+        this.requestSupplier = requestSupplier;
+
+        JButton newButton = new JButton("New");
+        JButton deleteButton = new JButton("Delete");
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(new JLabel("Collection:"));
+        controls.add(collectionCombo);
+        controls.add(newButton);
+        controls.add(deleteButton);
+        controls.add(new JLabel("Concurrency:"));
+        controls.add(concurrencySpinner);
+        controls.add(runButton);
+        controls.add(cancelButton);
+
+        JButton addStepButton = new JButton("Add Current Request");
+        JButton removeStepButton = new JButton("Remove Step");
+        JPanel stepButtons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        stepButtons.add(addStepButton);
+        stepButtons.add(removeStepButton);
+        JPanel stepsPanel = new JPanel(new BorderLayout());
+        stepsPanel.add(new JScrollPane(stepsList), BorderLayout.CENTER);
+        stepsPanel.add(stepButtons, BorderLayout.SOUTH);
+
+        resultsArea.setEditable(false);
+        resultsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, stepsPanel, new JScrollPane(resultsArea));
+        split.setResizeWeight(0.4);
+
+        cancelButton.setEnabled(false);
+        collectionCombo.addActionListener(e -> loadSteps());
+        newButton.addActionListener(e -> createCollection());
+        deleteButton.addActionListener(e -> deleteCollection());
+        addStepButton.addActionListener(e -> addStep());
+        removeStepButton.addActionListener(e -> removeStep());
+        runButton.addActionListener(e -> runCollection());
+        cancelButton.addActionListener(e -> {
+            if (runner != null) runner.cancel();
+        });
+
+        add(controls, BorderLayout.NORTH);
+        add(split, BorderLayout.CENTER);
+        loadCollections(-1);
+    }
+
+    private RequestCollection selectedCollection() {
+        return (RequestCollection) collectionCombo.getSelectedItem();
+    }
+
+    private void loadCollections(int selectId) {
+        SwingWorker<List<RequestCollection>, Void> worker = new SwingWorker<>() {
+            @Override
+            protected List<RequestCollection> doInBackground() {
+                return collectionsDAO.GetAll();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    collectionCombo.removeAllItems();
+                    for (RequestCollection collection : get()) {
+                        collectionCombo.addItem(collection);
+                        if (collection.getID() == selectId) collectionCombo.setSelectedItem(collection);
+                    }
+                    loadSteps();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void loadSteps() {
+        RequestCollection collection = selectedCollection();
+        if (collection == null) {
+            stepsModel.clear();
+            return;
+        }
+        SwingWorker<List<CollectionStep>, Void> worker = new SwingWorker<>() {
+            @Override
+            protected List<CollectionStep> doInBackground() {
+                return collectionsDAO.GetSteps(collection.getID());
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    if (collection != selectedCollection()) return;  // selection changed meanwhile
+                    stepsModel.clear();
+                    stepsModel.addAll(get());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void createCollection() {
+        String name = JOptionPane.showInputDialog(this, "Collection name:", "New Collection", JOptionPane.PLAIN_MESSAGE);
+        if (name == null || name.isBlank()) return;
+        int id = collectionsDAO.insert(new RequestCollection(0, name.trim(), ""));
+        loadCollections(id);
+    }
+
+    private void deleteCollection() {
+        RequestCollection collection = selectedCollection();
+        if (collection == null) return;
+        int confirm = JOptionPane.showConfirmDialog(this, "Delete collection '" + collection.getName() + "' and its steps?",
+                "Confirm Delete", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) return;
+        try {
+            collectionsDAO.Delete(collection.getID());
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, "Error deleting collection: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        loadCollections(-1);
+    }
+
+    // Save the request in the editor as a new step, asking for its name, dependencies and extractions
+    private void addStep() {
+        RequestCollection collection = selectedCollection();
+        if (collection == null) {
+            JOptionPane.showMessageDialog(this, "Create a collection first.", "Collections", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        HttpRequestData request = requestSupplier.get();
+
+        JTextField nameField = new JTextField("step" + (stepsModel.size() + 1), 20);
+        JTextField dependsField = new JTextField(20);
+        JTextArea extractArea = new JTextArea(4, 30);
+        JPanel form = new JPanel(new GridBagLayout());
+        GridBagConstraints c = new GridBagConstraints();
+        c.anchor = GridBagConstraints.WEST;
+        c.insets = new Insets(2, 2, 2, 2);
+        c.gridx = 0; c.gridy = 0; form.add(new JLabel("Step name:"), c);
+        c.gridx = 1; form.add(nameField, c);
+        c.gridx = 0; c.gridy = 1; form.add(new JLabel("Depends on:"), c);
+        c.gridx = 1; form.add(dependsField, c);
+        c.gridx = 0; c.gridy = 2; form.add(new JLabel("Extract:"), c);
+        c.gridx = 1; form.add(new JScrollPane(extractArea), c);
+        dependsField.setToolTipText("Comma-separated step names");
+        extractArea.setToolTipText("One per line: name = $.json.path | header:Name | status. Use as {{name}}.");
+
+        int result = JOptionPane.showConfirmDialog(this, form, "Add " + request.getMethod() + " " + request.getUrl(),
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION || nameField.getText().isBlank()) return;
+
+        collectionsDAO.insertStep(new CollectionStep(0, collection.getID(), 0, nameField.getText().trim(),
+                request.getMethod(), request.getUrl(), CollectionStep.formatHeaders(request.getHeaders()),
+                request.getBody(), dependsField.getText().trim(), extractArea.getText()));
+        loadSteps();
+    }
+
+    private void removeStep() {
+        CollectionStep step = stepsList.getSelectedValue();
+        if (step == null) return;
+        try {
+            collectionsDAO.DeleteStep(step.getID());
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, "Error removing step: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        loadSteps();
+    }
+
+    private void runCollection() {
+        List<CollectionStep> steps = new java.util.ArrayList<>();
+        for (int i = 0; i < stepsModel.size(); i++) steps.add(stepsModel.get(i));
+        if (steps.isEmpty()) return;
+        try {
+            runner = new CollectionRunner(backendService, steps, ((Number) concurrencySpinner.getValue()).intValue());
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Collections", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        CollectionRunner current = runner;
+        runButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        resultsArea.setText("Running " + steps.size() + " steps...\n");
+        SwingWorker<CollectionRunReport, StepResult> worker = new SwingWorker<>() {
+            @Override
+            protected CollectionRunReport doInBackground() {
+                return current.run(this::publish);
+            }
+
+            @Override
+            protected void process(List<StepResult> finished) {
+                for (StepResult step : finished) {
+                    resultsArea.append(String.format("  %s %s (%.1f ms)%n", step.getName(), step.getState(),
+                            step.getDurationNanos() / 1e6));
+                }
+            }
+
+            @Override
+            protected void done() {
+                runButton.setEnabled(true);
+                cancelButton.setEnabled(false);
+                try {
+                    resultsArea.setText(get().toReport());
+                } catch (Exception e) {
+                    resultsArea.append("\nRun failed: " + e.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+}
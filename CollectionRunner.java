@@ -0,0 +1,417 @@
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the steps of a collection as a dependency graph.
+ *
+ * Every step becomes a future that starts once all of its dependencies have
+ * finished, so independent steps run in parallel while at most
+ * {@code concurrency} requests are in flight at once (a semaphore guards the
+ * send). Requests go through {@link PostmanBackendService} and therefore show
+ * up in the history like any other request. Variables extracted by a step are
+ * visible only to the steps that depend on it, directly or transitively, and a
+ * {{variable}} no such step extracts is rejected before the run starts. When
+ * several of them extract the same name, the one latest in run order wins.
+ * When a step fails, its dependents are skipped.
+ */
+public class CollectionRunner {
+    private static final Pattern VARIABLE = Pattern.compile("\\{\\{\\s*([\\w.-]+)\\s*}}");
+    private static final Pattern JSON_PATH_SEGMENT = Pattern.compile("\\.([^.\\[]+)|\\[(\\d+)]");
+
+    private final PostmanBackendService backendService;
+    private final List<CollectionStep> order;
+    private final int concurrency;
+    private final Map<String, List<String>> ancestors;  // step -> the steps it depends on transitively, in run order
+    private final Map<String, Map<String, String>> extracted = new ConcurrentHashMap<>();  // step -> its variables
+    private final Map<String, StepResult> results = new ConcurrentHashMap<>();
+    private volatile boolean cancelled = false;
+    private long startNanos;
+
+    public CollectionRunner(PostmanBackendService backendService, List<CollectionStep> steps, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.backendService = backendService;
+        this.order = topologicalOrder(steps);
+        this.ancestors = ancestors(order);
+        this.concurrency = concurrency;
+        checkVariables(order, ancestors);
+    }
+
+    // For every step, the steps it depends on directly or transitively, in the given (topological) order
+    static Map<String, List<String>> ancestors(List<CollectionStep> order) {
+        Map<String, Integer> position = new HashMap<>();
+        Map<String, List<String>> ancestors = new HashMap<>();
+        for (CollectionStep step : order) {
+            Set<String> closure = new HashSet<>();
+            for (String dep : step.getDependencies()) {
+                closure.add(dep);
+                closure.addAll(ancestors.get(dep));
+            }
+            List<String> sorted = new ArrayList<>(closure);
+            sorted.sort(Comparator.comparing(position::get));
+            position.put(step.getName(), position.size());
+            ancestors.put(step.getName(), sorted);
+        }
+        return ancestors;
+    }
+
+    // Every {{variable}} a step uses must be extracted by a step it depends on
+    static void checkVariables(List<CollectionStep> order, Map<String, List<String>> ancestors) {
+        Map<String, Set<String>> extractedBy = new HashMap<>();
+        for (CollectionStep step : order) {
+            extractedBy.put(step.getName(), step.getExtractRules().keySet());
+        }
+        for (CollectionStep step : order) {
+            Set<String> visible = new HashSet<>();
+            for (String ancestor : ancestors.get(step.getName())) {
+                visible.addAll(extractedBy.get(ancestor));
+            }
+            List<String> templates = new ArrayList<>(step.getHeaderMap().values());
+            templates.add(step.getUrl());
+            templates.add(step.getBody());
+            for (String template : templates) {
+                if (template == null) continue;
+                Matcher m = VARIABLE.matcher(template);
+                while (m.find()) {
+                    if (!visible.contains(m.group(1))) {
+                        throw new IllegalArgumentException("Step '" + step.getName() + "' uses {{" + m.group(1)
+                                + "}}, which none of the steps it depends on extracts");
+                    }
+                }
+            }
+        }
+    }
+
+    // Steps sorted so every step comes after its dependencies; rejects unknown names and cycles
+    static List<CollectionStep> topologicalOrder(List<CollectionStep> steps) {
+        Map<String, CollectionStep> byName = new LinkedHashMap<>();
+        for (CollectionStep step : steps) {
+            if (step.getName() == null || step.getName().isBlank()) {
+                throw new IllegalArgumentException("Every step needs a name");
+            }
+            if (byName.put(step.getName(), step) != null) {
+                throw new IllegalArgumentException("Duplicate step name: " + step.getName());
+            }
+        }
+
+        Map<String, Integer> pending = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (CollectionStep step : steps) {
+            List<String> deps = step.getDependencies();
+            for (String dep : deps) {
+                if (!byName.containsKey(dep)) {
+                    throw new IllegalArgumentException("Step '" + step.getName() + "' depends on unknown step '" + dep + "'");
+                }
+                dependents.computeIfAbsent(dep, k -> new ArrayList<>()).add(step.getName());
+            }
+            pending.put(step.getName(), deps.size());
+        }
+
+        // Kahn's algorithm, seeded in collection order so ties keep the saved order
+        Deque<String> ready = new ArrayDeque<>();
+        for (CollectionStep step : steps) {
+            if (pending.get(step.getName()) == 0) ready.add(step.getName());
+        }
+        List<CollectionStep> sorted = new ArrayList<>(steps.size());
+        while (!ready.isEmpty()) {
+            String name = ready.poll();
+            sorted.add(byName.get(name));
+            for (String dependent : dependents.getOrDefault(name, List.of())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) ready.add(dependent);
+            }
+        }
+        if (sorted.size() != steps.size()) {
+            List<String> cyclic = new ArrayList<>();
+            pending.forEach((name, count) -> { if (count > 0) cyclic.add(name); });
+            Collections.sort(cyclic);
+            throw new IllegalArgumentException("Dependency cycle between steps: " + String.join(", ", cyclic));
+        }
+        return sorted;
+    }
+
+    // Run every step and wait for the whole graph; onStepFinished (optional) is called as steps complete
+    public CollectionRunReport run(Consumer<StepResult> onStepFinished) {
+        startNanos = System.nanoTime();
+        Semaphore slots = new Semaphore(concurrency);
+        Map<String, CompletableFuture<StepResult>> futures = new HashMap<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (CollectionStep step : order) {
+                List<CompletableFuture<StepResult>> deps = new ArrayList<>();
+                for (String dep : step.getDependencies()) {
+                    deps.add(futures.get(dep));
+                }
+                CompletableFuture<StepResult> future = CompletableFuture
+                        .allOf(deps.toArray(new CompletableFuture[0]))
+                        .thenApplyAsync(ignored -> {
+                            StepResult result = runStep(step, deps, slots);
+                            results.put(step.getName(), result);
+                            if (onStepFinished != null) {
+                                try {
+                                    onStepFinished.accept(result);
+                                } catch (RuntimeException e) {
+                                    e.printStackTrace();
+                                }
+                            }
+                            return result;
+                        }, executor);
+                futures.put(step.getName(), future);
+            }
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+        }
+
+        List<StepResult> ordered = new ArrayList<>();
+        for (CollectionStep step : order) {
+            ordered.add(results.get(step.getName()));
+        }
+        return new CollectionRunReport(ordered, System.nanoTime() - startNanos, concurrency);
+    }
+
+    // Steps that have not started yet are skipped; in-flight requests finish normally
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private StepResult runStep(CollectionStep step, List<CompletableFuture<StepResult>> deps, Semaphore slots) {
+        long readyAt = System.nanoTime() - startNanos;
+        for (CompletableFuture<StepResult> dep : deps) {
+            StepResult depResult = dep.join();
+            if (!depResult.isSucceeded()) {
+                return StepResult.skipped(step.getName(), readyAt, "dependency '" + depResult.getName() + "' did not succeed");
+            }
+        }
+        if (cancelled) {
+            return StepResult.skipped(step.getName(), readyAt, "run cancelled");
+        }
+
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return StepResult.skipped(step.getName(), readyAt, "interrupted");
+        }
+        long startedAt = System.nanoTime() - startNanos;
+        try {
+            // Only what the step's own dependencies extracted, later steps overriding earlier ones
+            Map<String, String> variables = new HashMap<>();
+            for (String ancestor : ancestors.get(step.getName())) {
+                variables.putAll(extracted.getOrDefault(ancestor, Map.of()));
+            }
+            String url = substitute(step.getUrl(), variables);
+            String body = substitute(step.getBody(), variables);
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (Map.Entry<String, String> header : step.getHeaderMap().entrySet()) {
+                headers.put(header.getKey(), substitute(header.getValue(), variables));
+            }
+
+            HttpResponse response = backendService.handleRequest(url, step.getMethod(), headers, body);
+            long finishedAt = System.nanoTime() - startNanos;
+
+            if (response.isError()) {
+                return StepResult.finished(step.getName(), false, response.getStatusCode(), response.getErrorMessage(),
+                        readyAt, startedAt, finishedAt, response.getTiming());
+            }
+            if (response.getStatusCode() >= 400) {
+                return StepResult.finished(step.getName(), false, response.getStatusCode(), "HTTP " + response.getStatusCode(),
+                        readyAt, startedAt, finishedAt, response.getTiming());
+            }
+            Map<String, String> values = new HashMap<>();
+            for (Map.Entry<String, String> rule : step.getExtractRules().entrySet()) {
+                String value = extract(response, rule.getValue());
+                if (value == null) {
+                    return StepResult.finished(step.getName(), false, response.getStatusCode(),
+                            "could not extract '" + rule.getKey() + "' from " + rule.getValue(),
+                            readyAt, startedAt, finishedAt, response.getTiming());
+                }
+                values.put(rule.getKey(), value);
+            }
+            extracted.put(step.getName(), values);
+            return StepResult.finished(step.getName(), true, response.getStatusCode(), null,
+                    readyAt, startedAt, finishedAt, response.getTiming());
+        } catch (RuntimeException e) {
+            return StepResult.finished(step.getName(), false, -1, e.getMessage(),
+                    readyAt, startedAt, System.nanoTime() - startNanos, null);
+        } finally {
+            slots.release();
+        }
+    }
+
+    // Replace {{name}} with the given variables; an unknown name fails the step
+    private static String substitute(String template, Map<String, String> variables) {
+        if (template == null || template.indexOf("{{") < 0) return template;
+        Matcher m = VARIABLE.matcher(template);
+        StringBuilder sb = new StringBuilder();
+        while (m.find()) {
+            String value = variables.get(m.group(1));
+            if (value == null) {
+                throw new IllegalStateException("unresolved variable {{" + m.group(1) + "}}");
+            }
+            m.appendReplacement(sb, Matcher.quoteReplacement(value));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    // Evaluate one extraction source against a response; null when it does not match
+    static String extract(HttpResponse response, String source) {
+        if (source.equals("status")) {
+            return String.valueOf(response.getStatusCode());
+        }
+        if (source.startsWith("header:")) {
+            String name = source.substring("header:".length()).trim();
+            if (response.getHeaders() == null) return null;
+            for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+                if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                    return header.getValue().getFirst();
+                }
+            }
+            return null;
+        }
+        if (source.startsWith("$")) {
+            return extractJsonPath(response.getBody(), source);
+        }
+        return null;
+    }
+
+    // Minimal JSON path: $.field, $.a.b, $.items[0].id, $[2]
+    static String extractJsonPath(String json, String path) {
+        JsonElement current;
+        try {
+            current = JsonParser.parseString(json);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        Matcher m = JSON_PATH_SEGMENT.matcher(path);
+        int pos = 1;
+        while (pos < path.length()) {
+            if (!m.find(pos) || m.start() != pos || current == null) return null;
+            if (m.group(1) != null) {
+                if (!current.isJsonObject()) return null;
+                current = current.getAsJsonObject().get(m.group(1));
+            } else {
+                int index = Integer.parseInt(m.group(2));
+                if (!current.isJsonArray() || index >= current.getAsJsonArray().size()) return null;
+                current = current.getAsJsonArray().get(index);
+            }
+            pos = m.end();
+        }
+        if (current == null || current.isJsonNull()) return null;
+        return current.isJsonPrimitive() ? current.getAsString() : current.toString();
+    }
+}
+
+// Outcome of one step, with times measured from the start of the run
+class StepResult {
+    enum State { SUCCEEDED, FAILED, SKIPPED }
+
+    private final String name;
+    private final State state;
+    private final int statusCode;
+    private final String message;
+    private final long readyNanos, startNanos, endNanos;
+    private final RequestTiming timing;
+
+    private StepResult(String name, State state, int statusCode, String message,
+                       long readyNanos, long startNanos, long endNanos, RequestTiming timing) {
+        this.name = name;
+        this.state = state;
+        this.statusCode = statusCode;
+        this.message = message;
+        this.readyNanos = readyNanos;
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.timing = timing;
+    }
+
+    static StepResult finished(String name, boolean succeeded, int statusCode, String message,
+                               long readyNanos, long startNanos, long endNanos, RequestTiming timing) {
+        return new StepResult(name, succeeded ? State.SUCCEEDED : State.FAILED, statusCode, message,
+                readyNanos, startNanos, endNanos, timing);
+    }
+
+    static StepResult skipped(String name, long readyNanos, String reason) {
+        return new StepResult(name, State.SKIPPED, 0, reason, readyNanos, readyNanos, readyNanos, null);
+    }
+
+    // Getters
+    public String getName() { return name; }
+    public State getState() { return state; }
+    public boolean isSucceeded() { return state == State.SUCCEEDED; }
+    public int getStatusCode() { return statusCode; }
+    public String getMessage() { return message; }
+    public long getReadyNanos() { return readyNanos; }
+    public long getStartNanos() { return startNanos; }
+    public long getEndNanos() { return endNanos; }
+    public long getDurationNanos() { return endNanos - startNanos; }
+    // Time spent waiting for a free concurrency slot after the dependencies were done
+    public long getQueuedNanos() { return startNanos - readyNanos; }
+    public RequestTiming getTiming() { return timing; }
+}
+
+// Per-step timings of a finished run, plus the speedup over running the steps one by one
+class CollectionRunReport {
+    private final List<StepResult> steps;
+    private final long wallNanos;
+    private final int concurrency;
+
+    CollectionRunReport(List<StepResult> steps, long wallNanos, int concurrency) {
+        this.steps = steps;
+        this.wallNanos = wallNanos;
+        this.concurrency = concurrency;
+    }
+
+    public List<StepResult> getSteps() { return steps; }
+    public long getWallNanos() { return wallNanos; }
+
+    // What a sequential run would have taken: the sum of the individual request durations
+    public long getSequentialNanos() {
+        long total = 0;
+        for (StepResult step : steps) total += step.getDurationNanos();
+        return total;
+    }
+
+    public double getSpeedup() {
+        return wallNanos == 0 ? 0 : (double) getSequentialNanos() / wallNanos;
+    }
+
+    public long count(StepResult.State state) {
+        return steps.stream().filter(s -> s.getState() == state).count();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+
+    public String toReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-24s %-10s %6s %10s %10s %12s%n", "Step", "Result", "Status", "Start ms", "Queued ms", "Duration ms"));
+        for (StepResult step : steps) {
+            sb.append(String.format("%-24s %-10s %6s %10s %10s %12s%n",
+                    step.getName().length() > 24 ? step.getName().substring(0, 21) + "..." : step.getName(),
+                    step.getState(),
+                    step.getStatusCode() > 0 ? String.valueOf(step.getStatusCode()) : "-",
+                    millis(step.getStartNanos()), millis(step.getQueuedNanos()), millis(step.getDurationNanos())));
+            if (step.getMessage() != null) {
+                sb.append("    ").append(step.getMessage()).append('\n');
+            }
+        }
+        sb.append('\n');
+        sb.append(String.format("Steps: %d succeeded, %d failed, %d skipped   Concurrency: %d%n",
+                count(StepResult.State.SUCCEEDED), count(StepResult.State.FAILED), count(StepResult.State.SKIPPED), concurrency));
+        sb.append("Wall clock:  ").append(millis(wallNanos)).append(" ms\n");
+        sb.append("Sequential:  ").append(millis(getSequentialNanos())).append(" ms (sum of step durations)\n");
+        sb.append(String.format("Speedup:     %.2fx%n", getSpeedup()));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,114 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CollectionsDAO {
+    public int insert(RequestCollection collection) {
+        String query = "INSERT INTO Collections(Name) VALUES (?);";
+        try (Connection con = DBHandle.connect();
+             PreparedStatement p = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            p.setString(1, collection.getName());
+            p.executeUpdate();
+            try (ResultSet generatedKeys = p.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    return generatedKeys.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    public List<RequestCollection> GetAll() {
+        List<RequestCollection> collections = new ArrayList<>();
+        String query = "SELECT * FROM Collections ORDER BY Name;";
+        try (Connection con = DBHandle.connectReadOnly();
+             Statement s = con.createStatement();
+             ResultSet r = s.executeQuery(query)) {
+            while (r.next()) {
+                collections.add(new RequestCollection(r.getInt("ID"), r.getString("Name"), r.getString("Timestamp")));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return collections;
+    }
+
+    // Steps are removed with the collection (ON DELETE CASCADE)
+    public void Delete(int collectionId) throws SQLException {
+        String query = "DELETE FROM Collections WHERE ID = ?;";
+        try (Connection con = DBHandle.connect();
+             PreparedStatement p = con.prepareStatement(query)) {
+            p.setInt(1, collectionId);
+            if (p.executeUpdate() == 0) {
+                throw new SQLException("No collection found with ID: " + collectionId);
+            }
+        }
+    }
+
+    // New steps go after the existing ones
+    public int insertStep(CollectionStep step) {
+        String query = "INSERT INTO Collection_Steps(Collection_ID, Position, Name, Method, URL, Headers, Body, Depends_On, Extract) " +
+                "VALUES (?, (SELECT COALESCE(MAX(Position), -1) + 1 FROM Collection_Steps WHERE Collection_ID = ?), ?, ?, ?, ?, ?, ?, ?);";
+        try (Connection con = DBHandle.connect();
+             PreparedStatement p = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            p.setInt(1, step.getCollectionID());
+            p.setInt(2, step.getCollectionID());
+            p.setString(3, step.getName());
+            p.setString(4, step.getMethod());
+            p.setString(5, step.getUrl());
+            p.setString(6, step.getHeaders());
+            p.setString(7, step.getBody());
+            p.setString(8, step.getDependsOn());
+            p.setString(9, step.getExtract());
+            p.executeUpdate();
+            try (ResultSet generatedKeys = p.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    return generatedKeys.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    public List<CollectionStep> GetSteps(int collectionId) {
+        List<CollectionStep> steps = new ArrayList<>();
+        String query = "SELECT * FROM Collection_Steps WHERE Collection_ID = ? ORDER BY Position, ID;";
+        try (Connection con = DBHandle.connectReadOnly();
+             PreparedStatement p = con.prepareStatement(query)) {
+            p.setInt(1, collectionId);
+            ResultSet r = p.executeQuery();
+            while (r.next()) {
+                steps.add(new CollectionStep(
+                        r.getInt("ID"),
+                        r.getInt("Collection_ID"),
+                        r.getInt("Position"),
+                        r.getString("Name"),
+                        r.getString("Method"),
+                        r.getString("URL"),
+                        r.getString("Headers"),
+                        r.getString("Body"),
+                        r.getString("Depends_On"),
+                        r.getString("Extract")
+                ));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return steps;
+    }
+
+    public void DeleteStep(int stepId) throws SQLException {
+        String query = "DELETE FROM Collection_Steps WHERE ID = ?;";
+        try (Connection con = DBHandle.connect();
+             PreparedStatement p = con.prepareStatement(query)) {
+            p.setInt(1, stepId);
+            if (p.executeUpdate() == 0) {
+                throw new SQLException("No collection step found with ID: " + stepId);
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tells for each exchange whether it ran on a new connection or one reused
+ * from HttpClient's pool. The client has no public connection events, so:
+ *
+ *  - TLS connections are observed. The client gets a wrapped SSLContext, and
+ *    every new TLS connection creates an SSLEngine for its host and port; an
+ *    exchange that sees one created for its host between sending and the
+ *    response headers paid for the new connection.
+ *  - Cleartext connections are inferred from a model of the client's pool:
+ *    HTTP/1.1 keeps a connection per concurrent exchange and reuses idle ones
+ *    within the keep-alive timeout (jdk.httpclient.keepalive.timeout), HTTP/2
+ *    multiplexes everything over one connection per host.
+ *
+ * For a new connection the setup cost is estimated as the extra time to the
+ * response headers compared to the host's reused exchanges, and recorded as
+ * the connect time.
+ */
+public class ConnectionTracker {
+    private static final long KEEP_ALIVE_NANOS = TimeUnit.SECONDS.toNanos(Long.getLong("jdk.httpclient.keepalive.timeout", 30));
+    // TLS engines nobody claimed (failed handshakes, cancelled exchanges) are forgotten after this
+    private static final long UNCLAIMED_ENGINE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final Map<String, HostPool> hosts = new ConcurrentHashMap<>();
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong tlsHandshakes = new AtomicLong();
+
+    // One exchange, from sending to the end of its body
+    final class Exchange {
+        private final HostPool pool;
+        private final boolean tls;
+        private final long sentNanos = System.nanoTime();
+        private final boolean newIfHttp1;
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private Exchange(HostPool pool, boolean tls, boolean newIfHttp1) {
+            this.pool = pool;
+            this.tls = tls;
+            this.newIfHttp1 = newIfHttp1;
+        }
+    }
+
+    // Called just before the request is handed to the client
+    Exchange begin(URI uri) {
+        HostPool pool = hosts.computeIfAbsent(key(uri), HostPool::new);
+        return new Exchange(pool, "https".equalsIgnoreCase(uri.getScheme()), pool.checkOut());
+    }
+
+    /**
+     * Wrap a body handler so the exchange is classified when its headers
+     * arrive and returned to the pool model when its body ends. Put it
+     * outside RequestTiming.wrap, so the TTFB is known by then.
+     */
+    <T> BodyHandler<T> wrap(Exchange exchange, RequestTiming timing, BodyHandler<T> handler) {
+        return responseInfo -> {
+            BodySubscriber<T> subscriber = handler.apply(responseInfo);
+            classify(exchange, responseInfo.version(), timing);
+            // "Connection: close" means the server will not take another request on it
+            boolean keepAlive = responseInfo.headers().firstValue("Connection")
+                    .map(value -> !value.toLowerCase(Locale.ROOT).contains("close")).orElse(true);
+            // Ended before the body is handed on, so it is settled by the time the caller has the response
+            return new BodySubscriber<T>() {
+                @Override
+                public CompletionStage<T> getBody() {
+                    return subscriber.getBody();
+                }
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscriber.onSubscribe(subscription);
+                }
+
+                @Override
+                public void onNext(List<ByteBuffer> item) {
+                    subscriber.onNext(item);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    end(exchange, false);
+                    subscriber.onError(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    end(exchange, keepAlive);
+                    subscriber.onComplete();
+                }
+            };
+        };
+    }
+
+    // The exchange is over; reusable = the connection went back to the pool. Only the first call counts.
+    void end(Exchange exchange, boolean reusable) {
+        if (exchange.ended.compareAndSet(false, true)) {
+            exchange.pool.checkIn(reusable);
+        }
+    }
+
+    private void classify(Exchange exchange, HttpClient.Version version, RequestTiming timing) {
+        HostPool pool = exchange.pool;
+        boolean isNew;
+        boolean observed = exchange.tls && pool.tlsSeen;
+        if (observed) {
+            isNew = pool.claimEngine(exchange.sentNanos);
+        } else if (version == HttpClient.Version.HTTP_2) {
+            isNew = pool.claimHttp2();
+        } else {
+            isNew = exchange.newIfHttp1;
+        }
+        (isNew ? opened : reused).incrementAndGet();
+        timing.setConnection(isNew, observed);
+        double ttfb = timing.getTtfbMs();
+        if (ttfb >= 0) {
+            double baseline = pool.reusedTtfb(isNew, ttfb);
+            if (isNew && baseline >= 0) timing.setConnectMs(Math.max(0, ttfb - baseline));
+        }
+    }
+
+    private static String key(URI uri) {
+        int port = uri.getPort();
+        if (port < 0) port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        return (uri.getHost() + ":" + port).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * An SSLContext that behaves like the default one but reports every
+     * SSLEngine it creates, i.e. every new TLS connection. Null when the
+     * default context is not available.
+     */
+    SSLContext observingSslContext() {
+        try {
+            SSLContext defaultContext = SSLContext.getDefault();
+            return new SSLContext(new ObservingSpi(defaultContext), defaultContext.getProvider(), defaultContext.getProtocol()) {
+            };
+        } catch (Exception e) {
+            System.err.println("✗ TLS connections cannot be observed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void onEngineCreated(String host, int port) {
+        if (host == null) return;
+        tlsHandshakes.incrementAndGet();
+        hosts.computeIfAbsent((host + ":" + (port < 0 ? 443 : port)).toLowerCase(Locale.ROOT), HostPool::new).engineCreated();
+    }
+
+    public double getReuseRatio() {
+        long total = opened.get() + reused.get();
+        return total == 0 ? 0 : (double) reused.get() / total;
+    }
+
+    public String getStats() {
+        return String.format("Connections: new=%d reused=%d reuseRatio=%.1f%% tlsHandshakes=%d hosts=%d",
+                opened.get(), reused.get(), getReuseRatio() * 100, tlsHandshakes.get(), hosts.size());
+    }
+
+    // What we know about the client's connections to one host
+    private static final class HostPool {
+        private final String host;
+        // HTTP/1.1 model: connections believed open, and how many of them are busy
+        private int open, busy;
+        private long lastUsedNanos;
+        // HTTP/2 model: whether the host's multiplexed connection is believed alive
+        private boolean http2Alive;
+        private long http2LastUsedNanos;
+        // TLS: creation times of engines not yet matched to an exchange
+        private final ArrayDeque<Long> unclaimedEngines = new ArrayDeque<>();
+        private volatile boolean tlsSeen;
+        // Smoothed TTFB of exchanges on reused connections, -1 until there is one
+        private double reusedTtfbMs = -1;
+
+        HostPool(String host) {
+            this.host = host;
+        }
+
+        // An exchange starts; true if the HTTP/1.1 model has no idle connection for it
+        synchronized boolean checkOut() {
+            long now = System.nanoTime();
+            if (now - lastUsedNanos > KEEP_ALIVE_NANOS) open = busy;  // idle connections have timed out
+            busy++;
+            if (open >= busy) return false;
+            open = busy;
+            return true;
+        }
+
+        synchronized void checkIn(boolean reusable) {
+            busy = Math.max(0, busy - 1);
+            if (!reusable) open = Math.max(busy, open - 1);
+            lastUsedNanos = System.nanoTime();
+            http2LastUsedNanos = lastUsedNanos;
+            if (!reusable) http2Alive = false;
+        }
+
+        synchronized boolean claimHttp2() {
+            long now = System.nanoTime();
+            boolean isNew = !http2Alive || now - http2LastUsedNanos > KEEP_ALIVE_NANOS;
+            http2Alive = true;
+            http2LastUsedNanos = now;
+            return isNew;
+        }
+
+        synchronized void engineCreated() {
+            tlsSeen = true;
+            long now = System.nanoTime();
+            unclaimedEngines.add(now);
+            while (!unclaimedEngines.isEmpty() && now - unclaimedEngines.peek() > UNCLAIMED_ENGINE_NANOS) {
+                unclaimedEngines.poll();
+            }
+        }
+
+        // New if an engine was created for this host since the exchange was sent (and nobody claimed it yet)
+        synchronized boolean claimEngine(long sentNanos) {
+            for (Iterator<Long> it = unclaimedEngines.iterator(); it.hasNext(); ) {
+                if (it.next() - sentNanos >= 0) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Feed a reused exchange's TTFB into the baseline; returns the baseline to compare a new one against
+        synchronized double reusedTtfb(boolean isNew, double ttfbMs) {
+            if (!isNew) reusedTtfbMs = reusedTtfbMs < 0 ? ttfbMs : 0.8 * reusedTtfbMs + 0.2 * ttfbMs;
+            return reusedTtfbMs;
+        }
+
+        @Override
+        public String toString() {
+            return host;
+        }
+    }
+
+    // Delegates to the default context; only engine creation is reported
+    private final class ObservingSpi extends SSLContextSpi {
+        private final SSLContext delegate;
+
+        ObservingSpi(SSLContext delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected void engineInit(javax.net.ssl.KeyManager[] km, javax.net.ssl.TrustManager[] tm, SecureRandom sr)
+                throws KeyManagementException {
+            throw new KeyManagementException("The default context is already initialized");
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return delegate.getSocketFactory();
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return delegate.getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            return delegate.createSSLEngine();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            onEngineCreated(host, port);
+            return delegate.createSSLEngine(host, port);
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return delegate.getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return delegate.getClientSessionContext();
+        }
+
+        @Override
+        protected SSLParameters engineGetDefaultSSLParameters() {
+            return delegate.getDefaultSSLParameters();
+        }
+
+        @Override
+        protected SSLParameters engineGetSupportedSSLParameters() {
+            return delegate.getSupportedSSLParameters();
+        }
+    }
+}
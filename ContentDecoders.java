@@ -0,0 +1,384 @@
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Content-Encoding support: the codings we advertise in Accept-Encoding and
+ * the decoders that undo them while the body streams in.
+ *
+ * gzip and deflate are built in. Other codings (e.g. br, which the JDK cannot
+ * decode) can be added with {@link #register}; they are then advertised too.
+ * A response with a coding we do not know is kept as received.
+ */
+public class ContentDecoders {
+    private static final Map<String, Supplier<ContentDecoder>> decoders = new LinkedHashMap<>();
+
+    static {
+        register("gzip", GzipDecoder::new);
+        register("x-gzip", GzipDecoder::new);
+        register("deflate", DeflateDecoder::new);
+    }
+
+    public static synchronized void register(String coding, Supplier<ContentDecoder> decoder) {
+        decoders.put(coding.toLowerCase(Locale.ROOT), decoder);
+    }
+
+    // Value for the Accept-Encoding request header, e.g. "gzip, deflate"
+    public static synchronized String acceptEncoding() {
+        List<String> codings = new ArrayList<>();
+        for (String coding : decoders.keySet()) {
+            if (!coding.startsWith("x-")) codings.add(coding);
+        }
+        return String.join(", ", codings);
+    }
+
+    /**
+     * Decoders for a Content-Encoding header, in the order they have to run
+     * (the reverse of the order the codings were applied). Empty for identity,
+     * null if any coding is unknown.
+     */
+    public static synchronized List<ContentDecoder> chain(String contentEncoding) {
+        if (contentEncoding == null || contentEncoding.isBlank()) return Collections.emptyList();
+        List<ContentDecoder> chain = new ArrayList<>();
+        for (String coding : contentEncoding.split(",")) {
+            coding = coding.trim().toLowerCase(Locale.ROOT);
+            if (coding.isEmpty() || coding.equals("identity")) continue;
+            Supplier<ContentDecoder> decoder = decoders.get(coding);
+            if (decoder == null) return null;
+            chain.add(0, decoder.get());
+        }
+        return chain;
+    }
+
+    /**
+     * Self-check: gzip, zlib and raw deflate bodies fed in chunks of several
+     * sizes, including the split where the last read only ends the stream.
+     */
+    public static void main(String[] args) throws IOException {
+        byte[] body = new byte[200_000];
+        for (int i = 0; i < body.length; i++) body[i] = (byte) ("0123456789abcdef".charAt(i % 16) + i / 4096);
+        boolean ok = true;
+        for (String coding : new String[] {"gzip", "deflate (zlib)", "deflate (raw)"}) {
+            byte[] encoded = encode(coding, body);
+            int trailer = coding.equals("gzip") ? 8 : coding.equals("deflate (zlib)") ? 4 : 0;
+            List<int[]> splits = new ArrayList<>();
+            splits.add(new int[] {encoded.length});
+            splits.add(new int[] {encoded.length - Math.max(trailer, 1)});  // then just the trailer / last byte
+            splits.add(new int[] {1});
+            splits.add(new int[] {7});
+            for (int[] split : splits) {
+                String result;
+                try {
+                    result = java.util.Arrays.equals(body, decode(coding.split(" ")[0], encoded, split[0])) ? null : "wrong output";
+                } catch (IOException e) {
+                    result = e.getMessage();
+                }
+                ok &= result == null;
+                System.out.println((result == null ? "✓ " : "✗ ") + coding + ", first read " + split[0] + " bytes"
+                        + (result == null ? "" : ": " + result));
+            }
+        }
+        if (!ok) System.exit(1);
+    }
+
+    private static byte[] encode(String coding, byte[] body) throws IOException {
+        java.io.ByteArrayOutputStream encoded = new java.io.ByteArrayOutputStream();
+        try (java.io.OutputStream out = coding.equals("gzip") ? new java.util.zip.GZIPOutputStream(encoded)
+                : new java.util.zip.DeflaterOutputStream(encoded, new java.util.zip.Deflater(6, coding.contains("raw")))) {
+            out.write(body);
+        }
+        return encoded.toByteArray();
+    }
+
+    // Decode with a first read of firstRead bytes and the rest in reads of the same size (the whole rest if larger)
+    private static byte[] decode(String coding, byte[] encoded, int firstRead) throws IOException {
+        java.io.ByteArrayOutputStream decoded = new java.io.ByteArrayOutputStream();
+        Consumer<ByteBuffer> output = buffer -> decoded.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        ContentDecoder decoder = chain(coding).get(0);
+        int step = firstRead < 64 ? firstRead : encoded.length;
+        for (int at = 0; at < encoded.length; at += at == 0 ? firstRead : step) {
+            int length = Math.min(at == 0 ? firstRead : step, encoded.length - at);
+            decoder.decode(ByteBuffer.wrap(encoded, at, length), output);
+        }
+        decoder.finish(output);
+        return decoded.toByteArray();
+    }
+}
+
+/**
+ * Streaming decoder for one content coding. Input arrives in chunks of any
+ * size; decoded bytes are handed to the output as they become available.
+ */
+interface ContentDecoder {
+    String getName();
+
+    void decode(ByteBuffer input, Consumer<ByteBuffer> output) throws IOException;
+
+    // End of input: flush what is left and fail if the stream was cut short
+    void finish(Consumer<ByteBuffer> output) throws IOException;
+}
+
+// Shared inflate loop for gzip and deflate
+abstract class InflatingDecoder implements ContentDecoder {
+    private static final int OUTPUT_CHUNK = 64 * 1024;
+    protected Inflater inflater;
+
+    // Inflate as much of the input as belongs to the current stream; true once it has ended
+    protected boolean inflate(ByteBuffer input, Consumer<ByteBuffer> output) throws IOException {
+        inflater.setInput(input);
+        try {
+            while (!inflater.finished()) {
+                byte[] chunk = new byte[OUTPUT_CHUNK];
+                int n = inflater.inflate(chunk);
+                if (n > 0) {
+                    afterInflate(chunk, n);
+                    output.accept(ByteBuffer.wrap(chunk, 0, n));
+                } else if (inflater.finished()) {
+                    break;  // these bytes only ended the stream, e.g. the zlib trailer or the final empty block
+                } else if (inflater.needsInput()) {
+                    return false;
+                } else if (inflater.needsDictionary()) {
+                    throw new ZipException(getName() + ": preset dictionaries are not supported");
+                }
+            }
+            return true;
+        } catch (DataFormatException e) {
+            throw new ZipException(getName() + ": " + e.getMessage());
+        }
+    }
+
+    protected void afterInflate(byte[] chunk, int length) {
+    }
+}
+
+/**
+ * gzip (RFC 1952): header, raw deflate data, CRC-32 and length trailer.
+ * Several members in a row are decoded one after the other.
+ */
+class GzipDecoder extends InflatingDecoder {
+    private static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+
+    private enum State { HEADER, BODY, TRAILER }
+
+    private State state = State.HEADER;
+    private final java.io.ByteArrayOutputStream pending = new java.io.ByteArrayOutputStream();  // header or trailer so far
+    private final CRC32 crc = new CRC32();
+    private long memberSize;
+
+    @Override
+    public String getName() {
+        return "gzip";
+    }
+
+    @Override
+    public void decode(ByteBuffer input, Consumer<ByteBuffer> output) throws IOException {
+        while (input.hasRemaining()) {
+            switch (state) {
+                case HEADER -> {
+                    pending.write(input.get());
+                    int headerLength = headerLength(pending.toByteArray());
+                    if (headerLength > 0) {
+                        pending.reset();
+                        inflater = new Inflater(true);
+                        crc.reset();
+                        memberSize = 0;
+                        state = State.BODY;
+                    }
+                }
+                case BODY -> {
+                    if (inflate(input, output)) {
+                        inflater.end();
+                        state = State.TRAILER;
+                    }
+                }
+                case TRAILER -> {
+                    pending.write(input.get());
+                    if (pending.size() == 8) {
+                        checkTrailer(pending.toByteArray());
+                        pending.reset();
+                        state = State.HEADER;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void afterInflate(byte[] chunk, int length) {
+        crc.update(chunk, 0, length);
+        memberSize += length;
+    }
+
+    @Override
+    public void finish(Consumer<ByteBuffer> output) throws IOException {
+        if (state != State.HEADER || pending.size() > 0) {
+            if (inflater != null) inflater.end();
+            throw new ZipException("gzip: stream ended early");
+        }
+    }
+
+    // Length of a complete header at the start of bytes, or -1 if more bytes are needed
+    private static int headerLength(byte[] bytes) throws ZipException {
+        if (bytes.length >= 2 && ((bytes[0] & 0xFF) != 0x1F || (bytes[1] & 0xFF) != 0x8B)) {
+            throw new ZipException("gzip: not in gzip format");
+        }
+        if (bytes.length >= 3 && bytes[2] != 8) {
+            throw new ZipException("gzip: unsupported compression method " + bytes[2]);
+        }
+        if (bytes.length < 10) return -1;
+        int flags = bytes[3] & 0xFF;
+        int at = 10;
+        if ((flags & FEXTRA) != 0) {
+            if (bytes.length < at + 2) return -1;
+            at += 2 + ((bytes[at] & 0xFF) | (bytes[at + 1] & 0xFF) << 8);
+        }
+        for (int flag : new int[] {FNAME, FCOMMENT}) {
+            if ((flags & flag) != 0) {
+                while (at < bytes.length && bytes[at] != 0) at++;
+                if (at >= bytes.length) return -1;
+                at++;
+            }
+        }
+        if ((flags & FHCRC) != 0) at += 2;
+        return bytes.length >= at ? at : -1;
+    }
+
+    private void checkTrailer(byte[] trailer) throws ZipException {
+        long expectedCrc = (trailer[0] & 0xFFL) | (trailer[1] & 0xFFL) << 8 | (trailer[2] & 0xFFL) << 16 | (trailer[3] & 0xFFL) << 24;
+        long expectedSize = (trailer[4] & 0xFFL) | (trailer[5] & 0xFFL) << 8 | (trailer[6] & 0xFFL) << 16 | (trailer[7] & 0xFFL) << 24;
+        if (expectedCrc != crc.getValue() || expectedSize != (memberSize & 0xFFFFFFFFL)) {
+            throw new ZipException("gzip: corrupt body (CRC or length mismatch)");
+        }
+    }
+}
+
+/**
+ * deflate: by the spec a zlib stream (RFC 1950), but some servers send raw
+ * deflate data, so the first two bytes decide which one it is.
+ */
+class DeflateDecoder extends InflatingDecoder {
+    private int firstByte = -1;
+    private boolean done;
+
+    @Override
+    public String getName() {
+        return "deflate";
+    }
+
+    @Override
+    public void decode(ByteBuffer input, Consumer<ByteBuffer> output) throws IOException {
+        if (done || !input.hasRemaining()) return;
+        if (inflater == null) {
+            if (firstByte < 0) {
+                firstByte = input.get() & 0xFF;
+                if (!input.hasRemaining()) return;
+            }
+            int secondByte = input.get(input.position()) & 0xFF;
+            boolean zlib = (firstByte & 0x0F) == 8 && ((firstByte << 8) | secondByte) % 31 == 0;
+            inflater = new Inflater(!zlib);
+            inflate(ByteBuffer.wrap(new byte[] {(byte) firstByte}), output);
+        }
+        if (inflate(input, output)) {
+            done = true;
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void finish(Consumer<ByteBuffer> output) throws IOException {
+        if (firstByte < 0) return;  // no body at all
+        if (!done) {
+            if (inflater != null) inflater.end();
+            throw new ZipException("deflate: stream ended early");
+        }
+    }
+}
+
+/**
+ * Runs the body through a decoder chain on its way to the real subscriber,
+ * counting the bytes as they came off the wire.
+ */
+class DecodingBodySubscriber implements BodySubscriber<ResponseBody> {
+    private final List<ContentDecoder> chain;
+    private final String contentEncoding;
+    private final SpoolingBodySubscriber downstream;
+    private Flow.Subscription subscription;
+    private long wireBytes;
+    private boolean failed;
+
+    DecodingBodySubscriber(List<ContentDecoder> chain, String contentEncoding, SpoolingBodySubscriber downstream) {
+        this.chain = chain;
+        this.contentEncoding = contentEncoding;
+        this.downstream = downstream;
+    }
+
+    @Override
+    public CompletionStage<ResponseBody> getBody() {
+        return downstream.getBody();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        downstream.onSubscribe(subscription);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        if (failed) return;
+        for (ByteBuffer buffer : buffers) {
+            wireBytes += buffer.remaining();
+        }
+        try {
+            downstream.onNext(push(buffers, false));
+        } catch (IOException e) {
+            failed = true;
+            subscription.cancel();
+            downstream.onError(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (!failed) downstream.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (failed) return;
+        try {
+            downstream.onNext(push(Collections.emptyList(), true));
+            downstream.setTransfer(contentEncoding, wireBytes);
+            downstream.onComplete();
+        } catch (IOException e) {
+            downstream.onError(e);
+        }
+    }
+
+    // Feed buffers through every decoder in turn; when finishing, each stage flushes into the next
+    private List<ByteBuffer> push(List<ByteBuffer> input, boolean finishing) throws IOException {
+        for (ContentDecoder decoder : chain) {
+            List<ByteBuffer> output = new ArrayList<>();
+            for (ByteBuffer buffer : input) {
+                decoder.decode(buffer, output::add);
+            }
+            if (finishing) decoder.finish(output::add);
+            input = output;
+        }
+        return input;
+    }
+}
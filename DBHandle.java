@@ -1,28 +1,517 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Owns the SQLite connections used by the DAOs.
+ *
+ * SQLite allows a single writer at a time, so the pool keeps exactly one writer
+ * connection plus a small set of reader connections. All connections run in WAL
+ * mode, which lets readers proceed while the writer commits. Connections handed
+ * out by {@link #connect()} and {@link #connectReadOnly()} are returned to the
+ * pool when closed, so callers keep using try-with-resources as before.
+ */
 public class DBHandle {
     private static final String url = "jdbc:sqlite:oop.db";
 
+    private static final int READER_COUNT = Integer.getInteger("creo.db.readers", 4);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("creo.db.statementCache", 32);
+    private static final long BORROW_TIMEOUT_MS = Long.getLong("creo.db.borrowTimeoutMs", 10_000);
+    private static final long MAX_LIFETIME_MS = Long.getLong("creo.db.maxLifetimeMs", TimeUnit.MINUTES.toMillis(30));
+
+    private static final Semaphore writerLock = new Semaphore(1, true);
+    private static PooledConnection writer;
+    private static final BlockingQueue<PooledConnection> idleReaders = new ArrayBlockingQueue<>(READER_COUNT);
+    private static final Semaphore readerPermits = new Semaphore(READER_COUNT, true);
+    private static final List<PooledConnection> allConnections = new ArrayList<>();
+    private static final AtomicBoolean shuttingDown = new AtomicBoolean(false);
+    private static volatile boolean shutdown = false;
+    private static volatile boolean fullTextAvailable = false;
+    private static final List<Runnable> shutdownTasks = new ArrayList<>();
+
+    // Pool statistics
+    private static final AtomicLong physicalOpens = new AtomicLong();
+    private static final AtomicLong physicalCloses = new AtomicLong();
+    private static final AtomicLong writerBorrows = new AtomicLong();
+    private static final AtomicLong readerBorrows = new AtomicLong();
+    private static final AtomicLong borrowWaitNanos = new AtomicLong();
+    private static final AtomicLong statementCacheHits = new AtomicLong();
+    private static final AtomicLong statementCacheMisses = new AtomicLong();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DBHandle::shutdown, "db-pool-shutdown"));
+    }
+
+    // Borrow the writer connection. Only one caller can hold it at a time.
     public static Connection connect() {
-        Connection con = null;
+        long start = System.nanoTime();
         try {
-            con = DriverManager.getConnection(url);
+            if (shutdown || !writerLock.tryAcquire(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                System.out.println("Error connecting to database: writer connection unavailable");
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        borrowWaitNanos.addAndGet(System.nanoTime() - start);
+        writerBorrows.incrementAndGet();
+        try {
+            synchronized (DBHandle.class) {
+                if (writer != null && writer.isExpired()) {
+                    retire(writer);
+                    writer = null;
+                }
+                if (writer == null) {
+                    writer = open(false);
+                }
+            }
+            return writer.lease(writerLock::release);
         } catch (SQLException e) {
+            writerLock.release();
             System.out.println("Error connecting to database: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Borrow one of the reader connections. Use this for SELECT-only work.
+    public static Connection connectReadOnly() {
+        long start = System.nanoTime();
+        try {
+            if (shutdown || !readerPermits.tryAcquire(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                System.out.println("Error connecting to database: no reader connection available");
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        borrowWaitNanos.addAndGet(System.nanoTime() - start);
+        readerBorrows.incrementAndGet();
+        try {
+            PooledConnection reader = idleReaders.poll();
+            if (reader != null && reader.isExpired()) {
+                retire(reader);
+                reader = null;
+            }
+            if (reader == null) {
+                reader = open(true);
+            }
+            PooledConnection leased = reader;
+            return reader.lease(() -> {
+                idleReaders.offer(leased);
+                readerPermits.release();
+            });
+        } catch (SQLException e) {
+            readerPermits.release();
+            System.out.println("Error connecting to database: " + e.getMessage());
+            return null;
         }
-        return con;
     }
 
     public static void Initialize() {
         try (Connection con = connect(); Statement s = con.createStatement()) {
-            s.execute("PRAGMA foreign_keys=ON;");
             s.execute("CREATE TABLE IF NOT EXISTS Requests (ID INTEGER PRIMARY KEY, Method TEXT, URL TEXT, Headers TEXT, Body TEXT, Timestamp DATETIME DEFAULT current_timestamp);");
-            s.execute("CREATE TABLE IF NOT EXISTS Responses (ID INTEGER PRIMARY KEY, Request_ID INTEGER, Status_Code INTEGER, Headers TEXT, Body TEXT, Content_Type TEXT, Timestamp DATETIME DEFAULT current_timestamp, FOREIGN KEY(Request_ID) REFERENCES Requests(ID));");
+            s.execute("CREATE TABLE IF NOT EXISTS Responses (ID INTEGER PRIMARY KEY, Request_ID INTEGER, Status_Code INTEGER, Headers TEXT, Body TEXT, Content_Type TEXT, Timestamp DATETIME DEFAULT current_timestamp, Total_Ms REAL, Queue_Ms REAL, Connect_Ms REAL, TTFB_Ms REAL, Download_Ms REAL, Body_Hash TEXT, FOREIGN KEY(Request_ID) REFERENCES Requests(ID));");
+            // Timing breakdown columns for databases created before they existed
+            for (String column : new String[] {"Total_Ms", "Queue_Ms", "Connect_Ms", "TTFB_Ms", "Download_Ms"}) {
+                addColumnIfMissing(s, "Responses", column, "REAL");
+            }
+            // Response bodies live in Bodies, once per distinct content (see BodyStore)
+            s.execute("CREATE TABLE IF NOT EXISTS Bodies (Hash TEXT PRIMARY KEY, Codec TEXT NOT NULL, Size INTEGER NOT NULL, Stored_Size INTEGER NOT NULL, Data BLOB NOT NULL);");
+            // Bodies too large for memory, deflated in 1 MB pieces (codec 'deflate-segments')
+            s.execute("CREATE TABLE IF NOT EXISTS Body_Segments (Hash TEXT NOT NULL, Seq INTEGER NOT NULL, Data BLOB NOT NULL, " +
+                    "PRIMARY KEY(Hash, Seq), FOREIGN KEY(Hash) REFERENCES Bodies(Hash) ON DELETE CASCADE) WITHOUT ROWID;");
+            addColumnIfMissing(s, "Responses", "Body_Hash", "TEXT");
+            s.execute("CREATE INDEX IF NOT EXISTS idx_responses_body_hash ON Responses(Body_Hash);");
+            // 1 when Bodies holds the raw bytes of a binary body rather than UTF-8 text
+            addColumnIfMissing(s, "Responses", "Body_Binary", "INTEGER NOT NULL DEFAULT 0");
+            // Decoded body size and bytes on the wire (smaller when the body came gzip/deflate encoded)
+            addColumnIfMissing(s, "Responses", "Body_Size", "INTEGER");
+            addColumnIfMissing(s, "Responses", "Wire_Size", "INTEGER");
+            // Negotiated protocol and whether the exchange opened a connection ('new') or reused one ('reused');
+            // Connection_Observed is 0 when the connection was inferred rather than seen (see ConnectionTracker)
+            addColumnIfMissing(s, "Responses", "Protocol", "TEXT");
+            addColumnIfMissing(s, "Responses", "Connection", "TEXT");
+            addColumnIfMissing(s, "Responses", "Connection_Observed", "INTEGER");
+            // Headers as rows with interned names (see HeaderStore); the Headers columns only hold legacy blobs
+            s.execute("CREATE TABLE IF NOT EXISTS Header_Names (ID INTEGER PRIMARY KEY, Name TEXT NOT NULL UNIQUE);");
+            s.execute("CREATE TABLE IF NOT EXISTS Request_Headers (Request_ID INTEGER NOT NULL, Position INTEGER NOT NULL, Name_ID INTEGER NOT NULL, Value TEXT NOT NULL, " +
+                    "PRIMARY KEY(Request_ID, Position), FOREIGN KEY(Request_ID) REFERENCES Requests(ID) ON DELETE CASCADE, FOREIGN KEY(Name_ID) REFERENCES Header_Names(ID)) WITHOUT ROWID;");
+            s.execute("CREATE TABLE IF NOT EXISTS Response_Headers (Response_ID INTEGER NOT NULL, Position INTEGER NOT NULL, Name_ID INTEGER NOT NULL, Value TEXT NOT NULL, " +
+                    "PRIMARY KEY(Response_ID, Position), FOREIGN KEY(Response_ID) REFERENCES Responses(ID) ON DELETE CASCADE, FOREIGN KEY(Name_ID) REFERENCES Header_Names(ID)) WITHOUT ROWID;");
+            // Responses by header value, e.g. every X-Cache: MISS
+            s.execute("CREATE INDEX IF NOT EXISTS idx_response_headers_name_value ON Response_Headers(Name_ID, Value);");
+            // Disk tier of HttpResponseCache; bodies are shared with Responses through Bodies
+            s.execute("CREATE TABLE IF NOT EXISTS Http_Cache (Cache_Key TEXT PRIMARY KEY, Entry TEXT NOT NULL, Body_Hash TEXT, Size INTEGER NOT NULL, Last_Access INTEGER NOT NULL);");
+            s.execute("CREATE INDEX IF NOT EXISTS idx_http_cache_last_access ON Http_Cache(Last_Access);");
+            s.execute("DROP TRIGGER IF EXISTS trg_responses_body_release;");
+            s.execute("CREATE TRIGGER trg_responses_body_release AFTER DELETE ON Responses WHEN old.Body_Hash IS NOT NULL BEGIN " + RELEASE_OLD_BODY + " END;");
+            s.execute("CREATE TRIGGER IF NOT EXISTS trg_http_cache_body_release AFTER DELETE ON Http_Cache WHEN old.Body_Hash IS NOT NULL BEGIN " + RELEASE_OLD_BODY + " END;");
+            s.execute("CREATE TRIGGER IF NOT EXISTS trg_http_cache_body_replace AFTER UPDATE OF Body_Hash ON Http_Cache WHEN old.Body_Hash IS NOT NULL BEGIN " + RELEASE_OLD_BODY + " END;");
+            // Keyset pagination of history walks this index instead of sorting the table
+            s.execute("CREATE INDEX IF NOT EXISTS idx_requests_timestamp_id ON Requests(Timestamp DESC, ID DESC);");
+            s.execute("CREATE INDEX IF NOT EXISTS idx_responses_request_id ON Responses(Request_ID);");
+            s.execute("CREATE TABLE IF NOT EXISTS Collections (ID INTEGER PRIMARY KEY, Name TEXT NOT NULL, Timestamp DATETIME DEFAULT current_timestamp);");
+            s.execute("CREATE TABLE IF NOT EXISTS Collection_Steps (ID INTEGER PRIMARY KEY, Collection_ID INTEGER NOT NULL, Position INTEGER, Name TEXT NOT NULL, Method TEXT, URL TEXT, Headers TEXT, Body TEXT, Depends_On TEXT, Extract TEXT, FOREIGN KEY(Collection_ID) REFERENCES Collections(ID) ON DELETE CASCADE);");
+            s.execute("CREATE INDEX IF NOT EXISTS idx_collection_steps_collection ON Collection_Steps(Collection_ID, Position);");
+            s.execute("CREATE TABLE IF NOT EXISTS AI_Summaries (Cache_Key TEXT PRIMARY KEY, Model TEXT, Summary TEXT NOT NULL, Tokens INTEGER DEFAULT 0, Hits INTEGER DEFAULT 0, Created DATETIME DEFAULT current_timestamp, Last_Used DATETIME DEFAULT current_timestamp);");
+            initializeFullTextIndex(s);
         } catch (SQLException e) {
             System.out.println("Database initialization error: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Delete old.Body_Hash from Bodies once neither a response nor a cache entry uses it
+    private static final String RELEASE_OLD_BODY = "DELETE FROM Bodies WHERE Hash = old.Body_Hash " +
+            "AND NOT EXISTS (SELECT 1 FROM Responses WHERE Body_Hash = old.Body_Hash) " +
+            "AND NOT EXISTS (SELECT 1 FROM Http_Cache WHERE Body_Hash = old.Body_Hash);";
+
+    private static void addColumnIfMissing(Statement s, String table, String column, String type) throws SQLException {
+        try (ResultSet r = s.executeQuery("PRAGMA table_info(" + table + ");")) {
+            while (r.next()) {
+                if (column.equalsIgnoreCase(r.getString("name"))) return;
+            }
+        }
+        s.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type + ";");
+    }
+
+    // Searchable header text of request r: the legacy blob or its header rows
+    static final String REQUEST_HEADERS_TEXT = "COALESCE(r.Headers, " + HeaderStore.linesSql(HeaderStore.Owner.REQUEST, "r.ID") + ")";
+
+    public static boolean isFullTextAvailable() {
+        return fullTextAvailable;
+    }
+
+    /**
+     * Full-text index over each request and its response, keyed by request ID.
+     * The table is contentless (the text already lives in Requests/Responses) and is
+     * kept in sync by triggers, except for new responses: their bodies are stored
+     * compressed, so ResponsesDAO indexes them itself. When a response arrives the
+     * row is rebuilt, since contentless FTS5 rows can only be deleted and
+     * re-inserted, not updated.
+     */
+    private static void initializeFullTextIndex(Statement s) {
+        try {
+            boolean exists;
+            try (ResultSet r = s.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'HistorySearch';")) {
+                exists = r.next();
+            }
+            s.execute("CREATE VIRTUAL TABLE IF NOT EXISTS HistorySearch USING fts5(Method, URL, Request_Headers, Request_Body, Response_Headers, Response_Body, content='', contentless_delete=1, tokenize='unicode61 remove_diacritics 2');");
+            // Request headers are written after the request row, so RequestsDAO indexes new requests itself
+            s.execute("DROP TRIGGER IF EXISTS trg_requests_search_insert;");
+            s.execute("CREATE TRIGGER IF NOT EXISTS trg_requests_search_delete AFTER DELETE ON Requests BEGIN " +
+                    "DELETE FROM HistorySearch WHERE rowid = old.ID; END;");
+            s.execute("DROP TRIGGER IF EXISTS trg_responses_search_insert;");
+            s.execute("DROP TRIGGER IF EXISTS trg_responses_search_delete;");
+            s.execute("CREATE TRIGGER trg_responses_search_delete AFTER DELETE ON Responses WHEN old.Request_ID IS NOT NULL BEGIN " +
+                    "DELETE FROM HistorySearch WHERE rowid = old.Request_ID; " +
+                    "INSERT INTO HistorySearch(rowid, Method, URL, Request_Headers, Request_Body) " +
+                    "SELECT r.ID, r.Method, r.URL, " + REQUEST_HEADERS_TEXT + ", r.Body FROM Requests r WHERE r.ID = old.Request_ID; END;");
+            if (!exists) {
+                // Index history recorded before the search table existed
+                s.execute("INSERT INTO HistorySearch(rowid, Method, URL, Request_Headers, Request_Body, Response_Headers, Response_Body) " +
+                        "SELECT r.ID, r.Method, r.URL, " + REQUEST_HEADERS_TEXT + ", r.Body, " +
+                        "(SELECT COALESCE(s.Headers, " + HeaderStore.linesSql(HeaderStore.Owner.RESPONSE, "s.ID") + ") FROM Responses s WHERE s.Request_ID = r.ID ORDER BY s.ID DESC LIMIT 1), " +
+                        "(SELECT Body FROM Responses WHERE Request_ID = r.ID ORDER BY ID DESC LIMIT 1) FROM Requests r;");
+            }
+            fullTextAvailable = true;
+        } catch (SQLException e) {
+            System.out.println("Full-text search unavailable, falling back to URL search: " + e.getMessage());
+        }
+    }
+
+    // Snapshot of the pool counters, e.g. for logging or a status bar
+    public static String getPoolStats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("DB pool: opened=").append(physicalOpens.get())
+                .append(" closed=").append(physicalCloses.get())
+                .append(" writerBorrows=").append(writerBorrows.get())
+                .append(" readerBorrows=").append(readerBorrows.get())
+                .append(" idleReaders=").append(idleReaders.size()).append('/').append(READER_COUNT)
+                .append(" avgWaitMs=").append(String.format("%.3f", averageWaitMillis()))
+                .append(" stmtCacheHits=").append(statementCacheHits.get())
+                .append(" stmtCacheMisses=").append(statementCacheMisses.get());
+        synchronized (allConnections) {
+            for (PooledConnection pc : allConnections) {
+                sb.append("\n  ").append(pc.describe());
+            }
+        }
+        return sb.toString();
+    }
+
+    // Register work that must still reach the database before the pool closes
+    public static void addShutdownTask(Runnable task) {
+        synchronized (shutdownTasks) {
+            shutdownTasks.add(task);
+        }
+    }
+
+    // Close every physical connection. Called from the shutdown hook.
+    public static void shutdown() {
+        if (!shuttingDown.compareAndSet(false, true)) return;
+        List<Runnable> tasks;
+        synchronized (shutdownTasks) {
+            tasks = new ArrayList<>(shutdownTasks);
+        }
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                System.out.println("Error running database shutdown task: " + e.getMessage());
+            }
+        }
+        shutdown = true;
+        List<PooledConnection> toClose;
+        synchronized (allConnections) {
+            toClose = new ArrayList<>(allConnections);
+        }
+        for (PooledConnection pc : toClose) {
+            retire(pc);
+        }
+    }
+
+    private static double averageWaitMillis() {
+        long borrows = writerBorrows.get() + readerBorrows.get();
+        return borrows == 0 ? 0 : borrowWaitNanos.get() / 1_000_000.0 / borrows;
+    }
+
+    private static PooledConnection open(boolean readOnly) throws SQLException {
+        Connection con = DriverManager.getConnection(url);
+        try (Statement s = con.createStatement()) {
+            s.execute("PRAGMA journal_mode=WAL;");
+            // NORMAL is durable across application crashes in WAL mode and skips the fsync per commit
+            s.execute("PRAGMA synchronous=NORMAL;");
+            s.execute("PRAGMA busy_timeout=5000;");
+            s.execute("PRAGMA foreign_keys=ON;");
+            s.execute("PRAGMA temp_store=MEMORY;");
+            if (readOnly) {
+                s.execute("PRAGMA query_only=ON;");
+            }
+        }
+        PooledConnection pc = new PooledConnection(con, readOnly ? "reader" : "writer");
+        physicalOpens.incrementAndGet();
+        synchronized (allConnections) {
+            allConnections.add(pc);
+        }
+        return pc;
+    }
+
+    private static void retire(PooledConnection pc) {
+        synchronized (allConnections) {
+            if (!allConnections.remove(pc)) return;
+        }
+        pc.closePhysical();
+        physicalCloses.incrementAndGet();
+    }
+
+    /**
+     * A physical connection plus its prepared-statement cache. Callers only ever
+     * see a proxy of it, whose close() hands the connection back to the pool.
+     */
+    private static class PooledConnection {
+        private final Connection physical;
+        private final String role;
+        private final long createdAt = System.currentTimeMillis();
+        private final AtomicLong leases = new AtomicLong();
+        private final Map<String, CachedStatement> statements =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                        if (size() > STATEMENT_CACHE_SIZE && !eldest.getValue().inUse) {
+                            eldest.getValue().closePhysical();
+                            return true;
+                        }
+                        return false;
+                    }
+                };
+
+        PooledConnection(Connection physical, String role) {
+            this.physical = physical;
+            this.role = role;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - createdAt > MAX_LIFETIME_MS;
+        }
+
+        String describe() {
+            long ageSeconds = (System.currentTimeMillis() - createdAt) / 1000;
+            return role + " age=" + ageSeconds + "s leases=" + leases.get() + " cachedStatements=" + statements.size();
+        }
+
+        Connection lease(Runnable onRelease) {
+            leases.incrementAndGet();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new LeaseHandler(this, onRelease));
+        }
+
+        PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+            String key = autoGeneratedKeys + ":" + sql;
+            CachedStatement cached = statements.get(key);
+            if (cached != null && !cached.inUse) {
+                statementCacheHits.incrementAndGet();
+            } else if (cached == null) {
+                statementCacheMisses.incrementAndGet();
+                cached = new CachedStatement(physical.prepareStatement(sql, autoGeneratedKeys));
+                statements.put(key, cached);
+            } else {
+                // Same SQL prepared twice within one lease: hand out an uncached statement
+                statementCacheMisses.incrementAndGet();
+                return physical.prepareStatement(sql, autoGeneratedKeys);
+            }
+            cached.inUse = true;
+            return cached.proxy();
+        }
+
+        // Undo anything a caller left behind before the connection is reused
+        void reset() {
+            try {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                System.out.println("Error resetting pooled connection: " + e.getMessage());
+            }
+        }
+
+        void closePhysical() {
+            for (CachedStatement cs : statements.values()) {
+                cs.closePhysical();
+            }
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing database connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private static class LeaseHandler implements InvocationHandler {
+        private final PooledConnection owner;
+        private final Runnable onRelease;
+        private boolean released = false;
+
+        LeaseHandler(PooledConnection owner, Runnable onRelease) {
+            this.owner = owner;
+            this.onRelease = onRelease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (!released) {
+                    released = true;
+                    owner.reset();
+                    onRelease.run();
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return released || owner.physical.isClosed();
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (name.equals("prepareStatement") && args != null && args[0] instanceof String sql) {
+                if (args.length == 1) {
+                    return owner.prepare(sql, Statement.NO_GENERATED_KEYS);
+                }
+                if (args.length == 2 && args[1] instanceof Integer keys) {
+                    return owner.prepare(sql, keys);
+                }
+            }
+            try {
+                return method.invoke(owner.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * A prepared statement that stays open between leases. close() only resets
+     * it; the physical statement is closed on eviction or pool shutdown. Each
+     * hand-out gets its own proxy tagged with a generation, so a proxy kept
+     * after close() cannot release or use the statement once it is handed out again.
+     */
+    private static class CachedStatement {
+        private final PreparedStatement physical;
+        private ResultSet lastResult;
+        private boolean inUse;
+        private long generation;
+
+        CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+        }
+
+        PreparedStatement proxy() {
+            long handedOut = ++generation;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> invoke(handedOut, method, args));
+        }
+
+        private Object invoke(long handedOut, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            boolean current = inUse && handedOut == generation;
+            if (name.equals("close")) {
+                if (current) release();
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return !current;
+            }
+            if (!current) {
+                throw new SQLException("Statement has already been closed");
+            }
+            try {
+                Object result = method.invoke(physical, args);
+                if (result instanceof ResultSet rs && name.equals("executeQuery")) {
+                    lastResult = rs;
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void release() throws SQLException {
+            if (!inUse) return;
+            inUse = false;
+            // An unclosed result set would keep a read transaction open and stall WAL checkpoints
+            if (lastResult != null) {
+                lastResult.close();
+                lastResult = null;
+            }
+            physical.clearParameters();
+        }
+
+        void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing cached statement: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in for the chat-completions endpoint, for working on the AI
+ * summary offline. Streaming requests get a canned summary as server-sent
+ * events, a few words per chunk; other requests get it as one JSON response.
+ *
+ * Usage: java -cp "out/production/Creo:lib/*" FakeLlmServer [port] [chunkDelayMs]
+ * then start the UI with -Dcreo.ai.endpoint=http://localhost:8089/openai/v1/chat/completions
+ */
+public class FakeLlmServer {
+    static final String CANNED_SUMMARY = """
+            ## Summary
+
+            The API returned **200 OK** with a JSON body.
+
+            - **Resource:** a single post object
+            - **Fields:** `userId`, `id`, `title`, `body`
+            - **Notable:** the title and body are placeholder Latin text
+
+            | Header | Value |
+            |--------|-------|
+            | Content-Type | application/json |
+
+            Nothing in the response indicates an error.
+            """;
+
+    private final HttpServer server;
+    private final long chunkDelayMs;
+    private final Gson gson = new Gson();
+
+    public FakeLlmServer(int port, long chunkDelayMs) throws IOException {
+        this.chunkDelayMs = chunkDelayMs;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.server.createContext("/openai/v1/chat/completions", this::handle);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        boolean stream = request.replace(" ", "").contains("\"stream\":true");
+        try (exchange) {
+            if (!stream) {
+                byte[] body = gson.toJson(Map.of(
+                        "object", "chat.completion",
+                        "choices", List.of(Map.of("index", 0, "finish_reason", "stop",
+                                "message", Map.of("role", "assistant", "content", CANNED_SUMMARY))),
+                        "usage", usage())).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                return;
+            }
+
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            // Keep whitespace with the word before it so the chunks concatenate to the original text
+            String[] pieces = CANNED_SUMMARY.split("(?<=\\s)(?=\\S)");
+            for (int i = 0; i < pieces.length; i += 3) {
+                StringBuilder delta = new StringBuilder();
+                for (int j = i; j < Math.min(i + 3, pieces.length); j++) delta.append(pieces[j]);
+                sendEvent(out, gson.toJson(Map.of(
+                        "object", "chat.completion.chunk",
+                        "choices", List.of(Map.of("index", 0, "delta", Map.of("content", delta.toString()))))));
+                sleep();
+            }
+            sendEvent(out, gson.toJson(Map.of(
+                    "object", "chat.completion.chunk",
+                    "choices", List.of(Map.of("index", 0, "delta", Map.of(), "finish_reason", "stop")),
+                    "x_groq", Map.of("usage", usage()))));
+            sendEvent(out, "[DONE]");
+        }
+    }
+
+    private static Map<String, Object> usage() {
+        return Map.of("prompt_tokens", 400, "completion_tokens", 120, "total_tokens", 520);
+    }
+
+    private static void sendEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(chunkDelayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        long delay = args.length > 1 ? Long.parseLong(args[1]) : 40;
+        FakeLlmServer server = new FakeLlmServer(port, delay);
+        server.start();
+        System.out.println("✓ Fake LLM listening on http://localhost:" + server.getPort() + "/openai/v1/chat/completions");
+    }
+}
@@ -15,6 +15,7 @@ class GroqAPIResponse {
     static class Choice {
         int index;
         Message message;
+        Message delta;          // set instead of message in streamed chunks
         String finish_reason;
     }
 
@@ -35,7 +36,18 @@ class GroqAPIResponse {
 
     static class XGroq {
         String id;
+        Usage usage;            // sent with the last streamed chunk
     }
 
+    // Text added by a streamed chunk, or null
+    String deltaContent() {
+        if (choices == null || choices.isEmpty() || choices.getFirst().delta == null) return null;
+        return choices.getFirst().delta.content;
+    }
 
+    // Token usage of a streamed completion; Groq reports it under x_groq, OpenAI at the top level
+    Usage streamUsage() {
+        if (usage != null) return usage;
+        return x_groq != null ? x_groq.usage : null;
+    }
 }
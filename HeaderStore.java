@@ -0,0 +1,233 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Normalized storage for request and response headers.
+ *
+ * Every header is a row of Request_Headers or Response_Headers holding its
+ * position and value, while the name is interned once in Header_Names. That
+ * keeps the repetitive header sets small and makes responses queryable by
+ * header (see ResponsesDAO.FindByHeader). Names keep their spelling and are
+ * matched case-insensitively.
+ *
+ * In memory, Request and Response carry headers as "Name: value" lines, one
+ * line per value, the same format collections use. Rows written before this
+ * store hold a Map.toString() blob in their Headers column instead; those are
+ * parsed on read, and {@code java HeaderStore} moves them into the store.
+ */
+public class HeaderStore {
+    private static final int MIGRATION_BATCH = 200;
+
+    // Who the headers belong to: the child table and its owner column
+    enum Owner {
+        REQUEST("Requests", "Request_Headers", "Request_ID"),
+        RESPONSE("Responses", "Response_Headers", "Response_ID");
+
+        final String ownerTable, table, column;
+
+        Owner(String ownerTable, String table, String column) {
+            this.ownerTable = ownerTable;
+            this.table = table;
+            this.column = column;
+        }
+    }
+
+    // Store the headers ("Name: value" lines) of one request or response on the caller's connection
+    public static void put(Connection con, Owner owner, int ownerId, String headers) throws SQLException {
+        List<String[]> parsed = parse(headers);
+        if (parsed.isEmpty()) return;
+        try (PreparedStatement name = con.prepareStatement("INSERT OR IGNORE INTO Header_Names(Name) VALUES (?);");
+             PreparedStatement row = con.prepareStatement("INSERT INTO " + owner.table + "(" + owner.column + ", Position, Name_ID, Value) " +
+                     "VALUES (?, ?, (SELECT ID FROM Header_Names WHERE Name = ?), ?);")) {
+            for (String[] header : parsed) {
+                name.setString(1, header[0]);
+                name.addBatch();
+            }
+            name.executeBatch();
+            for (int i = 0; i < parsed.size(); i++) {
+                row.setInt(1, ownerId);
+                row.setInt(2, i);
+                row.setString(3, parsed.get(i)[0]);
+                row.setString(4, parsed.get(i)[1]);
+                row.addBatch();
+            }
+            row.executeBatch();
+        }
+    }
+
+    // Load the headers of one request or response as "Name: value" lines; "" if it has none, null on error
+    public static String load(Owner owner, int ownerId) {
+        try (Connection con = DBHandle.connectReadOnly();
+             PreparedStatement p = con.prepareStatement("SELECT n.Name, h.Value FROM " + owner.table + " h " +
+                     "JOIN Header_Names n ON n.ID = h.Name_ID WHERE h." + owner.column + " = ? ORDER BY h.Position;")) {
+            p.setInt(1, ownerId);
+            StringBuilder sb = new StringBuilder();
+            try (ResultSet r = p.executeQuery()) {
+                while (r.next()) {
+                    sb.append(r.getString("Name")).append(": ").append(r.getString("Value")).append('\n');
+                }
+            }
+            return sb.toString();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    // SQL expression with the "Name: value" lines of the owner whose ID is ownerIdExpression, e.g. for the search index
+    static String linesSql(Owner owner, String ownerIdExpression) {
+        return "(SELECT group_concat(n.Name || ': ' || h.Value, char(10)) FROM " + owner.table + " h " +
+                "JOIN Header_Names n ON n.ID = h.Name_ID WHERE h." + owner.column + " = " + ownerIdExpression + ")";
+    }
+
+    public static String format(Map<String, String> headers) {
+        StringBuilder sb = new StringBuilder();
+        if (headers != null) {
+            headers.forEach((name, value) -> sb.append(name).append(": ").append(value).append('\n'));
+        }
+        return sb.toString();
+    }
+
+    // Response headers: one line per value, so repeated headers such as Set-Cookie stay apart
+    public static String formatMulti(Map<String, List<String>> headers) {
+        StringBuilder sb = new StringBuilder();
+        if (headers != null) {
+            headers.forEach((name, values) -> values.forEach(value -> sb.append(name).append(": ").append(value).append('\n')));
+        }
+        return sb.toString();
+    }
+
+    // "Name: value" lines to {name, value} pairs, in order
+    public static List<String[]> parse(String lines) {
+        List<String[]> headers = new ArrayList<>();
+        if (lines == null) return headers;
+        for (String line : lines.split("\\R")) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && !line.substring(0, colon).isBlank()) {
+                headers.add(new String[] {line.substring(0, colon).trim(), line.substring(colon + 1).trim()});
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Best-effort conversion of a legacy Map.toString() blob, e.g.
+     * "{Accept=text/html, content-type=[application/json]}", to "Name: value"
+     * lines. Entries are split at ", " followed by a header name and "=" outside
+     * brackets; a value that itself contains such a sequence cannot be told apart.
+     */
+    static String fromLegacy(String blob) {
+        if (blob == null) return null;
+        String text = blob.trim();
+        if (text.startsWith("{") && text.endsWith("}")) text = text.substring(1, text.length() - 1);
+        StringBuilder sb = new StringBuilder();
+        int depth = 0, start = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ',';
+            if (c == '[') depth++;
+            else if (c == ']') depth = Math.max(0, depth - 1);
+            else if (c == ',' && depth == 0 && (i == text.length() || startsEntry(text, i + 1))) {
+                appendLegacyEntry(sb, text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean startsEntry(String text, int from) {
+        int i = from;
+        while (i < text.length() && text.charAt(i) == ' ') i++;
+        int nameStart = i;
+        while (i < text.length() && isTokenChar(text.charAt(i))) i++;
+        return i > nameStart && i < text.length() && text.charAt(i) == '=';
+    }
+
+    private static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c) || "!#$%&'*+-.^_`|~".indexOf(c) >= 0;
+    }
+
+    private static void appendLegacyEntry(StringBuilder sb, String entry) {
+        int eq = entry.indexOf('=');
+        if (eq <= 0) return;
+        String name = entry.substring(0, eq).trim();
+        String value = entry.substring(eq + 1).trim();
+        // Response headers were Map<String, List<String>>; their list brackets are not part of the value
+        if (value.startsWith("[") && value.endsWith("]")) value = value.substring(1, value.length() - 1);
+        if (!name.isEmpty()) sb.append(name).append(": ").append(value).append('\n');
+    }
+
+    /**
+     * Move headers still stored as blobs in Requests.Headers and
+     * Responses.Headers into the store, in batches of one transaction each,
+     * then VACUUM so the file actually shrinks. Returns the rows migrated.
+     */
+    public static long migrateLegacyHeaders() throws SQLException {
+        long migrated = 0;
+        for (Owner owner : Owner.values()) {
+            while (true) {
+                int batch = 0;
+                try (Connection con = DBHandle.connect()) {
+                    if (con == null) throw new SQLException("No database connection");
+                    con.setAutoCommit(false);
+                    try (PreparedStatement select = con.prepareStatement(
+                                 "SELECT ID, Headers FROM " + owner.ownerTable + " WHERE Headers IS NOT NULL LIMIT " + MIGRATION_BATCH + ";");
+                         PreparedStatement update = con.prepareStatement(
+                                 "UPDATE " + owner.ownerTable + " SET Headers = NULL WHERE ID = ?;")) {
+                        try (ResultSet r = select.executeQuery()) {
+                            while (r.next()) {
+                                put(con, owner, r.getInt("ID"), fromLegacy(r.getString("Headers")));
+                                update.setInt(1, r.getInt("ID"));
+                                update.addBatch();
+                                batch++;
+                            }
+                        }
+                        update.executeBatch();
+                        con.commit();
+                    } catch (SQLException e) {
+                        con.rollback();
+                        throw e;
+                    } finally {
+                        con.setAutoCommit(true);
+                    }
+                }
+                migrated += batch;
+                if (batch < MIGRATION_BATCH) break;
+            }
+        }
+        if (migrated > 0) {
+            try (Connection con = DBHandle.connect(); Statement s = con.createStatement()) {
+                s.execute("VACUUM;");
+            }
+        }
+        return migrated;
+    }
+
+    // Header rows, distinct names and the bytes their names and values take
+    public static String getStats() {
+        String query = "SELECT (SELECT COUNT(*) FROM Request_Headers) + (SELECT COUNT(*) FROM Response_Headers) AS rows, " +
+                "(SELECT COUNT(*) FROM Header_Names) AS names, " +
+                "(SELECT COALESCE(SUM(LENGTH(CAST(Value AS BLOB))), 0) FROM Request_Headers) + " +
+                "(SELECT COALESCE(SUM(LENGTH(CAST(Value AS BLOB))), 0) FROM Response_Headers) AS value_bytes, " +
+                "(SELECT COALESCE(SUM(LENGTH(CAST(Name AS BLOB))), 0) FROM Header_Names) AS name_bytes;";
+        try (Connection con = DBHandle.connectReadOnly();
+             Statement s = con.createStatement();
+             ResultSet r = s.executeQuery(query)) {
+            if (r.next()) {
+                return String.format("Headers: rows=%d names=%d valueBytes=%d nameBytes=%d",
+                        r.getLong("rows"), r.getLong("names"), r.getLong("value_bytes"), r.getLong("name_bytes"));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return "Headers: n/a";
+    }
+
+    public static void main(String[] args) throws SQLException {
+        DBHandle.Initialize();
+        System.out.println("Migrating header blobs...");
+        System.out.println("Migrated rows: " + migrateLegacyHeaders());
+        System.out.println(getStats());
+    }
+}
@@ -0,0 +1,204 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+
+/**
+ * Hex dump of a response body: offset, 16 bytes in hex, then the same bytes as
+ * ASCII. Rows are computed from the offset, so there is nothing to index; only
+ * the visible rows are read from the body (a byte array or the mapped spill
+ * file, see BodySource) and painted.
+ */
+public class HexViewer extends JComponent implements Scrollable {
+    static final int BYTES_PER_ROW = 16;
+    private static final int ROW_CHARS = 10 + 3 * BYTES_PER_ROW + 1 + 2 + BYTES_PER_ROW + 1;
+    private static final int MAX_COPY_ROWS = 64 * 1024;
+    private static final Color OFFSET_COLOR = Color.GRAY;
+
+    private BodySource source = BodySource.ofBytes(new byte[0]);
+    private int selectionAnchor = -1, selectionEnd = -1;
+
+    public HexViewer() {
+        setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        setOpaque(true);
+        setFocusable(true);
+        setForeground(UIManager.getColor("TextArea.foreground"));
+        setBackground(UIManager.getColor("TextArea.background"));
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                requestFocusInWindow();
+                int row = rowAt(e.getY());
+                if ((e.getModifiersEx() & InputEvent.SHIFT_DOWN_MASK) == 0 || selectionAnchor < 0) {
+                    selectionAnchor = row;
+                }
+                selectionEnd = row;
+                repaint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                selectionEnd = rowAt(e.getY());
+                scrollRectToVisible(new Rectangle(0, e.getY(), 1, 1));
+                repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+
+        int menuMask = GraphicsEnvironment.isHeadless()
+                ? InputEvent.CTRL_DOWN_MASK : Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_C, menuMask), "copy");
+        getActionMap().put("copy", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                copySelection();
+            }
+        });
+    }
+
+    // Show a body without copying it: in-memory bodies as they are, spilled ones mapped from disk
+    public void setBody(ResponseBody body) {
+        BodySource newSource;
+        try {
+            newSource = body == null ? BodySource.ofBytes(new byte[0])
+                    : body.isInMemory() ? BodySource.ofBytes(body.bytes()) : BodySource.ofFile(body.spillFile());
+        } catch (IOException e) {
+            System.err.println("✗ Could not open the body: " + e.getMessage());
+            newSource = BodySource.ofBytes(new byte[0]);
+        }
+        BodySource old = source;
+        source = newSource;
+        selectionAnchor = selectionEnd = -1;
+        try {
+            old.close();
+        } catch (IOException ignored) {
+        }
+        revalidate();
+        repaint();
+        scrollRectToVisible(new Rectangle(0, 0, 1, 1));
+    }
+
+    public int getRowCount() {
+        return (int) Math.min(Integer.MAX_VALUE, (source.size() + BYTES_PER_ROW - 1) / BYTES_PER_ROW);
+    }
+
+    // One row of the dump, e.g. "00000010  7b 22 69 64 ...  |{"id...|"
+    public String rowText(int row) {
+        long offset = (long) row * BYTES_PER_ROW;
+        int length = (int) Math.max(0, Math.min(BYTES_PER_ROW, source.size() - offset));
+        byte[] bytes = new byte[length];
+        source.read(offset, bytes, 0, length);
+
+        StringBuilder line = new StringBuilder(80);
+        line.append(String.format("%08x  ", offset));
+        for (int i = 0; i < BYTES_PER_ROW; i++) {
+            if (i < length) {
+                line.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16)).append(Character.forDigit(bytes[i] & 0xF, 16));
+            } else {
+                line.append("  ");
+            }
+            line.append(i == BYTES_PER_ROW / 2 - 1 ? "  " : " ");
+        }
+        line.append(" |");
+        for (int i = 0; i < length; i++) {
+            int b = bytes[i] & 0xFF;
+            line.append(b >= 0x20 && b < 0x7F ? (char) b : '.');
+        }
+        return line.append('|').toString();
+    }
+
+    private int rowHeight() {
+        return getFontMetrics(getFont()).getHeight();
+    }
+
+    private int rowAt(int y) {
+        return Math.max(0, Math.min(Math.max(0, getRowCount() - 1), y / rowHeight()));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        ((Graphics2D) g).setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        FontMetrics fm = g.getFontMetrics(getFont());
+        g.setFont(getFont());
+        int height = fm.getHeight();
+        int rows = getRowCount();
+        if (rows == 0) return;
+        int first = rowAt(clip.y);
+        int last = rowAt(clip.y + clip.height);
+        int selFrom = Math.min(selectionAnchor, selectionEnd), selTo = Math.max(selectionAnchor, selectionEnd);
+        int offsetWidth = fm.stringWidth("00000000  ");
+        for (int row = first; row <= last; row++) {
+            int y = row * height;
+            if (selectionAnchor >= 0 && row >= selFrom && row <= selTo) {
+                Color selection = UIManager.getColor("TextArea.selectionBackground");
+                g.setColor(selection != null ? selection : new Color(0xB8CFE5));
+                g.fillRect(clip.x, y, clip.width, height);
+            }
+            String text = rowText(row);
+            int baseline = y + fm.getAscent();
+            g.setColor(OFFSET_COLOR);
+            g.drawString(text.substring(0, 10), 4, baseline);
+            g.setColor(getForeground());
+            g.drawString(text.substring(10), 4 + offsetWidth, baseline);
+        }
+    }
+
+    private void copySelection() {
+        if (selectionAnchor < 0) return;
+        int from = Math.min(selectionAnchor, selectionEnd), to = Math.max(selectionAnchor, selectionEnd);
+        if (to - from >= MAX_COPY_ROWS) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        StringBuilder dump = new StringBuilder();
+        for (int row = from; row <= to; row++) {
+            dump.append(rowText(row)).append('\n');
+        }
+        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(dump.toString()), null);
+    }
+
+    // ---- Scrollable ----
+
+    @Override
+    public Dimension getPreferredSize() {
+        FontMetrics fm = getFontMetrics(getFont());
+        int width = ROW_CHARS * fm.charWidth('m') + 8;
+        long height = (long) getRowCount() * fm.getHeight();
+        return new Dimension(width, (int) Math.min(Integer.MAX_VALUE / 2, height));
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(400, 300);
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? rowHeight() : getFontMetrics(getFont()).charWidth('m') * 4;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height - rowHeight() : visibleRect.width / 2;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport viewport && viewport.getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport viewport && viewport.getHeight() > getPreferredSize().height;
+    }
+}
@@ -0,0 +1,30 @@
+// Lightweight history row: just enough to render the history list
+public class HistoryEntry {
+    private int ID, statusCode;
+    private String method, url, timestamp;
+
+    public HistoryEntry(int ID, String method, String url, int statusCode, String timestamp) {
+        this.ID = ID;
+        this.method = method;
+        this.url = url;
+        this.statusCode = statusCode;
+        this.timestamp = timestamp;
+    }
+
+    // Getters
+    public int getID() { return ID; }
+    public String getMethod() { return method; }
+    public String getUrl() { return url; }
+    public int getStatusCode() { return statusCode; }
+    public String getTimestamp() { return timestamp; }
+
+    @Override
+    public String toString() {
+        String displayText = String.format("%s %s", method, url);
+        // Truncate long URLs for display
+        if (displayText.length() > 50) {
+            displayText = displayText.substring(0, 47) + "...";
+        }
+        return statusCode > 0 ? displayText + " [" + statusCode + "]" : displayText;
+    }
+}
@@ -0,0 +1,167 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ListModel for the history panel that loads rows page by page.
+ *
+ * Only the first page is fetched up front. When the list asks for a row close
+ * to the end of what has been loaded (i.e. the user scrolled down), the next
+ * page is fetched in the background using keyset pagination on (Timestamp, ID).
+ * With a search filter set, pages come from the ranked full-text search instead.
+ * A page that fails to load stops paging until {@link #retry()} is called.
+ * All methods must be called on the EDT.
+ */
+public class HistoryListModel extends AbstractListModel<HistoryEntry> {
+    private static final int PAGE_SIZE = 100;
+    private static final int PREFETCH_DISTANCE = 20;
+
+    private final RequestsDAO requestsDAO;
+    private final List<HistoryEntry> entries = new ArrayList<>();
+    private final Set<Integer> loadedIds = new HashSet<>();
+    private String filter = "";
+
+    // Keyset cursor: the last row that came from the database
+    private String cursorTimestamp = null;
+    private int cursorId = 0;
+    private int searchOffset = 0;  // ranked search results are paged by offset
+
+    private boolean loading = false;
+    private boolean exhausted = false;
+    private boolean failed = false;  // the last page failed; wait for retry()
+    private int generation = 0;  // bumped on reload so stale pages are dropped
+    private Runnable onError;
+
+    public HistoryListModel(RequestsDAO requestsDAO) {
+        this.requestsDAO = requestsDAO;
+    }
+
+    @Override
+    public int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public HistoryEntry getElementAt(int index) {
+        if (index >= entries.size() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+        return entries.get(index);
+    }
+
+    public void setOnError(Runnable onError) {
+        this.onError = onError;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty() && exhausted;
+    }
+
+    // Drop everything and start again from the newest row
+    public void reload() {
+        int oldSize = entries.size();
+        generation++;
+        entries.clear();
+        loadedIds.clear();
+        cursorTimestamp = null;
+        cursorId = 0;
+        searchOffset = 0;
+        loading = false;
+        exhausted = false;
+        failed = false;
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        loadNextPage();
+    }
+
+    public void setFilter(String filter) {
+        String normalized = filter == null ? "" : filter.trim();
+        if (normalized.equals(this.filter)) return;
+        this.filter = normalized;
+        reload();
+    }
+
+    // Put a freshly stored request at the top without reloading the list
+    public void prepend(HistoryEntry entry) {
+        // Search results are ordered by rank, so a new row has no obvious place there
+        if (!filter.isEmpty() || !loadedIds.add(entry.getID())) return;
+        entries.add(0, entry);
+        fireIntervalAdded(this, 0, 0);
+    }
+
+    public int indexOf(HistoryEntry entry) {
+        return entries.indexOf(entry);
+    }
+
+    public void remove(int index) {
+        HistoryEntry removed = entries.remove(index);
+        loadedIds.remove(removed.getID());
+        fireIntervalRemoved(this, index, index);
+    }
+
+    // Load the page that failed again
+    public void retry() {
+        if (!failed) return;
+        failed = false;
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        if (loading || exhausted || failed) return;
+        loading = true;
+        final int requestGeneration = generation;
+        final String pageFilter = filter;
+        final String afterTimestamp = cursorTimestamp;
+        final int afterId = cursorId;
+        final int offset = searchOffset;
+
+        SwingWorker<List<HistoryEntry>, Void> worker = new SwingWorker<>() {
+            @Override
+            protected List<HistoryEntry> doInBackground() throws Exception {
+                if (!pageFilter.isEmpty()) {
+                    return requestsDAO.Search(pageFilter, offset, PAGE_SIZE);
+                }
+                return requestsDAO.GetPage(afterTimestamp, afterId, PAGE_SIZE);
+            }
+
+            @Override
+            protected void done() {
+                if (requestGeneration != generation) return;
+                loading = false;
+                try {
+                    appendPage(get());
+                } catch (Exception e) {
+                    failed = true;
+                    e.printStackTrace();
+                    if (onError != null) onError.run();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void appendPage(List<HistoryEntry> page) {
+        if (page.size() < PAGE_SIZE) {
+            exhausted = true;
+        }
+        if (page.isEmpty()) return;
+        searchOffset += page.size();
+        HistoryEntry last = page.get(page.size() - 1);
+        cursorTimestamp = last.getTimestamp();
+        cursorId = last.getID();
+
+        int start = entries.size();
+        for (HistoryEntry entry : page) {
+            // A prepended row may also come back in a page that was already in flight
+            if (loadedIds.add(entry.getID())) {
+                entries.add(entry);
+            }
+        }
+        if (entries.size() > start) {
+            fireIntervalAdded(this, start, entries.size() - 1);
+        }
+    }
+}
@@ -3,126 +3,384 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
 
 // Main HTTP Client Service Class
 public class HttpClientService {
     
     private final HttpClient httpClient;
     private final Duration timeout;
+    // Bodies larger than this are spilled to a temp file instead of being held in memory
+    private final long maxInMemoryBodyBytes;
+    // Client-side cache for GET responses; off unless enabled with -Dcreo.http.cache=true
+    private final HttpResponseCache cache;
+    // Ask for compressed bodies (Accept-Encoding) unless the request sets its own; -Dcreo.http.compression=false to turn off
+    private final boolean requestCompression;
+    // Where HttpClient runs async work and response handling (see -Dcreo.http.executor)
+    private final Executor executor;
+    // Per-host limits, retries and circuit breaker; null when disabled with -Dcreo.http.governor=false
+    private final RequestGovernor governor;
+    // -Dcreo.http.version: "http2" (default: ALPN on TLS, h2c upgrade on cleartext), "http2-tls" or "http1"
+    private final String versionPolicy;
+    // New vs reused connection for each exchange
+    private final ConnectionTracker connections = new ConnectionTracker();
     
     public HttpClientService() {
+        this(executorFromProperty());
+    }
+    
+    public HttpClientService(Executor executor) {
+        this.executor = executor;
         this.timeout = Duration.ofSeconds(30);
-        this.httpClient = HttpClient.newBuilder()
+        this.maxInMemoryBodyBytes = Long.getLong("creo.http.maxInMemoryBody", 8L * 1024 * 1024);
+        this.cache = Boolean.parseBoolean(System.getProperty("creo.http.cache", "false")) ? new HttpResponseCache() : null;
+        this.requestCompression = Boolean.parseBoolean(System.getProperty("creo.http.compression", "true"));
+        this.governor = Boolean.parseBoolean(System.getProperty("creo.http.governor", "true")) ? new RequestGovernor(executor) : null;
+        this.versionPolicy = versionPolicyFromProperty();
+        HttpClient.Builder builder = HttpClient.newBuilder()
                 .connectTimeout(timeout)
                 .followRedirects(HttpClient.Redirect.NORMAL)
-                .build();
+                .version(versionPolicy.equals("http1") ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2)
+                .executor(executor);
+        javax.net.ssl.SSLContext sslContext = connections.observingSslContext();
+        if (sslContext != null) builder.sslContext(sslContext);
+        this.httpClient = builder.build();
+    }
+    
+    // "http2-tls" asks for HTTP/2 only where ALPN negotiates it, sparing cleartext requests the h2c upgrade attempt
+    private static String versionPolicyFromProperty() {
+        String policy = System.getProperty("creo.http.version", "http2").trim().toLowerCase(java.util.Locale.ROOT);
+        if (policy.equals("http2") || policy.equals("http2-tls") || policy.equals("http1")) return policy;
+        System.err.println("✗ Unknown creo.http.version '" + policy + "', using http2");
+        return "http2";
+    }
+    
+    // -Dcreo.http.executor: "virtual" (default, a virtual thread per task) or a thread count for a fixed pool.
+    // With a fixed pool, stages run on it must not call the blocking executeRequest: they would wait for their own threads.
+    static Executor executorFromProperty() {
+        String setting = System.getProperty("creo.http.executor", "virtual").trim();
+        if (setting.equalsIgnoreCase("virtual")) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("creo-http-", 0).factory());
+        }
+        try {
+            return fixedExecutor(Integer.parseInt(setting));
+        } catch (NumberFormatException e) {
+            System.err.println("✗ Unknown creo.http.executor '" + setting + "', using virtual threads");
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("creo-http-", 0).factory());
+        }
+    }
+    
+    // A pool of daemon threads, so an idle client never keeps the JVM alive
+    static ExecutorService fixedExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "creo-http-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
     
     // Main method to handle all HTTP operations
     public HttpResponse executeRequest(HttpRequestData requestData) {
+        RequestTiming timing = new RequestTiming();
         try {
-            switch (requestData.getMethod().toUpperCase()) {
-                case "GET":
-                    return performGet(requestData);
-                case "POST":
-                    return performPost(requestData);
-                case "PUT":
-                    return performPut(requestData);
-                case "DELETE":
-                    return performDelete(requestData);
-                default:
-                    throw new IllegalArgumentException("Unsupported HTTP method: " + requestData.getMethod());
+            if (isCachedGet(requestData)) {
+                return cache.execute(requestData, timing, request -> perform(request, timing));
             }
+            return invalidateAfterUnsafe(requestData, perform(requestData, timing));
         } catch (Exception e) {
             return createErrorResponse(e);
         }
     }
     
-    // GET Request Implementation
-    private HttpResponse performGet(HttpRequestData requestData) throws Exception {
-        validateUrl(requestData.getUrl());
-        
-        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                .uri(URI.create(requestData.getUrl()))
-                .GET()
-                .timeout(timeout);
-        
-        addHeaders(requestBuilder, requestData.getHeaders());
-        
-        HttpRequest request = requestBuilder.build();
-        java.net.http.HttpResponse<String> response = httpClient.send(request, 
-                java.net.http.HttpResponse.BodyHandlers.ofString());
-        
-        return processResponse(response, requestData.getUrl());
+    /**
+     * Non-blocking executeRequest, built on HttpClient.sendAsync: no thread waits
+     * on the network, so the number of requests in flight is not limited by the
+     * number of threads. The body is read and processed on the executor (see
+     * getExecutor()), which is also the place to run further stages such as
+     * persistence or formatting. Never completes exceptionally; failures become
+     * error responses, as with executeRequest. cancel(true) aborts the exchange.
+     */
+    public CompletableFuture<HttpResponse> executeRequestAsync(HttpRequestData requestData) {
+        RequestTiming timing = new RequestTiming();
+        CompletableFuture<HttpResponse> response;
+        try {
+            if (isCachedGet(requestData)) {
+                response = cache.executeAsync(requestData, timing, request -> performAsync(request, timing), executor);
+            } else {
+                CompletableFuture<HttpResponse> sent = performAsync(requestData, timing);
+                response = cancelsUpstream(sent.thenApply(r -> invalidateAfterUnsafe(requestData, r)), sent);
+            }
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(createErrorResponse(e));
+        }
+        return cancelsUpstream(response.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            return createErrorResponse(cause instanceof Exception ex ? ex : new RuntimeException(cause));
+        }), response);
     }
     
-    // POST Request Implementation
-    private HttpResponse performPost(HttpRequestData requestData) throws Exception {
-        validateUrl(requestData.getUrl());
-        
-        HttpRequest.BodyPublisher bodyPublisher = createBodyPublisher(requestData);
-        
-        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                .uri(URI.create(requestData.getUrl()))
-                .POST(bodyPublisher)
-                .timeout(timeout);
-        
-        addHeaders(requestBuilder, requestData.getHeaders());
-        
-        HttpRequest request = requestBuilder.build();
-        java.net.http.HttpResponse<String> response = httpClient.send(request, 
-                java.net.http.HttpResponse.BodyHandlers.ofString());
-        
-        return processResponse(response, requestData.getUrl());
+    // GETs go through the response cache, when enabled
+    private boolean isCachedGet(HttpRequestData requestData) {
+        return cache != null && !requestData.isBypassCache() && "GET".equalsIgnoreCase(requestData.getMethod());
     }
     
-    // PUT Request Implementation   
-    private HttpResponse performPut(HttpRequestData requestData) throws Exception {
-        validateUrl(requestData.getUrl());
-        
-        HttpRequest.BodyPublisher bodyPublisher = createBodyPublisher(requestData);
-        
-        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                .uri(URI.create(requestData.getUrl()))
-                .PUT(bodyPublisher)
-                .timeout(timeout);
-        
-        addHeaders(requestBuilder, requestData.getHeaders());
-        
-        HttpRequest request = requestBuilder.build();
-        java.net.http.HttpResponse<String> response = httpClient.send(request, 
-                java.net.http.HttpResponse.BodyHandlers.ofString());
-        
-        return processResponse(response, requestData.getUrl());
+    // A successful unsafe request makes any cached copy of the resource stale
+    private HttpResponse invalidateAfterUnsafe(HttpRequestData requestData, HttpResponse response) {
+        if (cache != null && !"GET".equalsIgnoreCase(requestData.getMethod()) && !response.isError() && response.getStatusCode() < 400) {
+            cache.invalidate(requestData.getUrl());
+        }
+        return response;
+    }
+    
+    // Runs response processing for async requests and any stages callers add after it
+    public Executor getExecutor() {
+        return executor;
     }
     
-    // DELETE Request Implementation
-    private HttpResponse performDelete(HttpRequestData requestData) throws Exception {
+    // Bodies above this many bytes are kept in a temp file rather than in memory
+    public long getMaxInMemoryBodyBytes() {
+        return maxInMemoryBodyBytes;
+    }
+    
+    // The response cache, or null when caching is disabled
+    public HttpResponseCache getCache() {
+        return cache;
+    }
+    
+    // Host limits and retry counters, or null when governance is disabled
+    public RequestGovernor getGovernor() {
+        return governor;
+    }
+    
+    // New/reused connection counters
+    public ConnectionTracker getConnections() {
+        return connections;
+    }
+    
+    /**
+     * Open connections ahead of time, so the first real request to a host does
+     * not pay for TCP and TLS setup (or skew a measurement). Sends
+     * connectionsPerHost concurrent HEAD requests to the root of each distinct
+     * host; with HTTP/2 one connection serves them all. Each line of the
+     * result describes one host, e.g. "https://api.example.com:443 HTTP/2,
+     * new connection in 85 ms". Never completes exceptionally.
+     */
+    public CompletableFuture<List<String>> warmUp(java.util.Collection<String> urls, int connectionsPerHost) {
+        java.util.Set<URI> origins = new java.util.LinkedHashSet<>();
+        for (String url : urls) {
+            try {
+                URI uri = URI.create(url.trim());
+                if (uri.getScheme() != null && uri.getHost() != null) {
+                    origins.add(new URI(uri.getScheme(), null, uri.getHost(), uri.getPort(), "/", null, null));
+                }
+            } catch (Exception e) {
+                System.err.println("✗ Cannot warm up '" + url + "': " + e.getMessage());
+            }
+        }
+        List<CompletableFuture<String>> hosts = new java.util.ArrayList<>();
+        for (URI origin : origins) {
+            List<CompletableFuture<String>> attempts = new java.util.ArrayList<>();
+            for (int i = 0; i < Math.max(1, connectionsPerHost); i++) {
+                attempts.add(warmUpOne(origin));
+            }
+            hosts.add(CompletableFuture.allOf(attempts.toArray(new CompletableFuture[0]))
+                    .thenApply(done -> origin.getScheme() + "://" + origin.getHost() + (origin.getPort() >= 0 ? ":" + origin.getPort() : "")
+                            + " " + String.join("; ", attempts.stream().map(CompletableFuture::join).distinct().toList())));
+        }
+        return CompletableFuture.allOf(hosts.toArray(new CompletableFuture[0]))
+                .thenApply(done -> hosts.stream().map(CompletableFuture::join).toList());
+    }
+    
+    /**
+     * Warm up the connections a load test of this request will use, through
+     * the same request path: its URL and headers, the governor unless the
+     * request bypasses it, connection tracking. One request goes first; if it
+     * negotiated HTTP/2, that single connection carries everything. Otherwise
+     * the given number of requests (at most the governor's per-host limit)
+     * run at once, so that many HTTP/1.1 connections are open. Methods other
+     * than GET go as HEAD, so warming up has no side effects. Never completes
+     * exceptionally; the result describes what happened.
+     */
+    public CompletableFuture<String> warmUp(HttpRequestData request, int connections) {
+        boolean governed = governor != null && !request.isBypassGovernor() && governor.getMaxPerHost() > 0;
+        int parallel = Math.max(1, governed ? Math.min(connections, governor.getMaxPerHost()) : connections);
+        HttpRequestData probe = new HttpRequestData(request.getUrl(),
+                "GET".equalsIgnoreCase(request.getMethod()) ? "GET" : "HEAD");
+        probe.setHeaders(request.getHeaders());
+        probe.setTimeout(request.getTimeout());
+        probe.setBypassCache(true);
+        probe.setBypassGovernor(request.isBypassGovernor());
+        return executeRequestAsync(probe).thenCompose(first -> {
+            if (first.isError()) {
+                return CompletableFuture.completedFuture("failed: " + first.getErrorMessage());
+            }
+            if ("HTTP/2".equals(first.getTiming().getProtocol()) || parallel == 1) {
+                return CompletableFuture.completedFuture(first.getTiming().getProtocol() + ", 1 connection");
+            }
+            List<CompletableFuture<HttpResponse>> rest = new java.util.ArrayList<>();
+            for (int i = 0; i < parallel; i++) {
+                rest.add(executeRequestAsync(probe));
+            }
+            return CompletableFuture.allOf(rest.toArray(new CompletableFuture[0])).thenApply(done -> {
+                long failed = rest.stream().filter(r -> r.join().isError()).count();
+                return first.getTiming().getProtocol() + ", " + parallel + " connections"
+                        + (failed > 0 ? " (" + failed + " failed)" : "");
+            });
+        });
+    }
+    
+    private CompletableFuture<String> warmUpOne(URI origin) {
+        RequestTiming timing = new RequestTiming();
+        HttpRequest.Builder request = HttpRequest.newBuilder(origin).timeout(timeout)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody());
+        if (versionPolicy.equals("http2-tls") && "http".equalsIgnoreCase(origin.getScheme())) {
+            request.version(HttpClient.Version.HTTP_1_1);
+        }
+        ConnectionTracker.Exchange exchange = connections.begin(origin);
+        timing.markSent();
+        return httpClient.sendAsync(request.build(),
+                        connections.wrap(exchange, timing, timing.wrap(java.net.http.HttpResponse.BodyHandlers.discarding())))
+                .handle((response, error) -> {
+                    connections.end(exchange, error == null);
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        return "failed: " + cause;
+                    }
+                    return timing.getProtocol() + ", " + timing.getConnectionLabel()
+                            + String.format(" in %.0f ms", timing.getTtfbMs());
+                });
+    }
+    
+    // Build the outgoing request for any supported method
+    private HttpRequest buildRequest(HttpRequestData requestData) {
         validateUrl(requestData.getUrl());
         
         HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
                 .uri(URI.create(requestData.getUrl()))
-                .DELETE()
-                .timeout(timeout);
+                .timeout(requestData.getTimeout() != null ? requestData.getTimeout() : timeout);
+        if (versionPolicy.equals("http2-tls") && "http".equalsIgnoreCase(URI.create(requestData.getUrl()).getScheme())) {
+            requestBuilder.version(HttpClient.Version.HTTP_1_1);
+        }
+        switch (requestData.getMethod().toUpperCase()) {
+            case "GET":
+                requestBuilder.GET();
+                break;
+            case "POST":
+                requestBuilder.POST(createBodyPublisher(requestData));
+                break;
+            case "PUT":
+                requestBuilder.PUT(createBodyPublisher(requestData));
+                break;
+            case "DELETE":
+                requestBuilder.DELETE();
+                break;
+            case "HEAD":
+                requestBuilder.method("HEAD", HttpRequest.BodyPublishers.noBody());
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported HTTP method: " + requestData.getMethod());
+        }
         
         addHeaders(requestBuilder, requestData.getHeaders());
-        
-        HttpRequest request = requestBuilder.build();
-        java.net.http.HttpResponse<String> response = httpClient.send(request, 
-                java.net.http.HttpResponse.BodyHandlers.ofString());
-        
-        return processResponse(response, requestData.getUrl());
+        return requestBuilder.build();
+    }
+    
+    // Blocking send, under the host's limits and retry policy: the calling thread waits for the whole exchange
+    private HttpResponse perform(HttpRequestData requestData, RequestTiming timing) throws Exception {
+        if (governor != null && !requestData.isBypassGovernor()) {
+            return governor.execute(requestData, request -> send(request, timing));
+        }
+        return send(requestData, timing);
+    }
+    
+    // Non-blocking counterpart of perform
+    private CompletableFuture<HttpResponse> performAsync(HttpRequestData requestData, RequestTiming timing) {
+        if (governor != null && !requestData.isBypassGovernor()) {
+            return governor.executeAsync(requestData, request -> sendAsync(request, timing));
+        }
+        return sendAsync(requestData, timing);
     }
     
+    // One network attempt; the queue time in timing includes waiting for the host and earlier attempts
+    private HttpResponse send(HttpRequestData requestData, RequestTiming timing) throws Exception {
+        HttpRequest request = buildRequest(requestData);
+        ConnectionTracker.Exchange exchange = connections.begin(request.uri());
+        timing.markSent();
+        java.net.http.HttpResponse<ResponseBody> response;
+        try {
+            response = httpClient.send(request, connections.wrap(exchange, timing, timing.wrap(streamingBodyHandler())));
+        } finally {
+            connections.end(exchange, false);  // no-op once the body has ended; otherwise the connection failed
+        }
+        
+        return processResponse(response, requestData.getUrl(), timing);
+    }
+    
+    // Non-blocking send: no thread is held while the request is on the network; the body streams in on the executor
+    private CompletableFuture<HttpResponse> sendAsync(HttpRequestData requestData, RequestTiming timing) {
+        HttpRequest request = buildRequest(requestData);
+        ConnectionTracker.Exchange connection = connections.begin(request.uri());
+        timing.markSent();
+        CompletableFuture<java.net.http.HttpResponse<ResponseBody>> exchange =
+                httpClient.sendAsync(request, connections.wrap(connection, timing, timing.wrap(streamingBodyHandler())));
+        exchange.whenComplete((response, e) -> connections.end(connection, false));
+        // Hand over to a plain CompletableFuture: stages derived from the client's own future cancel the exchange
+        // by failing it, so a cancelled chain would still run to completion (and get stored) as an error response
+        CompletableFuture<HttpResponse> processed = new CompletableFuture<>();
+        exchange.thenApply(response -> processResponse(response, requestData.getUrl(), timing))
+                .whenComplete((response, e) -> {
+                    if (e != null) processed.completeExceptionally(e);
+                    else processed.complete(response);
+                });
+        return cancelsUpstream(processed, exchange);
+    }
+    
+    /**
+     * Make cancelling a derived stage cancel the stage it came from. Chained all
+     * the way up, cancel(true) on the future a caller holds reaches the future
+     * from sendAsync, which aborts the HTTP exchange and closes its connection.
+     */
+    static <T> CompletableFuture<T> cancelsUpstream(CompletableFuture<T> stage, CompletableFuture<?> upstream) {
+        stage.whenComplete((result, error) -> {
+            if (stage.isCancelled()) upstream.cancel(true);
+        });
+        return stage;
+    }
+    
+    
+    // Stream the body into memory up to the cap, spilling the rest to disk
+    private java.net.http.HttpResponse.BodyHandler<ResponseBody> streamingBodyHandler() {
+        return responseInfo -> {
+            // Without a declared type the bytes decide whether the body is text
+            String declared = responseInfo.headers().firstValue("Content-Type").orElse(null);
+            SpoolingBodySubscriber spooling = new SpoolingBodySubscriber(maxInMemoryBodyBytes,
+                    getCharset(getContentType(responseInfo.headers())), ResponseBody.isTextualType(declared));
+            // Compressed bodies are decoded while they stream in; unknown codings are kept as received
+            String contentEncoding = responseInfo.headers().firstValue("Content-Encoding").orElse(null);
+            List<ContentDecoder> decoders = ContentDecoders.chain(contentEncoding);
+            if (decoders == null || decoders.isEmpty()) {
+                return spooling;
+            }
+            return new DecodingBodySubscriber(decoders, contentEncoding, spooling);
+        };
+    }
     
     // Process HTTP Response and sort by content type
-    private HttpResponse processResponse(java.net.http.HttpResponse<String> response, String url) {
+    private HttpResponse processResponse(java.net.http.HttpResponse<ResponseBody> response, String url, RequestTiming timing) {
         HttpResponse httpResponse = new HttpResponse();
         httpResponse.setStatusCode(response.statusCode());
         httpResponse.setUrl(url);
@@ -131,121 +389,21 @@ public class HttpClientService {
         String contentType = getContentType(response.headers());
         httpResponse.setContentType(contentType);
         
-        String body = response.body();
+        ResponseBody body = response.body();
         if (body != null) {
-            httpResponse.setBody(formatResponseBody(body, contentType));
-            httpResponse.setBodySize(body.getBytes(StandardCharsets.UTF_8).length);
+            httpResponse.setBodyHandle(body);
+            httpResponse.setBodySize(body.size());
+            // The raw body is kept as is; it is decoded, and formatted for display, only when someone asks
         } else {
             httpResponse.setBody("");
             httpResponse.setBodySize(0);
         }
         
-        httpResponse.setResponseTime(System.currentTimeMillis());
+        httpResponse.setTiming(timing);
         
         return httpResponse;
     }
     
-    // Format response body based on content type
-    private String formatResponseBody(String body, String contentType) {
-        if (body == null || body.trim().isEmpty()) {
-            return "";
-        }
-        
-        try {
-            if (contentType.contains("application/json")) {
-                return formatJsonResponse(body);
-            } else if (contentType.contains("text/html")) {
-                return formatHtmlResponse(body);
-            } else if (contentType.contains("application/xml") || contentType.contains("text/xml")) {
-                return formatXmlResponse(body);
-            } else {
-                return body; 
-            }
-        } catch (Exception e) {
-            return body;
-        }
-    }
-    
-    // Basic JSON formatting (pretty print)
-    private String formatJsonResponse(String json) {
-        json = json.trim();
-        if (!json.startsWith("{") && !json.startsWith("[")) {
-            return json;
-        }
-        
-        StringBuilder formatted = new StringBuilder();
-        int indent = 0;
-        boolean inString = false;
-        boolean escape = false;
-        
-        for (char c : json.toCharArray()) {
-            if (escape) {
-                formatted.append(c);
-                escape = false;
-                continue;
-            }
-            
-            if (c == '\\' && inString) {
-                escape = true;
-                formatted.append(c);
-                continue;
-            }
-            
-            if (c == '"' && !escape) {
-                inString = !inString;
-            }
-            
-            if (!inString) {
-                switch (c) {
-                    case '{':
-                    case '[':
-                        formatted.append(c).append('\n');
-                        indent++;
-                        addIndent(formatted, indent);
-                        break;
-                    case '}':
-                    case ']':
-                        formatted.append('\n');
-                        indent--;
-                        addIndent(formatted, indent);
-                        formatted.append(c);
-                        break;
-                    case ',':
-                        formatted.append(c).append('\n');
-                        addIndent(formatted, indent);
-                        break;
-                    case ':':
-                        formatted.append(c).append(' ');
-                        break;
-                    default:
-                        if (!Character.isWhitespace(c)) {
-                            formatted.append(c);
-                        }
-                }
-            } else {
-                formatted.append(c);
-            }
-        }
-        
-        return formatted.toString();
-    }
-    
-    private void addIndent(StringBuilder sb, int indent) {
-        for (int i = 0; i < indent * 2; i++) {
-            sb.append(' ');
-        }
-    }
-    
-    // Basic HTML formatting
-    private String formatHtmlResponse(String html) {
-        return html;
-    }
-    
-    // Basic XML formatting
-    private String formatXmlResponse(String xml) {
-        return xml;
-    }
-    
     // Utility Methods
     private void validateUrl(String url) {
         if (url == null || url.trim().isEmpty()) {
@@ -263,12 +421,18 @@ public class HttpClientService {
     }
     
     private void addHeaders(HttpRequest.Builder requestBuilder, Map<String, String> headers) {
+        boolean acceptEncodingSet = false;
         if (headers != null) {
-            headers.forEach((key, value) -> {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                String key = header.getKey(), value = header.getValue();
                 if (key != null && value != null && !key.trim().isEmpty()) {
                     requestBuilder.header(key.trim(), value.trim());
+                    acceptEncodingSet |= key.trim().equalsIgnoreCase("Accept-Encoding");
                 }
-            });
+            }
+        }
+        if (requestCompression && !acceptEncodingSet) {
+            requestBuilder.header("Accept-Encoding", ContentDecoders.acceptEncoding());
         }
     }
     
@@ -280,6 +444,20 @@ public class HttpClientService {
         return HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8);
     }
     
+    private Charset getCharset(String contentType) {
+        for (String param : contentType.split(";")) {
+            String[] kv = param.trim().split("=", 2);
+            if (kv.length == 2 && kv[0].trim().equalsIgnoreCase("charset")) {
+                try {
+                    return Charset.forName(kv[1].trim().replace("\"", ""));
+                } catch (Exception e) {
+                    break;
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+    
     private String getContentType(HttpHeaders headers) {
         return headers.firstValue("content-type")
                 .or(() -> headers.firstValue("Content-Type"))
@@ -297,10 +475,6 @@ public class HttpClientService {
         return errorResponse;
     }
     
-    // Async request execution
-    public CompletableFuture<HttpResponse> executeRequestAsync(HttpRequestData requestData) {
-        return CompletableFuture.supplyAsync(() -> executeRequest(requestData));
-    }
 }
 
 // Request Data Class
@@ -309,6 +483,9 @@ class HttpRequestData {
     private String method;
     private Map<String, String> headers;
     private String body;
+    private boolean bypassCache;
+    private boolean bypassGovernor;
+    private Duration timeout;
     
     public HttpRequestData() {
         this.headers = new HashMap<>();
@@ -330,9 +507,21 @@ class HttpRequestData {
     public Map<String, String> getHeaders() { return headers; }
     public void setHeaders(Map<String, String> headers) { this.headers = headers; }
     
+    // Always go to the network, e.g. when load testing the server
+    public boolean isBypassCache() { return bypassCache; }
+    public void setBypassCache(boolean bypassCache) { this.bypassCache = bypassCache; }
+    
+    // No host limits, retries or circuit breaker, e.g. for a load test that sets its own concurrency
+    public boolean isBypassGovernor() { return bypassGovernor; }
+    public void setBypassGovernor(boolean bypassGovernor) { this.bypassGovernor = bypassGovernor; }
+    
     public String getBody() { return body; }
     public void setBody(String body) { this.body = body; }
     
+    // Per-request timeout for the response headers to arrive; null uses the client default (30 s)
+    public Duration getTimeout() { return timeout; }
+    public void setTimeout(Duration timeout) { this.timeout = timeout; }
+    
     public void addHeader(String key, String value) {
         if (headers == null) {
             headers = new HashMap<>();
@@ -347,9 +536,12 @@ class HttpResponse {
     private String url;
     private Map<String, List<String>> headers;
     private String body;
+    private ResponseBody bodyHandle;
     private String contentType;
-    private long responseTime;
+    private RequestTiming timing;
+    private HttpResponseCache.Status cacheStatus;
     private long bodySize;
+    private int attempts = 1;
     private boolean isError;
     private String errorMessage;
     
@@ -368,18 +560,50 @@ class HttpResponse {
     public Map<String, List<String>> getHeaders() { return headers; }
     public void setHeaders(Map<String, List<String>> headers) { this.headers = headers; }
     
-    public String getBody() { return body; }
+    // Decoded lazily from the body handle when no formatted body was set; binary bodies are never decoded
+    public String getBody() {
+        if (body == null && bodyHandle != null) {
+            body = bodyHandle.isBinary() ? binaryPlaceholder() : bodyHandle.text();
+        }
+        return body;
+    }
+    
+    public boolean isBinary() {
+        return bodyHandle != null && bodyHandle.isBinary();
+    }
+    
+    private String binaryPlaceholder() {
+        return "[Binary body: " + bodyHandle.size() + " bytes" + (contentType != null ? ", " + contentType : "") + "]";
+    }
     public void setBody(String body) { this.body = body; }
     
+    public ResponseBody getBodyHandle() { return bodyHandle; }
+    public void setBodyHandle(ResponseBody bodyHandle) { this.bodyHandle = bodyHandle; }
+    
     public String getContentType() { return contentType; }
     public void setContentType(String contentType) { this.contentType = contentType; }
     
-    public long getResponseTime() { return responseTime; }
-    public void setResponseTime(long responseTime) { this.responseTime = responseTime; }
+    // Total time in whole milliseconds, from executeRequest until the last body byte (0 if unknown)
+    public long getResponseTime() { return timing != null ? Math.round(Math.max(0, timing.getTotalMs())) : 0; }
+    
+    public RequestTiming getTiming() { return timing; }
+    public void setTiming(RequestTiming timing) { this.timing = timing; }
+    
+    // How the response cache handled this request; null if it did not take part
+    public HttpResponseCache.Status getCacheStatus() { return cacheStatus; }
+    public void setCacheStatus(HttpResponseCache.Status cacheStatus) { this.cacheStatus = cacheStatus; }
+    
+    // Network attempts it took, counting retries
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
     
     public long getBodySize() { return bodySize; }
     public void setBodySize(long bodySize) { this.bodySize = bodySize; }
     
+    // Bytes received before Content-Encoding was undone; the body size when it was not encoded
+    public long getWireSize() { return bodyHandle != null ? bodyHandle.wireSize() : bodySize; }
+    public String getContentEncoding() { return bodyHandle != null ? bodyHandle.contentEncoding() : null; }
+    
     public boolean isError() { return isError; }
     public void setError(boolean error) { isError = error; }
     
@@ -387,6 +611,28 @@ class HttpResponse {
     public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
     
     // Utility methods
+    public boolean isBodyTruncated() {
+        return bodyHandle != null && !bodyHandle.isInMemory();
+    }
+    
+    // The body for display: the full body unless it spilled to disk, then just its start
+    public String getBodyPreview() {
+        if (!isBodyTruncated() || isBinary()) {
+            return getBody();
+        }
+        return bodyHandle.preview(ResponseBody.PREVIEW_BYTES)
+                + "\n\n[Showing the first " + (ResponseBody.PREVIEW_BYTES / 1024) + " KB of " + bodyHandle.size()
+                + " bytes. Full body: " + bodyHandle.spillFile() + ", sha256 " + bodyHandle.sha256() + "]";
+    }
+    
+    // The whole body, or the start of one that spilled to disk, without any note; spilled bodies are stored from the handle
+    public String getRawBodyPreview() {
+        if (bodyHandle == null || isBinary()) {
+            return getBodyPreview();
+        }
+        return bodyHandle.isInMemory() ? bodyHandle.text() : bodyHandle.preview(ResponseBody.PREVIEW_BYTES);
+    }
+    
     public boolean isSuccessful() {
         return statusCode >= 200 && statusCode < 300;
     }
@@ -423,11 +669,29 @@ class HttpResponse {
 
 class PostmanBackendService {
     private final HttpClientService httpClientService;
+    private final WriteBehindQueue persistenceQueue;
+    private final List<BiConsumer<Request, Response>> persistenceListeners = new CopyOnWriteArrayList<>();
     
     public PostmanBackendService() {
-        this.httpClientService = new HttpClientService();
+        this(Boolean.parseBoolean(System.getProperty("creo.db.writeBehind", "true")));
+    }
+    
+    // writeBehind = true stores exchanges on a background writer instead of inline
+    public PostmanBackendService(boolean writeBehind) {
+        this(writeBehind, new HttpClientService());
+    }
+    
+    // With a client of the caller's choosing, e.g. one on a bounded executor
+    public PostmanBackendService(boolean writeBehind, HttpClientService httpClientService) {
+        this.httpClientService = httpClientService;
         // Initialize database when service is created
         initializeDatabase();
+        if (writeBehind) {
+            this.persistenceQueue = new WriteBehindQueue();
+            this.persistenceQueue.addListener(this::notifyPersisted);
+        } else {
+            this.persistenceQueue = null;
+        }
     }
     
     // Initialize database tables
@@ -441,73 +705,166 @@ class PostmanBackendService {
     }
     
     // MAIN METHOD
-    // 1. Save request to database BEFORE sending
+    // 1. Capture the request
     // 2. Send HTTP request 
-    // 3. Save response to database AFTER receiving
+    // 3. Save request and response to database (queued when write-behind is enabled)
     public HttpResponse handleRequest(String url, String method, Map<String, String> headers, String body) {
         System.out.println("\n=== Processing Request ===");
         System.out.println("Method: " + method + " | URL: " + url);
         
         try {
-            // Step 1: Save request to database BEFORE sending
-            saveRequestToDatabase(method, url, headers, body);
+            // Step 1: Capture the request
+            Request request = toRequestRecord(method, url, headers, body);
             
             // Step 2: Create request data and send HTTP request
-            HttpRequestData requestData = new HttpRequestData(url, method);
-            requestData.setHeaders(headers);
-            requestData.setBody(body);
+            HttpResponse httpResponse = httpClientService.executeRequest(toRequestData(url, method, headers, body));
             
-            HttpResponse httpResponse = httpClientService.executeRequest(requestData);
-            
-            // Step 3: Save response to database AFTER receiving
-            saveResponseToDatabase(httpResponse);
-            
-            System.out.println("✓ Request-Response cycle completed and saved to database");
+            // Step 3: Save the request and response
+            persist(request, httpResponse);
             return httpResponse;
             
         } catch (Exception e) {
-            System.err.println("✗ Error processing request: " + e.getMessage());
-            HttpResponse errorResponse = new HttpResponse();
-            errorResponse.setError(true);
-            errorResponse.setErrorMessage("Failed to process request: " + e.getMessage());
-            return errorResponse;
+            return failedRequest(e);
+        }
+    }
+    
+    /**
+     * handleRequest as a pipeline of async stages: send (HttpClient.sendAsync),
+     * then persist on the client's executor. No thread is blocked while the
+     * request is on the network; callers can chain further stages, e.g. with
+     * thenApplyAsync(..., getHttpClientService().getExecutor()).
+     */
+    public CompletableFuture<HttpResponse> handleRequestAsync(String url, String method, Map<String, String> headers, String body) {
+        return handleRequestAsync(toRequestData(url, method, headers, body));
+    }
+    
+    // Same, for a request with options such as a timeout; cancel(true) aborts the exchange and stores nothing
+    public CompletableFuture<HttpResponse> handleRequestAsync(HttpRequestData requestData) {
+        Request request = toRequestRecord(requestData.getMethod(), requestData.getUrl(), requestData.getHeaders(), requestData.getBody());
+        CompletableFuture<HttpResponse> sent = httpClientService.executeRequestAsync(requestData);
+        CompletableFuture<HttpResponse> stored = sent.thenApplyAsync(httpResponse -> {
+            try {
+                persist(request, httpResponse);
+            } catch (Exception e) {
+                System.err.println("✗ Failed to store the exchange: " + e.getMessage());
+            }
+            return httpResponse;
+        }, httpClientService.getExecutor());
+        return HttpClientService.cancelsUpstream(stored, sent);
+    }
+    
+    private HttpRequestData toRequestData(String url, String method, Map<String, String> headers, String body) {
+        HttpRequestData requestData = new HttpRequestData(url, method);
+        requestData.setHeaders(headers);
+        requestData.setBody(body);
+        return requestData;
+    }
+    
+    // In synchronous mode the request row is written together with its response
+    private void persist(Request request, HttpResponse httpResponse) {
+        if (httpResponse.getCacheStatus() == HttpResponseCache.Status.HIT) {
+            // Nothing went over the network; the exchange that filled the cache is already in the history
+            System.out.println("✓ Served from the response cache; not stored as a new exchange");
+            return;
+        }
+        if (persistenceQueue != null) {
+            persistenceQueue.enqueue(request, toResponseRecord(httpResponse, 0));
+            System.out.println("✓ Request-Response cycle completed and queued for the database");
+        } else {
+            int requestId = saveRequestToDatabase(request);
+            Response response = toResponseRecord(httpResponse, requestId);
+            saveResponseToDatabase(response);
+            if (requestId > 0) {
+                notifyPersisted(new Request(requestId, request.getMethod(), request.getUrl(),
+                        request.getHeaders(), request.getBody(), request.getTimestamp()), response);
+            }
+            System.out.println("✓ Request-Response cycle completed and saved to database");
         }
     }
     
+    private HttpResponse failedRequest(Exception e) {
+        System.err.println("✗ Error processing request: " + e.getMessage());
+        HttpResponse errorResponse = new HttpResponse();
+        errorResponse.setError(true);
+        errorResponse.setErrorMessage("Failed to process request: " + e.getMessage());
+        return errorResponse;
+    }
+    
+    // The underlying client, for callers that must not touch the database (e.g. load tests)
+    public HttpClientService getHttpClientService() {
+        return httpClientService;
+    }
+    
+    // Register a callback for each request/response pair once it is stored. May be called from a background thread.
+    public void addPersistenceListener(BiConsumer<Request, Response> listener) {
+        persistenceListeners.add(listener);
+    }
+    
+    // Block until every queued exchange has been written (no-op in synchronous mode)
+    public void flushPersistence() {
+        if (persistenceQueue != null) {
+            persistenceQueue.flush().join();
+        }
+    }
+    
+    private void notifyPersisted(Request request, Response response) {
+        for (BiConsumer<Request, Response> listener : persistenceListeners) {
+            listener.accept(request, response);
+        }
+    }
+    
+    private Request toRequestRecord(String method, String url, Map<String, String> headers, String body) {
+        return new Request(
+            0, // ID will be auto-generated
+            method,
+            url,
+            HeaderStore.format(headers),
+            body != null ? body : "",
+            "" // Timestamp will be auto-generated
+        );
+    }
+    
+    private Response toResponseRecord(HttpResponse httpResponse, int requestId) {
+        Response response = new Response(
+            0, // ID will be auto-generated
+            requestId,
+            httpResponse.getStatusCode(),
+            HeaderStore.formatMulti(httpResponse.getHeaders()),
+            httpResponse.getRawBodyPreview() != null ? httpResponse.getRawBodyPreview() : "",
+            httpResponse.getContentType() != null ? httpResponse.getContentType() : "unknown", // Content type in summary field
+            "", // Timestamp will be auto-generated
+            httpResponse.getTiming()
+        );
+        response.setSizes(httpResponse.getBodySize(), httpResponse.getWireSize());
+        ResponseBody handle = httpResponse.getBodyHandle();
+        // Binary bodies are stored as received
+        if (handle != null && handle.isBinary()) {
+            response.setBinaryBody(handle.isInMemory() ? handle.bytes() : null);
+        }
+        if (handle != null && !handle.isInMemory()) {
+            // Stored in full from the temp file, which the record keeps alive until it is written
+            response.setSpilledBody(handle);
+        }
+        return response;
+    }
+    
     // Save request to database
-    private void saveRequestToDatabase(String method, String url, Map<String, String> headers, String body) {
+    private int saveRequestToDatabase(Request request) {
         try {
-            Request request = new Request(
-                0, // ID will be auto-generated
-                method,
-                url,
-                headers != null ? headers.toString() : "",
-                body != null ? body : "",
-                "" // Timestamp will be auto-generated
-            );
-            
             RequestsDAO requestsDAO = new RequestsDAO();
-            requestsDAO.insert(request);
+            int id = requestsDAO.insert(request);
             System.out.println("✓ Request saved to database");
+            return id;
             
         } catch (Exception e) {
             System.err.println("✗ Failed to save request to database: " + e.getMessage());
+            return -1;
         }
     }
     
     // Save response to database
-    private void saveResponseToDatabase(HttpResponse httpResponse) {
+    private void saveResponseToDatabase(Response response) {
         try {
-            Response response = new Response(
-                0, // ID will be auto-generated
-                0, // Request_ID (simplified for now)
-                httpResponse.getStatusCode(),
-                httpResponse.getHeaders() != null ? httpResponse.getHeaders().toString() : "",
-                httpResponse.getBody() != null ? httpResponse.getBody() : "",
-                httpResponse.getContentType() != null ? httpResponse.getContentType() : "unknown", // Content type in summary field
-                "" // Timestamp will be auto-generated
-            );
-            
             ResponsesDAO responsesDAO = new ResponsesDAO();
             responsesDAO.insert(response);
             System.out.println("✓ Response saved to database");
@@ -0,0 +1,605 @@
+import com.google.gson.Gson;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Private (single-user) HTTP response cache for GET requests, following the
+ * freshness and validation rules of RFC 9111.
+ *
+ * A stored response is served without touching the network while it is fresh
+ * (Cache-Control max-age, else Expires, else 10% of its Last-Modified age).
+ * Once stale it is revalidated with If-None-Match / If-Modified-Since, and a
+ * 304 refreshes the stored headers and serves the stored body. Responses marked
+ * no-store, bodies that spilled to disk and "Vary: *" are never stored; a
+ * successful POST, PUT or DELETE invalidates the entry for its URL.
+ *
+ * Entries live in memory in an LRU bounded by total bytes. With the disk tier
+ * enabled they are also written to the Http_Cache table (bodies go through
+ * {@link BodyStore}) and promoted back to memory on a memory miss. Reads of an
+ * entry only note the access time; it is written with the next store, which is
+ * also the only place rows are evicted by it.
+ *
+ * Served (HIT) responses are not stored in the history again.
+ *
+ * Configuration (system properties):
+ *   creo.http.cache               enable the cache, default false
+ *   creo.http.cache.maxBytes      memory budget, default 32 MB
+ *   creo.http.cache.disk          enable the SQLite tier, default false
+ *   creo.http.cache.diskMaxBytes  disk budget, default 256 MB
+ */
+public class HttpResponseCache {
+    private static final Set<Integer> CACHEABLE_STATUS = Set.of(200, 203, 204, 300, 301, 308, 404, 410);
+    private static final Gson gson = new Gson();
+
+    // Outcome of a request that went through the cache
+    enum Status { HIT, REVALIDATED, MISS, BYPASS }
+
+    // Sends a request over the network; throws like the perform* methods of HttpClientService
+    interface Fetcher {
+        HttpResponse fetch(HttpRequestData request) throws Exception;
+    }
+
+    // Non-blocking Fetcher, for HttpClientService.executeRequestAsync
+    interface AsyncFetcher {
+        CompletableFuture<HttpResponse> fetch(HttpRequestData request);
+    }
+
+    private final long maxBytes;
+    private final boolean diskEnabled;
+    private final long diskMaxBytes;
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes = 0;
+    private final Map<String, Long> pendingTouches = new ConcurrentHashMap<>();  // key -> Last_Access not yet on disk
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+
+    public HttpResponseCache() {
+        this(Long.getLong("creo.http.cache.maxBytes", 32L * 1024 * 1024),
+                Boolean.parseBoolean(System.getProperty("creo.http.cache.disk", "false")),
+                Long.getLong("creo.http.cache.diskMaxBytes", 256L * 1024 * 1024));
+    }
+
+    public HttpResponseCache(long maxBytes, boolean diskEnabled, long diskMaxBytes) {
+        this.maxBytes = maxBytes;
+        this.diskEnabled = diskEnabled;
+        this.diskMaxBytes = diskMaxBytes;
+    }
+
+    // Serve a GET from the cache, revalidate it, or fetch and store it
+    public HttpResponse execute(HttpRequestData request, RequestTiming timing, Fetcher fetcher) throws Exception {
+        Lookup lookup = new Lookup(request, timing);
+        if (lookup.served != null) return lookup.served;
+        return lookup.complete(fetcher.fetch(lookup.outgoing));
+    }
+
+    // Same as execute, without blocking: the lookup (which may read the disk tier) runs on the executor, not the caller's thread
+    public CompletableFuture<HttpResponse> executeAsync(HttpRequestData request, RequestTiming timing, AsyncFetcher fetcher, Executor executor) {
+        AtomicReference<CompletableFuture<HttpResponse>> fetched = new AtomicReference<>();
+        AtomicReference<CompletableFuture<HttpResponse>> result = new AtomicReference<>();
+        result.set(CompletableFuture.supplyAsync(() -> {
+            Lookup lookup = new Lookup(request, timing);
+            if (lookup.served != null) return CompletableFuture.completedFuture(lookup.served);
+            CompletableFuture<HttpResponse> sent = fetcher.fetch(lookup.outgoing);
+            fetched.set(sent);
+            if (result.get() != null && result.get().isCancelled()) sent.cancel(true);  // cancelled while it was being sent
+            return sent.thenApply(lookup::complete);
+        }, executor).thenCompose(response -> response));
+        // Cancelling before the lookup finished means nothing is sent; after that it aborts the exchange
+        result.get().whenComplete((response, error) -> {
+            CompletableFuture<HttpResponse> sent = fetched.get();
+            if (result.get().isCancelled() && sent != null) sent.cancel(true);
+        });
+        return result.get();
+    }
+
+    /**
+     * One request through the cache: the constructor either serves it
+     * (served != null) or decides what to send (outgoing), and complete()
+     * handles the network response.
+     */
+    private class Lookup {
+        final HttpRequestData request;
+        final Map<String, String> requestDirectives;
+        final String key;
+        CacheEntry entry;
+        HttpResponse served;
+        HttpRequestData outgoing;
+        boolean bypass;
+        long requestTime;
+
+        Lookup(HttpRequestData request, RequestTiming timing) {
+            this.request = request;
+            this.requestDirectives = directives(requestHeader(request, "Cache-Control"));
+            this.key = request.getUrl();
+            if (requestDirectives.containsKey("no-store")) {
+                bypassed.incrementAndGet();
+                bypass = true;
+                outgoing = request;
+                return;
+            }
+
+            entry = get(key);
+            if (entry != null && !entry.matchesVary(request)) {
+                entry = null;
+            }
+
+            long now = System.currentTimeMillis();
+            if (entry != null && entry.canServeWithoutValidation(now, requestDirectives)) {
+                hits.incrementAndGet();
+                timing.markServedFromCache();
+                served = entry.toHttpResponse(Status.HIT, timing);
+                return;
+            }
+
+            outgoing = entry != null ? entry.conditional(request) : request;
+            requestTime = System.currentTimeMillis();
+        }
+
+        HttpResponse complete(HttpResponse response) {
+            if (bypass) {
+                response.setCacheStatus(Status.BYPASS);
+                return response;
+            }
+            long responseTime = System.currentTimeMillis();
+
+            if (entry != null && outgoing != request && response.getStatusCode() == 304 && !response.isError()) {
+                CacheEntry refreshed = entry.revalidated(response.getHeaders(), requestTime, responseTime);
+                put(key, refreshed);
+                revalidated.incrementAndGet();
+                return refreshed.toHttpResponse(Status.REVALIDATED, response.getTiming());
+            }
+
+            misses.incrementAndGet();
+            response.setCacheStatus(Status.MISS);
+            if (isStorable(requestDirectives, response)) {
+                put(key, CacheEntry.from(request, response, requestTime, responseTime));
+            } else if (entry != null && !response.isError()) {
+                remove(key);
+            }
+            return response;
+        }
+    }
+
+    // Drop the entry for a URL, e.g. after a successful unsafe request to it
+    public void invalidate(String url) {
+        remove(url);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+        pendingTouches.clear();
+        if (diskEnabled) {
+            try (Connection con = DBHandle.connect(); Statement s = con.createStatement()) {
+                s.executeUpdate("DELETE FROM Http_Cache;");
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private boolean isStorable(Map<String, String> requestDirectives, HttpResponse response) {
+        if (response.isError() || !CACHEABLE_STATUS.contains(response.getStatusCode())) return false;
+        if (response.isBodyTruncated()) return false;
+        Map<String, String> responseDirectives = directives(header(response.getHeaders(), "Cache-Control"));
+        if (requestDirectives.containsKey("no-store") || responseDirectives.containsKey("no-store")) return false;
+        String vary = header(response.getHeaders(), "Vary");
+        if (vary != null && vary.trim().equals("*")) return false;
+        // Without freshness information or a validator the entry could never be used
+        return responseDirectives.containsKey("max-age") || header(response.getHeaders(), "Expires") != null
+                || header(response.getHeaders(), "ETag") != null || header(response.getHeaders(), "Last-Modified") != null;
+    }
+
+    private CacheEntry get(String key) {
+        synchronized (this) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (diskEnabled) pendingTouches.put(key, System.currentTimeMillis());
+                return entry;
+            }
+        }
+        if (!diskEnabled) return null;
+        CacheEntry entry = loadFromDisk(key);
+        if (entry != null) {
+            diskHits.incrementAndGet();
+            putInMemory(key, entry);
+        }
+        return entry;
+    }
+
+    private void put(String key, CacheEntry entry) {
+        putInMemory(key, entry);
+        if (diskEnabled) {
+            saveToDisk(key, entry);
+        }
+    }
+
+    private synchronized void putInMemory(String key, CacheEntry entry) {
+        CacheEntry previous = entries.remove(key);
+        if (previous != null) totalBytes -= previous.getSize();
+        if (entry.getSize() > maxBytes) return;  // would evict everything else
+        entries.put(key, entry);
+        totalBytes += entry.getSize();
+        Iterator<CacheEntry> eldest = entries.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().getSize();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (this) {
+            CacheEntry previous = entries.remove(key);
+            if (previous != null) totalBytes -= previous.getSize();
+        }
+        pendingTouches.remove(key);
+        if (diskEnabled) {
+            try (Connection con = DBHandle.connect();
+                 PreparedStatement p = con.prepareStatement("DELETE FROM Http_Cache WHERE Cache_Key = ?;")) {
+                p.setString(1, key);
+                p.executeUpdate();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private CacheEntry loadFromDisk(String key) {
+        String select = "SELECT Entry, Body_Hash FROM Http_Cache WHERE Cache_Key = ?;";
+        try (Connection con = DBHandle.connectReadOnly();
+             PreparedStatement p = con.prepareStatement(select)) {
+            p.setString(1, key);
+            try (ResultSet r = p.executeQuery()) {
+                if (!r.next()) return null;
+                CacheEntry entry = gson.fromJson(r.getString("Entry"), CacheEntry.class);
+                String bodyHash = r.getString("Body_Hash");
+                byte[] body = bodyHash != null ? BodyStore.loadBytes(bodyHash) : null;
+                entry.setBody(body != null ? body : new byte[0]);
+                pendingTouches.put(key, System.currentTimeMillis());
+                return entry;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Write the access times noted since the last store, so eviction sees them
+    private void flushTouches(Connection con) throws SQLException {
+        if (pendingTouches.isEmpty()) return;
+        try (PreparedStatement p = con.prepareStatement("UPDATE Http_Cache SET Last_Access = MAX(Last_Access, ?) WHERE Cache_Key = ?;")) {
+            for (String key : new ArrayList<>(pendingTouches.keySet())) {
+                Long time = pendingTouches.remove(key);
+                if (time == null) continue;
+                p.setLong(1, time);
+                p.setString(2, key);
+                p.addBatch();
+            }
+            p.executeBatch();
+        }
+    }
+
+    // Write one entry and evict the least recently used rows beyond the disk budget, in one transaction
+    private void saveToDisk(String key, CacheEntry entry) {
+        String upsert = "INSERT INTO Http_Cache(Cache_Key, Entry, Body_Hash, Size, Last_Access) VALUES (?, ?, ?, ?, ?) " +
+                "ON CONFLICT(Cache_Key) DO UPDATE SET Entry = excluded.Entry, Body_Hash = excluded.Body_Hash, " +
+                "Size = excluded.Size, Last_Access = excluded.Last_Access;";
+        try (Connection con = DBHandle.connect()) {
+            con.setAutoCommit(false);
+            try {
+                try (PreparedStatement p = con.prepareStatement(upsert)) {
+                    p.setString(1, key);
+                    p.setString(2, gson.toJson(entry));
+                    p.setString(3, BodyStore.put(con, entry.getBody()));
+                    p.setLong(4, entry.getSize());
+                    p.setLong(5, System.currentTimeMillis());
+                    p.executeUpdate();
+                }
+                flushTouches(con);
+                evictFromDisk(con);
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void evictFromDisk(Connection con) throws SQLException {
+        long diskBytes;
+        try (Statement s = con.createStatement();
+             ResultSet r = s.executeQuery("SELECT COALESCE(SUM(Size), 0) FROM Http_Cache;")) {
+            diskBytes = r.next() ? r.getLong(1) : 0;
+        }
+        if (diskBytes <= diskMaxBytes) return;
+        List<String> victims = new ArrayList<>();
+        try (Statement s = con.createStatement();
+             ResultSet r = s.executeQuery("SELECT Cache_Key, Size FROM Http_Cache ORDER BY Last_Access;")) {
+            while (diskBytes > diskMaxBytes && r.next()) {
+                victims.add(r.getString("Cache_Key"));
+                diskBytes -= r.getLong("Size");
+            }
+        }
+        try (PreparedStatement p = con.prepareStatement("DELETE FROM Http_Cache WHERE Cache_Key = ?;")) {
+            for (String victim : victims) {
+                p.setString(1, victim);
+                p.addBatch();
+            }
+            p.executeBatch();
+        }
+        evictions.addAndGet(victims.size());
+    }
+
+    // Share of cacheable lookups answered from the cache, with or without revalidation
+    public double getHitRatio() {
+        long served = hits.get() + revalidated.get();
+        long lookups = served + misses.get();
+        return lookups == 0 ? 0 : (double) served / lookups;
+    }
+
+    public synchronized String getStats() {
+        return String.format("HTTP cache: hits=%d revalidated=%d misses=%d bypassed=%d hitRatio=%.1f%% entries=%d bytes=%d/%d evictions=%d%s",
+                hits.get(), revalidated.get(), misses.get(), bypassed.get(), getHitRatio() * 100,
+                entries.size(), totalBytes, maxBytes, evictions.get(),
+                diskEnabled ? " diskHits=" + diskHits.get() : "");
+    }
+
+    // Parse a Cache-Control value into directive -> argument ("" when there is none)
+    static Map<String, String> directives(String cacheControl) {
+        Map<String, String> result = new HashMap<>();
+        if (cacheControl == null) return result;
+        for (String part : cacheControl.split(",")) {
+            String[] kv = part.trim().split("=", 2);
+            if (kv[0].isEmpty()) continue;
+            result.put(kv[0].toLowerCase(Locale.ROOT), kv.length == 2 ? kv[1].trim().replace("\"", "") : "");
+        }
+        return result;
+    }
+
+    static long seconds(Map<String, String> directives, String name) {
+        try {
+            return directives.containsKey(name) ? Long.parseLong(directives.get(name)) : -1;
+        } catch (NumberFormatException e) {
+            return 0;  // an invalid max-age means stale (RFC 9111 4.2.1)
+        }
+    }
+
+    static long parseDate(String value) {
+        if (value == null) return -1;
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    static String header(Map<String, List<String>> headers, String name) {
+        if (headers == null) return null;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey()) && header.getValue() != null && !header.getValue().isEmpty()) {
+                return String.join(", ", header.getValue());
+            }
+        }
+        return null;
+    }
+
+    static String requestHeader(HttpRequestData request, String name) {
+        if (request.getHeaders() == null) return null;
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) return header.getValue();
+        }
+        return null;
+    }
+}
+
+// One stored response. The body is kept out of the serialized form; the disk tier stores it in BodyStore.
+class CacheEntry {
+    // Upper bound for heuristic freshness
+    private static final long MAX_HEURISTIC_MILLIS = 24L * 60 * 60 * 1000;
+
+    private String url;
+    private int statusCode;
+    private Map<String, List<String>> headers;
+    private String contentType;
+    private String charset;                   // null for binary bodies
+    private boolean binary;
+    private Map<String, String> varyValues;   // request header values the response varies on
+    private long requestTime, responseTime;   // epoch millis around the exchange that produced it
+    private transient byte[] body;            // as received
+    private transient long size = -1;
+
+    static CacheEntry from(HttpRequestData request, HttpResponse response, long requestTime, long responseTime) {
+        CacheEntry entry = new CacheEntry();
+        entry.url = request.getUrl();
+        entry.statusCode = response.getStatusCode();
+        entry.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        entry.headers.putAll(response.getHeaders());
+        entry.contentType = response.getContentType();
+        ResponseBody handle = response.getBodyHandle();
+        if (handle != null) {
+            entry.binary = handle.isBinary();
+            entry.charset = handle.charset() != null ? handle.charset().name() : null;
+            entry.body = handle.bytes();
+        } else {
+            entry.charset = "UTF-8";
+            entry.body = response.getBody() != null ? response.getBody().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        }
+        entry.varyValues = new HashMap<>();
+        String vary = HttpResponseCache.header(response.getHeaders(), "Vary");
+        if (vary != null) {
+            for (String name : vary.split(",")) {
+                if (!name.isBlank()) {
+                    String lower = name.trim().toLowerCase(Locale.ROOT);
+                    entry.varyValues.put(lower, HttpResponseCache.requestHeader(request, lower));
+                }
+            }
+        }
+        entry.requestTime = requestTime;
+        entry.responseTime = responseTime;
+        return entry;
+    }
+
+    byte[] getBody() { return body; }
+    void setBody(byte[] body) {
+        this.body = body;
+        this.size = -1;
+    }
+
+    // Approximate heap footprint: body bytes plus headers
+    long getSize() {
+        if (size < 0) {
+            long bytes = 256 + (body != null ? body.length : 0);
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                bytes += 2L * (header.getKey().length() + String.join("", header.getValue()).length()) + 64;
+            }
+            size = bytes;
+        }
+        return size;
+    }
+
+    boolean matchesVary(HttpRequestData request) {
+        if (varyValues == null) return true;
+        for (Map.Entry<String, String> vary : varyValues.entrySet()) {
+            if (!Objects.equals(vary.getValue(), HttpResponseCache.requestHeader(request, vary.getKey()))) return false;
+        }
+        return true;
+    }
+
+    // RFC 9111 4.2.1: max-age, else Expires - Date, else the Last-Modified heuristic
+    long freshnessLifetime() {
+        Map<String, String> cc = HttpResponseCache.directives(header("Cache-Control"));
+        long maxAge = HttpResponseCache.seconds(cc, "max-age");
+        if (maxAge >= 0) return maxAge * 1000;
+        long date = dateValue();
+        String expiresHeader = header("Expires");
+        if (expiresHeader != null) {
+            long expires = HttpResponseCache.parseDate(expiresHeader);
+            return expires < 0 ? 0 : Math.max(0, expires - date);  // invalid Expires means already expired
+        }
+        long lastModified = HttpResponseCache.parseDate(header("Last-Modified"));
+        if (lastModified > 0 && lastModified < date) {
+            return Math.min((date - lastModified) / 10, MAX_HEURISTIC_MILLIS);
+        }
+        return 0;
+    }
+
+    // RFC 9111 4.2.3
+    long currentAge(long now) {
+        long apparentAge = Math.max(0, responseTime - dateValue());
+        long ageValue = 0;
+        try {
+            String age = header("Age");
+            if (age != null) ageValue = Long.parseLong(age.trim()) * 1000;
+        } catch (NumberFormatException ignored) {
+        }
+        long correctedAgeValue = ageValue + (responseTime - requestTime);
+        long correctedInitialAge = Math.max(apparentAge, correctedAgeValue);
+        return correctedInitialAge + (now - responseTime);
+    }
+
+    boolean canServeWithoutValidation(long now, Map<String, String> requestDirectives) {
+        Map<String, String> cc = HttpResponseCache.directives(header("Cache-Control"));
+        if (cc.containsKey("no-cache") || requestDirectives.containsKey("no-cache")) return false;
+        long age = currentAge(now);
+        long requestMaxAge = HttpResponseCache.seconds(requestDirectives, "max-age");
+        if (requestMaxAge >= 0 && age > requestMaxAge * 1000) return false;
+        return freshnessLifetime() > age;
+    }
+
+    // The request with validators added, or the request itself when there is nothing to validate with
+    HttpRequestData conditional(HttpRequestData request) {
+        String etag = header("ETag");
+        String lastModified = header("Last-Modified");
+        if (etag == null && lastModified == null) return request;
+        HttpRequestData copy = new HttpRequestData(request.getUrl(), request.getMethod());
+        Map<String, String> headers = new HashMap<>(request.getHeaders() != null ? request.getHeaders() : Map.of());
+        if (etag != null && HttpResponseCache.requestHeader(request, "If-None-Match") == null) {
+            headers.put("If-None-Match", etag);
+        }
+        if (lastModified != null && HttpResponseCache.requestHeader(request, "If-Modified-Since") == null) {
+            headers.put("If-Modified-Since", lastModified);
+        }
+        copy.setHeaders(headers);
+        copy.setBody(request.getBody());
+        copy.setTimeout(request.getTimeout());
+        return copy;
+    }
+
+    // RFC 9111 4.3.4: headers of the 304 replace the stored ones
+    CacheEntry revalidated(Map<String, List<String>> notModifiedHeaders, long requestTime, long responseTime) {
+        CacheEntry updated = new CacheEntry();
+        updated.url = url;
+        updated.statusCode = statusCode;
+        updated.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        updated.headers.putAll(headers);
+        if (notModifiedHeaders != null) {
+            notModifiedHeaders.forEach((name, values) -> {
+                if (!name.equalsIgnoreCase("Content-Length")) updated.headers.put(name, values);
+            });
+        }
+        updated.contentType = contentType;
+        updated.charset = charset;
+        updated.binary = binary;
+        updated.varyValues = varyValues;
+        updated.requestTime = requestTime;
+        updated.responseTime = responseTime;
+        updated.body = body;
+        return updated;
+    }
+
+    HttpResponse toHttpResponse(HttpResponseCache.Status status, RequestTiming timing) {
+        Map<String, List<String>> responseHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        responseHeaders.putAll(headers);
+        long ageSeconds = Math.max(0, currentAge(System.currentTimeMillis()) / 1000);
+        responseHeaders.put("Age", List.of(String.valueOf(ageSeconds)));
+
+        HttpResponse response = new HttpResponse();
+        response.setStatusCode(statusCode);
+        response.setUrl(url);
+        response.setHeaders(responseHeaders);
+        response.setContentType(contentType);
+        ResponseBody bodyHandle = ResponseBody.ofBytes(body, binary ? null : charsetOrDefault(), binary);
+        response.setBodyHandle(bodyHandle);
+        response.setBodySize(bodyHandle.size());
+        response.setTiming(timing);
+        response.setCacheStatus(status);
+        return response;
+    }
+
+    private Charset charsetOrDefault() {
+        try {
+            return Charset.forName(charset);
+        } catch (Exception e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    private long dateValue() {
+        long date = HttpResponseCache.parseDate(header("Date"));
+        return date > 0 ? date : responseTime;
+    }
+
+    private String header(String name) {
+        return HttpResponseCache.header(headers, name);
+    }
+}
@@ -0,0 +1,92 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Shows an image body (PNG, JPEG, GIF, BMP - whatever ImageIO reads). The image
+ * is decoded in the background straight from the body stream; very large
+ * images are subsampled while decoding so a huge bitmap never lands on the heap.
+ */
+public class ImagePreview extends JPanel {
+    static final int MAX_DIMENSION = 4096;
+
+    private final JLabel imageLabel = new JLabel("", SwingConstants.CENTER);
+    private final JLabel infoLabel = new JLabel(" ");
+    private SwingWorker<BufferedImage, Void> loader;
+    private ResponseBody shown;
+
+    public ImagePreview() {
+        super(new BorderLayout());
+        add(new JScrollPane(imageLabel), BorderLayout.CENTER);
+        add(infoLabel, BorderLayout.SOUTH);
+    }
+
+    // Whether this looks like something ImageIO can show
+    public static boolean isImageType(String contentType) {
+        if (contentType == null) return false;
+        String type = contentType.toLowerCase(java.util.Locale.ROOT);
+        int semicolon = type.indexOf(';');
+        String mime = (semicolon >= 0 ? type.substring(0, semicolon) : type).trim();
+        return mime.startsWith("image/") && ImageIO.getImageReadersByMIMEType(mime).hasNext();
+    }
+
+    public void setBody(ResponseBody body) {
+        if (body == shown) return;
+        shown = body;
+        if (loader != null) loader.cancel(true);
+        imageLabel.setIcon(null);
+        imageLabel.setText("Loading image...");
+        infoLabel.setText(" ");
+        if (body == null) {
+            imageLabel.setText("");
+            return;
+        }
+
+        loader = new SwingWorker<>() {
+            private String info;
+
+            @Override
+            protected BufferedImage doInBackground() throws IOException {
+                try (InputStream in = body.openStream();
+                     ImageInputStream images = ImageIO.createImageInputStream(in)) {
+                    Iterator<ImageReader> readers = ImageIO.getImageReaders(images);
+                    if (!readers.hasNext()) throw new IOException("Not a readable image");
+                    ImageReader reader = readers.next();
+                    try {
+                        reader.setInput(images, true, true);
+                        int width = reader.getWidth(0), height = reader.getHeight(0);
+                        int step = Math.max(1, (Math.max(width, height) + MAX_DIMENSION - 1) / MAX_DIMENSION);
+                        ImageReadParam param = reader.getDefaultReadParam();
+                        param.setSourceSubsampling(step, step, 0, 0);
+                        info = reader.getFormatName().toUpperCase() + ", " + width + " x " + height + " px, "
+                                + body.size() + " bytes" + (step > 1 ? " (shown at 1/" + step + ")" : "");
+                        return reader.read(0, param);
+                    } finally {
+                        reader.dispose();
+                    }
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || body != shown) return;
+                try {
+                    imageLabel.setIcon(new ImageIcon(get()));
+                    imageLabel.setText("");
+                    infoLabel.setText(info);
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    imageLabel.setText("Could not decode the image: " + cause.getMessage());
+                }
+            }
+        };
+        loader.execute();
+    }
+}
@@ -0,0 +1,161 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Throughput and allocation benchmark: JsonPrettyPrinter vs the previous
+ * char-at-a-time formatter from HttpClientService.
+ *
+ * Usage: java -Xmx4g -cp "out/production/Creo:lib/*" JsonFormatBenchmark [sizes...]
+ * Sizes are given in KB and default to 1, 1024 and 102400 (1 KB, 1 MB, 100 MB).
+ * Allocation is measured per thread with com.sun.management.ThreadMXBean.
+ */
+public class JsonFormatBenchmark {
+    private static final long TARGET_NANOS = 2_000_000_000L;  // time per measured run
+
+    public static void main(String[] args) {
+        List<Integer> sizesKb = new ArrayList<>();
+        for (String arg : args) {
+            sizesKb.add(Integer.parseInt(arg));
+        }
+        if (sizesKb.isEmpty()) {
+            sizesKb.add(1);
+            sizesKb.add(1024);
+            sizesKb.add(100 * 1024);
+        }
+
+        System.out.println("===========================================");
+        System.out.println("  JSON FORMATTER BENCHMARK");
+        System.out.println("===========================================\n");
+        System.out.printf("%-10s %-10s %12s %12s %16s%n", "Payload", "Formatter", "ops/s", "MB/s", "alloc/op (MB)");
+
+        for (int kb : sizesKb) {
+            String json = generateJson(kb * 1024);
+            // The legacy formatter spreads empty containers over two lines; otherwise output must match
+            String expected = legacyFormat(json).replaceAll("\\{\\n *\\n *}", "{}").replaceAll("\\[\\n *\\n *]", "[]");
+            if (!JsonPrettyPrinter.format(json).equals(expected)) {
+                System.out.println("  ⚠️  Outputs differ for " + kb + " KB payload");
+            }
+            run(kb, "legacy", json, JsonFormatBenchmark::legacyFormat);
+            run(kb, "streaming", json, JsonPrettyPrinter::format);
+        }
+    }
+
+    private static void run(int kb, String name, String json, UnaryOperator<String> formatter) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        // Warm-up
+        long warmupEnd = System.nanoTime() + TARGET_NANOS / 2;
+        int sink = 0;
+        do {
+            sink += formatter.apply(json).length();
+        } while (System.nanoTime() < warmupEnd);
+
+        long ops = 0;
+        long allocBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink += formatter.apply(json).length();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < TARGET_NANOS);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocBefore;
+
+        double seconds = elapsed / 1e9;
+        double opsPerSecond = ops / seconds;
+        double mbPerSecond = opsPerSecond * json.length() / (1024.0 * 1024.0);
+        double allocPerOpMb = allocated / (double) ops / (1024.0 * 1024.0);
+        System.out.printf("%-10s %-10s %12.1f %12.1f %16.3f%n", kb + " KB", name, opsPerSecond, mbPerSecond, allocPerOpMb);
+        if (sink == 42) System.out.print("");  // keep results alive
+    }
+
+    // Minified JSON made of realistic records, close to the requested size
+    private static String generateJson(int targetBytes) {
+        StringBuilder sb = new StringBuilder(targetBytes + 256);
+        sb.append('[');
+        int i = 0;
+        while (sb.length() < targetBytes) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"id\":").append(i)
+                    .append(",\"title\":\"Item ").append(i).append(" with \\\"quotes\\\" and, commas: {}\"")
+                    .append(",\"tags\":[\"alpha\",\"beta\",\"gamma\"],\"active\":").append(i % 2 == 0)
+                    .append(",\"meta\":{\"score\":").append(i * 0.5).append(",\"empty\":{},\"list\":[]}}");
+            i++;
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    // The formatter HttpClientService used before JsonPrettyPrinter, kept for comparison
+    private static String legacyFormat(String json) {
+        json = json.trim();
+        if (!json.startsWith("{") && !json.startsWith("[")) {
+            return json;
+        }
+
+        StringBuilder formatted = new StringBuilder();
+        int indent = 0;
+        boolean inString = false;
+        boolean escape = false;
+
+        for (char c : json.toCharArray()) {
+            if (escape) {
+                formatted.append(c);
+                escape = false;
+                continue;
+            }
+
+            if (c == '\\' && inString) {
+                escape = true;
+                formatted.append(c);
+                continue;
+            }
+
+            if (c == '"' && !escape) {
+                inString = !inString;
+            }
+
+            if (!inString) {
+                switch (c) {
+                    case '{':
+                    case '[':
+                        formatted.append(c).append('\n');
+                        indent++;
+                        addIndent(formatted, indent);
+                        break;
+                    case '}':
+                    case ']':
+                        formatted.append('\n');
+                        indent--;
+                        addIndent(formatted, indent);
+                        formatted.append(c);
+                        break;
+                    case ',':
+                        formatted.append(c).append('\n');
+                        addIndent(formatted, indent);
+                        break;
+                    case ':':
+                        formatted.append(c).append(' ');
+                        break;
+                    default:
+                        if (!Character.isWhitespace(c)) {
+                            formatted.append(c);
+                        }
+                }
+            } else {
+                formatted.append(c);
+            }
+        }
+
+        return formatted.toString();
+    }
+
+    private static void addIndent(StringBuilder sb, int indent) {
+        for (int i = 0; i < indent * 2; i++) {
+            sb.append(' ');
+        }
+    }
+}
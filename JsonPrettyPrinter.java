@@ -0,0 +1,262 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+/**
+ * Streaming JSON pretty-printer.
+ *
+ * Input is read in fixed-size chunks and output goes through a small char
+ * buffer, so memory use does not depend on the size of the document. Runs of
+ * string content are copied in bulk and newline+indentation is copied from one
+ * cached array instead of being appended a space at a time. Like the previous
+ * formatter it only re-flows whitespace and never validates the input; text
+ * that does not start with '{' or '[' is passed through unchanged.
+ */
+public class JsonPrettyPrinter {
+    // Bodies above this size are formatted into a temp file rather than a string
+    public static final int INLINE_FORMAT_LIMIT = 1024 * 1024;
+
+    private static final int CHUNK_SIZE = 8192;
+    private static final int INDENT_WIDTH = 2;
+    private static final int CACHED_DEPTH = 64;
+    // '\n' followed by enough spaces for CACHED_DEPTH levels
+    private static final char[] NEWLINE_INDENT = buildNewlineIndent();
+
+    private final Writer out;
+    private final char[] outBuffer;
+    private int outPos = 0;
+
+    private int depth = 0;
+    private boolean started = false;
+    private boolean passthrough = false;
+    private boolean inString = false;
+    private boolean escape = false;
+    private boolean pendingOpen = false;  // '{' or '[' written, newline deferred in case it is empty
+
+    private JsonPrettyPrinter(Writer out, int bufferSize) {
+        this.out = out;
+        this.outBuffer = new char[bufferSize];
+    }
+
+    // Format a whole string; output is sized up front to avoid repeated growth
+    public static String format(String json) {
+        StringBuilder sb = new StringBuilder(json.length() + (json.length() >> 2) + 16);
+        int chunkSize = Math.max(16, Math.min(CHUNK_SIZE, json.length()));
+        JsonPrettyPrinter printer = new JsonPrettyPrinter(new StringBuilderWriter(sb), chunkSize);
+        char[] chunk = new char[chunkSize];
+        try {
+            for (int pos = 0; pos < json.length(); pos += chunkSize) {
+                int len = Math.min(chunkSize, json.length() - pos);
+                json.getChars(pos, pos + len, chunk, 0);
+                printer.feed(chunk, 0, len);
+            }
+            printer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // cannot happen with an in-memory writer
+        }
+        return sb.toString();
+    }
+
+    // Format from a reader to a writer, chunk by chunk
+    public static void format(Reader in, Writer out) throws IOException {
+        JsonPrettyPrinter printer = new JsonPrettyPrinter(out, CHUNK_SIZE);
+        char[] chunk = new char[CHUNK_SIZE];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            printer.feed(chunk, 0, read);
+        }
+        printer.flush();
+    }
+
+    /**
+     * Format from a reader and hand output to the sink in pieces of roughly
+     * {@code flushChars} characters as soon as they are ready, so a viewer can
+     * show the start of the document before the rest is formatted.
+     */
+    public static void formatIncrementally(Reader in, int flushChars, Consumer<String> sink) throws IOException {
+        format(in, new ChunkedSinkWriter(flushChars, sink));
+    }
+
+    private void feed(char[] buf, int off, int len) throws IOException {
+        int i = off;
+        int end = off + len;
+        while (i < end) {
+            if (passthrough) {
+                write(buf, i, end - i);
+                return;
+            }
+            if (inString) {
+                int start = i;
+                while (i < end) {
+                    char d = buf[i++];
+                    if (escape) {
+                        escape = false;
+                    } else if (d == '\\') {
+                        escape = true;
+                    } else if (d == '"') {
+                        inString = false;
+                        break;
+                    }
+                }
+                write(buf, start, i - start);
+                continue;
+            }
+
+            char c = buf[i++];
+            if (Character.isWhitespace(c)) continue;
+
+            if (!started) {
+                started = true;
+                if (c != '{' && c != '[') {
+                    passthrough = true;
+                    write(c);
+                    continue;
+                }
+            }
+            if (pendingOpen) {
+                pendingOpen = false;
+                if (c == '}' || c == ']') {
+                    write(c);  // keep empty containers on one line
+                    continue;
+                }
+                depth++;
+                newline();
+            }
+
+            switch (c) {
+                case '{':
+                case '[':
+                    write(c);
+                    pendingOpen = true;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    newline();
+                    write(c);
+                    break;
+                case ',':
+                    write(c);
+                    newline();
+                    break;
+                case ':':
+                    write(c);
+                    write(' ');
+                    break;
+                case '"':
+                    write(c);
+                    inString = true;
+                    break;
+                default:
+                    write(c);
+            }
+        }
+    }
+
+    private void newline() throws IOException {
+        int spaces = Math.max(depth, 0) * INDENT_WIDTH;
+        int cached = Math.min(spaces, NEWLINE_INDENT.length - 1);
+        write(NEWLINE_INDENT, 0, cached + 1);
+        for (int i = cached; i < spaces; i += CACHED_DEPTH * INDENT_WIDTH) {
+            write(NEWLINE_INDENT, 1, Math.min(spaces - i, NEWLINE_INDENT.length - 1));
+        }
+    }
+
+    private void write(char c) throws IOException {
+        if (outPos == outBuffer.length) flushBuffer();
+        outBuffer[outPos++] = c;
+    }
+
+    private void write(char[] src, int off, int len) throws IOException {
+        if (len > outBuffer.length - outPos) {
+            flushBuffer();
+            if (len > outBuffer.length) {
+                out.write(src, off, len);
+                return;
+            }
+        }
+        System.arraycopy(src, off, outBuffer, outPos, len);
+        outPos += len;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (outPos > 0) {
+            out.write(outBuffer, 0, outPos);
+            outPos = 0;
+        }
+    }
+
+    private void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    private static char[] buildNewlineIndent() {
+        char[] chars = new char[1 + CACHED_DEPTH * INDENT_WIDTH];
+        java.util.Arrays.fill(chars, ' ');
+        chars[0] = '\n';
+        return chars;
+    }
+
+    // Unsynchronized writer over a StringBuilder (StringWriter goes through StringBuffer)
+    private static class StringBuilderWriter extends Writer {
+        private final StringBuilder sb;
+
+        StringBuilderWriter(StringBuilder sb) {
+            this.sb = sb;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            sb.append(cbuf, off, len);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Collects output and passes it on once at least flushChars are available
+    private static class ChunkedSinkWriter extends Writer {
+        private final int flushChars;
+        private final Consumer<String> sink;
+        private final StringBuilder pending;
+
+        ChunkedSinkWriter(int flushChars, Consumer<String> sink) {
+            this.flushChars = flushChars;
+            this.sink = sink;
+            this.pending = new StringBuilder(flushChars + CHUNK_SIZE);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            pending.append(cbuf, off, len);
+            if (pending.length() >= flushChars) {
+                emit();
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (pending.length() > 0) {
+                emit();
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+
+        private void emit() {
+            sink.accept(pending.toString());
+            pending.setLength(0);
+        }
+    }
+}
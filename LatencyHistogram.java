@@ -0,0 +1,98 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the spirit of HdrHistogram.
+ *
+ * Values are recorded in nanoseconds. Below 256 ns every value has its own
+ * bucket; above that each power of two is split into 128 linear sub-buckets,
+ * so any reported percentile is within 0.8% of the true value. The whole
+ * range up to 2^62 ns fits in a few thousand counters.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;      // 256
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;      // 128
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(0);
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexFor(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+        min.accumulateAndGet(value, Math::min);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() { return totalCount.get(); }
+    public long getMinNanos() { return totalCount.get() == 0 ? 0 : min.get(); }
+    public long getMaxNanos() { return max.get(); }
+
+    public double getMeanNanos() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalNanos.get() / count;
+    }
+
+    // Value at the given percentile (0-100), reported as the upper edge of its bucket
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    // Non-empty buckets as "lowerNanos,upperNanos,count" lines, for export
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder("lower_ns,upper_ns,count\n");
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = counts.get(i);
+            if (c > 0) {
+                sb.append(lowerBound(i)).append(',').append(upperBound(i)).append(',').append(c).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    static int indexFor(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);          // >= SUB_BUCKET_BITS
+        int shift = exponent - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_HALF;     // 0..127
+        return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * SUB_BUCKET_HALF + subBucket;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int exponent = SUB_BUCKET_BITS + offset / SUB_BUCKET_HALF;
+        int shift = exponent - (SUB_BUCKET_BITS - 1);
+        return ((long) (offset % SUB_BUCKET_HALF + SUB_BUCKET_HALF)) << shift;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int exponent = SUB_BUCKET_BITS + offset / SUB_BUCKET_HALF;
+        int shift = exponent - (SUB_BUCKET_BITS - 1);
+        return lowerBound(index) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,116 @@
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.function.Supplier;
+
+/**
+ * "Load Test" tab: runs the request currently in the editor N times at a given
+ * concurrency and shows latency percentiles, throughput and status codes live.
+ */
+public class LoadTestPanel extends JPanel {
+    private final HttpClientService httpClientService;
+    private final Supplier<HttpRequestData> requestSupplier;
+
+    private final JSpinner countSpinner = new JSpinner(new SpinnerNumberModel(100, 0, 10_000_000, 10));
+    private final JSpinner durationSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 86_400, 5));
+    private final JSpinner concurrencySpinner = new JSpinner(new SpinnerNumberModel(10, 1, 10_000, 1));
+    private final JSpinner rpsSpinner = new JSpinner(new SpinnerNumberModel(0.0, 0.0, 1_000_000.0, 10.0));
+    private final JButton startButton = new JButton("Start");
+    private final JButton stopButton = new JButton("Stop");
+    private final JButton exportButton = new JButton("Export");
+    private final JTextArea resultsArea = new JTextArea();
+    private final Timer refreshTimer;
+
+    private LoadTestRunner runner;
+
+    public LoadTestPanel(HttpClientService httpClientService, Supplier<HttpRequestData> requestSupplier) {
+        super(new BorderLayout());
+        this.httpClientService = httpClientService;
+        this.requestSupplier = requestSupplier;
+        this.refreshTimer = new Timer(500, e -> refresh());
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(new JLabel("Requests:"));
+        controls.add(countSpinner);
+        controls.add(new JLabel("Duration (s):"));
+        controls.add(durationSpinner);
+        controls.add(new JLabel("Concurrency:"));
+        controls.add(concurrencySpinner);
+        controls.add(new JLabel("Target RPS:"));
+        controls.add(rpsSpinner);
+        controls.add(startButton);
+        controls.add(stopButton);
+        controls.add(exportButton);
+
+        countSpinner.setToolTipText("Total requests (0 = until the duration is up)");
+        durationSpinner.setToolTipText("Run time in seconds (0 = until the request count is reached)");
+        rpsSpinner.setToolTipText("Requests per second across all workers (0 = as fast as possible)");
+
+        resultsArea.setEditable(false);
+        resultsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        stopButton.setEnabled(false);
+        exportButton.setEnabled(false);
+        startButton.addActionListener(e -> startRun());
+        stopButton.addActionListener(e -> {
+            if (runner != null) runner.stop();
+        });
+        exportButton.addActionListener(e -> exportResults());
+
+        add(controls, BorderLayout.NORTH);
+        add(new JScrollPane(resultsArea), BorderLayout.CENTER);
+    }
+
+    private void startRun() {
+        LoadTestConfig config;
+        HttpRequestData request = requestSupplier.get();
+        request.setBypassCache(true);  // measure the server, not the response cache
+        request.setBypassGovernor(true);  // the run's own concurrency, every failure counted, no retries
+        try {
+            config = new LoadTestConfig(request,
+                    ((Number) countSpinner.getValue()).longValue(),
+                    ((Number) durationSpinner.getValue()).longValue(),
+                    ((Number) concurrencySpinner.getValue()).intValue(),
+                    ((Number) rpsSpinner.getValue()).doubleValue());
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Load Test", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        runner = new LoadTestRunner(httpClientService, config);
+        startButton.setEnabled(false);
+        stopButton.setEnabled(true);
+        exportButton.setEnabled(false);
+        resultsArea.setText("Starting...");
+        refreshTimer.start();
+        runner.start(() -> SwingUtilities.invokeLater(() -> {
+            refreshTimer.stop();
+            refresh();
+            startButton.setEnabled(true);
+            stopButton.setEnabled(false);
+            exportButton.setEnabled(true);
+        }));
+    }
+
+    private void refresh() {
+        if (runner != null) {
+            // Load tests bypass the governor, so its host limits and retries play no part here
+            resultsArea.setText(runner.snapshot().toReport()
+                    + "\n" + httpClientService.getConnections().getStats() + "\n");
+        }
+    }
+
+    private void exportResults() {
+        if (runner == null) return;
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new java.io.File("load-test.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            Files.writeString(chooser.getSelectedFile().toPath(), runner.snapshot().toCsv(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Export failed: " + ex.getMessage(), "Load Test", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
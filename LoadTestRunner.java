@@ -0,0 +1,236 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs one request repeatedly against an endpoint.
+ *
+ * Each of the {@code concurrency} workers is a virtual thread that sends the
+ * request through the shared {@link HttpClientService} until the request count
+ * or the duration is used up. With a target RPS, send times are paced on a fixed
+ * schedule and latency is measured from the scheduled time rather than the
+ * actual send, so a slow server cannot hide its queueing delay (coordinated
+ * omission). Connections are warmed up before the clock starts with the test's
+ * own request (see {@link HttpClientService#warmUp(HttpRequestData, int)};
+ * {@code -Dcreo.loadtest.warmup=false} to include their setup). Results can be
+ * read with {@link #snapshot()} while the run is live.
+ */
+public class LoadTestRunner {
+    private static final boolean WARM_UP = Boolean.parseBoolean(System.getProperty("creo.loadtest.warmup", "true"));
+
+    private final HttpClientService httpClientService;
+    private final LoadTestConfig config;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+    private final AtomicLong issued = new AtomicLong();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile boolean stopped = false;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile ExecutorService executor;
+
+    public LoadTestRunner(HttpClientService httpClientService, LoadTestConfig config) {
+        this.httpClientService = httpClientService;
+        this.config = config;
+    }
+
+    // Start the run in the background; onFinished (optional) is called once all workers are done
+    public synchronized void start(Runnable onFinished) {
+        if (executor != null) {
+            throw new IllegalStateException("Load test already started");
+        }
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        Thread.ofVirtual().name("load-test-coordinator").start(() -> {
+            // Open the connections the workers will use before the clock starts, so setup is not counted as latency
+            if (WARM_UP) {
+                System.out.println("Load test warm-up: "
+                        + httpClientService.warmUp(config.getRequestData(), config.getConcurrency()).join());
+            }
+            startNanos = System.nanoTime();
+            for (int i = 0; i < config.getConcurrency(); i++) {
+                executor.submit(this::runWorker);
+            }
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            endNanos = System.nanoTime();
+            if (onFinished != null) onFinished.run();
+        });
+    }
+
+    // Stop issuing requests; in-flight requests are allowed to finish
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isRunning() {
+        return executor != null && endNanos == 0;
+    }
+
+    private void runWorker() {
+        long intervalNanos = config.getTargetRps() > 0 ? (long) (1_000_000_000L / config.getTargetRps()) : 0;
+        long deadline = config.getDurationSeconds() > 0
+                ? startNanos + TimeUnit.SECONDS.toNanos(config.getDurationSeconds()) : Long.MAX_VALUE;
+
+        while (!stopped) {
+            long sequence = issued.getAndIncrement();
+            if (config.getTotalRequests() > 0 && sequence >= config.getTotalRequests()) break;
+
+            long scheduled = System.nanoTime();
+            if (intervalNanos > 0) {
+                scheduled = startNanos + sequence * intervalNanos;
+                long wait;
+                while ((wait = scheduled - System.nanoTime()) > 0 && !stopped) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            if (stopped || scheduled >= deadline || System.nanoTime() >= deadline) break;
+
+            HttpResponse response = httpClientService.executeRequest(config.getRequestData());
+            long latency = System.nanoTime() - scheduled;
+
+            histogram.record(latency);
+            completed.increment();
+            statusCounts.computeIfAbsent(response.getStatusCode(), k -> new LongAdder()).increment();
+            if (response.isError() || response.getStatusCode() >= 400) {
+                errors.increment();
+                String key = response.isError()
+                        ? String.valueOf(response.getErrorMessage())
+                        : "HTTP " + response.getStatusCode();
+                errorCounts.computeIfAbsent(key, k -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    public LoadTestSnapshot snapshot() {
+        long now = endNanos != 0 ? endNanos : System.nanoTime();
+        long elapsed = startNanos == 0 ? 0 : now - startNanos;
+        Map<Integer, Long> statuses = new TreeMap<>();
+        statusCounts.forEach((k, v) -> statuses.put(k, v.sum()));
+        Map<String, Long> errorsByType = new TreeMap<>();
+        errorCounts.forEach((k, v) -> errorsByType.put(k, v.sum()));
+        return new LoadTestSnapshot(config, histogram, completed.sum(), errors.sum(), elapsed,
+                statuses, errorsByType, isRunning());
+    }
+}
+
+// Settings for one load-test run. A zero count or duration means "no limit"; at least one must be set.
+class LoadTestConfig {
+    private final HttpRequestData requestData;
+    private final long totalRequests;
+    private final long durationSeconds;
+    private final int concurrency;
+    private final double targetRps;
+
+    public LoadTestConfig(HttpRequestData requestData, long totalRequests, long durationSeconds,
+                          int concurrency, double targetRps) {
+        if (totalRequests <= 0 && durationSeconds <= 0) {
+            throw new IllegalArgumentException("Set a request count or a duration");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.requestData = requestData;
+        this.totalRequests = totalRequests;
+        this.durationSeconds = durationSeconds;
+        this.concurrency = concurrency;
+        this.targetRps = targetRps;
+    }
+
+    // Getters
+    public HttpRequestData getRequestData() { return requestData; }
+    public long getTotalRequests() { return totalRequests; }
+    public long getDurationSeconds() { return durationSeconds; }
+    public int getConcurrency() { return concurrency; }
+    public double getTargetRps() { return targetRps; }
+}
+
+// Point-in-time view of a load-test run
+class LoadTestSnapshot {
+    private final LoadTestConfig config;
+    private final LatencyHistogram histogram;
+    private final long completed, errors, elapsedNanos;
+    private final Map<Integer, Long> statusCounts;
+    private final Map<String, Long> errorCounts;
+    private final boolean running;
+
+    LoadTestSnapshot(LoadTestConfig config, LatencyHistogram histogram, long completed, long errors, long elapsedNanos,
+                     Map<Integer, Long> statusCounts, Map<String, Long> errorCounts, boolean running) {
+        this.config = config;
+        this.histogram = histogram;
+        this.completed = completed;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+        this.statusCounts = statusCounts;
+        this.errorCounts = errorCounts;
+        this.running = running;
+    }
+
+    public long getCompleted() { return completed; }
+    public long getErrors() { return errors; }
+    public boolean isRunning() { return running; }
+
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : completed / (elapsedNanos / 1e9);
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f ms", nanos / 1e6);
+    }
+
+    // Human-readable summary for the UI
+    public String toReport() {
+        StringBuilder sb = new StringBuilder();
+        HttpRequestData request = config.getRequestData();
+        sb.append(running ? "RUNNING" : "FINISHED").append("  ").append(request.getMethod()).append(' ').append(request.getUrl()).append('\n');
+        sb.append(String.format("Concurrency: %d   Target RPS: %s   Elapsed: %.1f s%n",
+                config.getConcurrency(), config.getTargetRps() > 0 ? String.valueOf(config.getTargetRps()) : "unlimited",
+                elapsedNanos / 1e9));
+        sb.append(String.format("Requests: %d   Errors: %d   Throughput: %.1f req/s%n%n", completed, errors, getThroughput()));
+        sb.append("Latency\n");
+        sb.append("  min    ").append(millis(histogram.getMinNanos())).append('\n');
+        sb.append("  mean   ").append(millis((long) histogram.getMeanNanos())).append('\n');
+        sb.append("  p50    ").append(millis(histogram.getValueAtPercentile(50))).append('\n');
+        sb.append("  p90    ").append(millis(histogram.getValueAtPercentile(90))).append('\n');
+        sb.append("  p99    ").append(millis(histogram.getValueAtPercentile(99))).append('\n');
+        sb.append("  p99.9  ").append(millis(histogram.getValueAtPercentile(99.9))).append('\n');
+        sb.append("  max    ").append(millis(histogram.getMaxNanos())).append("\n\n");
+        sb.append("Status codes\n");
+        statusCounts.forEach((status, count) ->
+                sb.append("  ").append(status == -1 ? "error" : String.valueOf(status)).append("  ").append(count).append('\n'));
+        if (!errorCounts.isEmpty()) {
+            sb.append("\nErrors\n");
+            errorCounts.forEach((message, count) -> sb.append("  ").append(count).append("  ").append(message).append('\n'));
+        }
+        return sb.toString();
+    }
+
+    // Summary followed by the raw histogram buckets, for export
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("metric,value\n");
+        sb.append("requests,").append(completed).append('\n');
+        sb.append("errors,").append(errors).append('\n');
+        sb.append("elapsed_s,").append(elapsedNanos / 1e9).append('\n');
+        sb.append("throughput_rps,").append(getThroughput()).append('\n');
+        sb.append("p50_ns,").append(histogram.getValueAtPercentile(50)).append('\n');
+        sb.append("p90_ns,").append(histogram.getValueAtPercentile(90)).append('\n');
+        sb.append("p99_ns,").append(histogram.getValueAtPercentile(99)).append('\n');
+        sb.append("p99.9_ns,").append(histogram.getValueAtPercentile(99.9)).append('\n');
+        sb.append("max_ns,").append(histogram.getMaxNanos()).append('\n');
+        statusCounts.forEach((status, count) -> sb.append("status_").append(status).append(',').append(count).append('\n'));
+        sb.append('\n').append(histogram.toCsv());
+        return sb.toString();
+    }
+}
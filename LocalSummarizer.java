@@ -0,0 +1,388 @@
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline summarizer: extracts the shape of a response instead of asking an LLM.
+ *
+ * JSON is read with a streaming reader in one pass (no tree is built), XML with
+ * StAX, and HTML with a few patterns. The summary lists the structure with
+ * array sizes, any error fields and a handful of key scalar values. Output is
+ * deterministic and takes milliseconds even for large bodies.
+ */
+public class LocalSummarizer implements Summarizer {
+    private static final int MAX_STRUCTURE = 40;
+    private static final int MAX_VALUES = 12;
+    private static final int MAX_ERRORS = 5;
+    private static final int MAX_DEPTH = 3;
+    private static final int MAX_VALUE_CHARS = 80;
+
+    // Field names that usually carry an error
+    private static final Pattern ERROR_NAME = Pattern.compile("(?i)^(error|errors|err|fault|exception|error_?message|error_?code|error_?description)$");
+    // Scalars worth showing even below the top level
+    private static final Pattern KEY_NAME = Pattern.compile("(?i)^(id|name|title|status|state|code|message|type|total|count|page|size|version|success|ok|detail|result)$");
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    @Override
+    public String summarize(String body, String headers, Consumer<String> onPartial) {
+        return AISummary.convertMarkdownToHtml(summarizeToMarkdown(body, headers));
+    }
+
+    static String summarizeToMarkdown(String body, String headers) {
+        long start = System.nanoTime();
+        if (body == null || body.isBlank()) {
+            return "## Local summary\n\nThe response has no body.\n";
+        }
+        String contentType = contentType(headers);
+        String trimmed = body.stripLeading();
+        Extract extract;
+        try {
+            if (contentType.contains("json") || trimmed.startsWith("{") || trimmed.startsWith("[")) {
+                extract = extractJson(body);
+            } else if (contentType.contains("html") || startsWithIgnoreCase(trimmed, "<!doctype html") || startsWithIgnoreCase(trimmed, "<html")) {
+                extract = extractHtml(body);
+            } else if (contentType.contains("xml") || trimmed.startsWith("<")) {
+                extract = extractXml(body);
+            } else {
+                extract = extractText(body);
+            }
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            extract = extractText(body);
+            extract.description += " (could not be parsed: " + shorten(String.valueOf(e.getMessage())) + ")";
+        }
+        return extract.toMarkdown(body.getBytes(StandardCharsets.UTF_8).length, System.nanoTime() - start);
+    }
+
+    // ---- JSON ----
+
+    static Extract extractJson(String body) throws IOException {
+        Extract extract = new Extract();
+        try (JsonReader reader = new JsonReader(new StringReader(body))) {
+            reader.setStrictness(Strictness.LENIENT);
+            String type = walkJson(reader, "", 0, extract);
+            extract.description = "JSON " + type;
+        }
+        return extract;
+    }
+
+    // Reads one value and returns its type; records structure, error fields and key values on the way
+    private static String walkJson(JsonReader reader, String path, int depth, Extract extract) throws IOException {
+        JsonToken token = reader.peek();
+        switch (token) {
+            case BEGIN_OBJECT -> {
+                reader.beginObject();
+                int fields = 0;
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    String child = path.isEmpty() ? name : path + "." + name;
+                    if (ERROR_NAME.matcher(name).matches() && reader.peek() != JsonToken.NULL) {
+                        extract.error(child, errorValue(reader));
+                        continue;
+                    }
+                    String type = walkJson(reader, child, depth + 1, extract);
+                    if (depth < MAX_DEPTH) extract.structure(child, type);
+                    fields++;
+                }
+                reader.endObject();
+                return depth == 0 ? "object (" + fields + " fields)" : "object";
+            }
+            case BEGIN_ARRAY -> {
+                reader.beginArray();
+                int count = 0;
+                while (reader.hasNext()) {
+                    walkJson(reader, path + "[]", depth + 1, extract);
+                    count++;
+                }
+                reader.endArray();
+                extract.count(path.isEmpty() ? "(root)" : path, count);
+                return depth == 0 ? "array (" + count + " items)" : "array";
+            }
+            case STRING -> {
+                String value = reader.nextString();
+                if (extract.wantsValue(path, depth)) extract.value(path, "\"" + shorten(value) + "\"");
+                return "string";
+            }
+            case NUMBER -> {
+                String value = reader.nextString();
+                if (extract.wantsValue(path, depth)) extract.value(path, value);
+                return "number";
+            }
+            case BOOLEAN -> {
+                boolean value = reader.nextBoolean();
+                if (extract.wantsValue(path, depth)) extract.value(path, String.valueOf(value));
+                return "boolean";
+            }
+            default -> {
+                reader.skipValue();
+                return "null";
+            }
+        }
+    }
+
+    // An error field's value: scalars as is, objects as their message if they have one
+    private static String errorValue(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_OBJECT) {
+            List<String> parts = new ArrayList<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                JsonToken inner = reader.peek();
+                if (name.matches("(?i)message|msg|detail|description|reason|code|type|status")
+                        && (inner == JsonToken.STRING || inner == JsonToken.NUMBER)) {
+                    parts.add(name + ": " + shorten(reader.nextString()));
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return parts.isEmpty() ? "(object)" : String.join(", ", parts);
+        }
+        if (token == JsonToken.BEGIN_ARRAY) {
+            int count = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                reader.skipValue();
+                count++;
+            }
+            reader.endArray();
+            return count + " item(s)";
+        }
+        if (token == JsonToken.BOOLEAN) return String.valueOf(reader.nextBoolean());
+        return shorten(reader.nextString());
+    }
+
+    // ---- XML ----
+
+    static Extract extractXml(String body) throws XMLStreamException {
+        Extract extract = new Extract();
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(body));
+        try {
+            List<String> stack = new ArrayList<>();
+            Map<String, Integer> elementCounts = new LinkedHashMap<>();
+            StringBuilder text = new StringBuilder();
+            boolean leaf = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    stack.add(name);
+                    String path = String.join("/", stack);
+                    elementCounts.merge(path, 1, Integer::sum);
+                    if (stack.size() == 1) {
+                        extract.description = "XML document, root element `" + name + "`";
+                        for (int i = 0; i < reader.getAttributeCount(); i++) {
+                            extract.value("@" + reader.getAttributeLocalName(i), 0, "\"" + shorten(reader.getAttributeValue(i)) + "\"");
+                        }
+                    }
+                    text.setLength(0);
+                    leaf = true;
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    if (leaf && text.length() <= MAX_VALUE_CHARS) text.append(reader.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String path = String.join("/", stack);
+                    String name = stack.removeLast();
+                    String value = text.toString().trim();
+                    if (leaf && !value.isEmpty()) {
+                        if (ERROR_NAME.matcher(name).matches() || name.toLowerCase(Locale.ROOT).contains("fault")) {
+                            extract.error(path, shorten(value));
+                        } else {
+                            extract.value(path, stack.size(), "\"" + shorten(value) + "\"");
+                        }
+                    }
+                    leaf = false;
+                }
+            }
+            // Elements that repeat are the XML counterpart of arrays
+            for (Map.Entry<String, Integer> entry : elementCounts.entrySet()) {
+                int depth = entry.getKey().split("/").length - 1;
+                if (entry.getValue() > 1) {
+                    extract.count(entry.getKey(), entry.getValue());
+                } else if (depth > 0 && depth <= MAX_DEPTH) {
+                    extract.structure(entry.getKey(), "element");
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return extract;
+    }
+
+    // ---- HTML ----
+
+    private static final Pattern TITLE = Pattern.compile("(?is)<title[^>]*>(.*?)</title>");
+    private static final Pattern META_DESCRIPTION = Pattern.compile("(?is)<meta\\s+[^>]*name=[\"']description[\"'][^>]*content=[\"']([^\"']*)[\"']");
+    private static final Pattern HEADING = Pattern.compile("(?is)<(h[12])[^>]*>(.*?)</\\1>");
+    private static final Pattern TAG = Pattern.compile("(?is)<[^>]+>");
+
+    static Extract extractHtml(String body) {
+        Extract extract = new Extract();
+        extract.description = "HTML page";
+        Matcher title = TITLE.matcher(body);
+        if (title.find()) {
+            String value = htmlText(title.group(1));
+            extract.value("title", 0, "\"" + shorten(value) + "\"");
+            if (value.matches("(?i).*\\b(error|not found|forbidden|unauthorized|denied|exception|bad gateway|unavailable)\\b.*")) {
+                extract.error("title", value);
+            }
+        }
+        Matcher description = META_DESCRIPTION.matcher(body);
+        if (description.find()) extract.value("meta description", 0, "\"" + shorten(description.group(1)) + "\"");
+        Matcher heading = HEADING.matcher(body);
+        while (heading.find()) {
+            extract.value(heading.group(1).toLowerCase(Locale.ROOT), 0, "\"" + shorten(htmlText(heading.group(2))) + "\"");
+        }
+        for (String tag : new String[]{"a", "form", "table", "img", "script"}) {
+            int count = countTags(body, tag);
+            if (count > 0) extract.count("<" + tag + ">", count);
+        }
+        return extract;
+    }
+
+    private static int countTags(String body, String tag) {
+        Matcher m = Pattern.compile("(?i)<" + tag + "[\\s>]").matcher(body);
+        int count = 0;
+        while (m.find()) count++;
+        return count;
+    }
+
+    private static String htmlText(String html) {
+        return TAG.matcher(html).replaceAll("").replaceAll("\\s+", " ").trim();
+    }
+
+    // ---- Plain text ----
+
+    static Extract extractText(String body) {
+        Extract extract = new Extract();
+        long lines = body.lines().count();
+        String[] words = body.trim().split("\\s+");
+        extract.description = "Text, " + lines + " line(s), " + words.length + " word(s)";
+        body.lines().filter(line -> !line.isBlank()).limit(3)
+                .forEach(line -> extract.value("line", 0, "\"" + shorten(line.trim()) + "\""));
+        return extract;
+    }
+
+    // ---- helpers ----
+
+    private static String contentType(String headers) {
+        if (headers == null) return "";
+        for (String line : headers.split("\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("content-type")) {
+                return line.substring(colon + 1).trim().toLowerCase(Locale.ROOT);
+            }
+        }
+        return "";
+    }
+
+    private static boolean startsWithIgnoreCase(String s, String prefix) {
+        return s.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    // One line, cut to MAX_VALUE_CHARS, with markup neutralized so values render as text
+    private static String shorten(String value) {
+        String single = value.replaceAll("\\s+", " ");
+        if (single.length() > MAX_VALUE_CHARS) single = single.substring(0, MAX_VALUE_CHARS) + "…";
+        return single.replace("&", "&amp;").replace("<", "&lt;").replace("`", "'");
+    }
+
+    // What was extracted from a body, in the order it was found
+    static class Extract {
+        String description = "";
+        private final Map<String, String> structure = new LinkedHashMap<>();
+        private final Map<String, Integer> counts = new LinkedHashMap<>();
+        private final Map<String, String> errors = new LinkedHashMap<>();
+        private final Map<String, String> values = new LinkedHashMap<>();
+
+        void structure(String path, String type) {
+            String known = structure.get(path);
+            if (known == null) {
+                if (structure.size() < MAX_STRUCTURE) structure.put(path, type);
+            } else if (!known.equals(type) && !("|" + known + "|").contains("|" + type + "|")) {
+                structure.put(path, known + "|" + type);  // e.g. string|null across array items
+            }
+        }
+
+        // Arrays that occur once per item of an outer array are summed
+        void count(String path, int count) {
+            counts.merge(path, count, Integer::sum);
+        }
+
+        void error(String path, String value) {
+            if (errors.size() < MAX_ERRORS) errors.putIfAbsent(path, value);
+        }
+
+        // Top-level scalars always count; deeper ones only under well-known names, first occurrence wins
+        boolean wantsValue(String path, int depth) {
+            if (values.size() >= MAX_VALUES || values.containsKey(path)) return false;
+            if (depth <= 1) return true;
+            String name = path.substring(path.lastIndexOf('.') + 1).replace("[]", "");
+            return KEY_NAME.matcher(name.substring(name.lastIndexOf('/') + 1)).matches();
+        }
+
+        void value(String path, String value) {
+            values.put(path, value);
+        }
+
+        void value(String path, int depth, String value) {
+            if (wantsValue(path, depth)) value(path, value);
+        }
+
+        String toMarkdown(long bytes, long nanos) {
+            StringBuilder sb = new StringBuilder("## Local summary\n\n");
+            sb.append("**").append(description).append("**, ").append(size(bytes)).append("\n\n");
+            if (!errors.isEmpty()) {
+                sb.append("### Errors\n\n");
+                errors.forEach((path, value) -> sb.append("- `").append(path).append("`: ").append(value).append('\n'));
+                sb.append('\n');
+            }
+            if (!counts.isEmpty()) {
+                sb.append("### Collections\n\n");
+                counts.forEach((path, count) -> sb.append("- `").append(path).append("`: ")
+                        .append(count).append(count == 1 ? " item" : " items").append('\n'));
+                sb.append('\n');
+            }
+            if (!structure.isEmpty()) {
+                sb.append("### Structure\n\n");
+                structure.forEach((path, type) -> sb.append("- `").append(path).append("`: ").append(type).append('\n'));
+                sb.append('\n');
+            }
+            if (!values.isEmpty()) {
+                sb.append("### Key values\n\n");
+                values.forEach((path, value) -> sb.append("- `").append(path).append("`: ").append(value).append('\n'));
+                sb.append('\n');
+            }
+            sb.append(String.format("<small><i>Extracted locally in %.1f ms</i></small>%n", nanos / 1e6));
+            return sb.toString();
+        }
+
+        private static String size(long bytes) {
+            if (bytes < 1024) return bytes + " B";
+            if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+            return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        }
+    }
+}
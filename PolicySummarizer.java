@@ -0,0 +1,55 @@
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Applies a SummaryPolicy: the local summarizer answers immediately and the
+ * remote one is added (local-first), left to the user (remote-on-demand) or
+ * used exclusively (remote-only).
+ */
+public class PolicySummarizer implements Summarizer {
+    private final Summarizer local;
+    private final AISummary remote;
+    private final SummaryPolicy policy;
+
+    public PolicySummarizer(Summarizer local, AISummary remote, SummaryPolicy policy) {
+        this.local = local;
+        this.remote = remote;
+        this.policy = policy;
+    }
+
+    public SummaryPolicy getPolicy() {
+        return policy;
+    }
+
+    public AISummary getRemote() {
+        return remote;
+    }
+
+    @Override
+    public String getName() {
+        return "policy-" + policy.name().toLowerCase();
+    }
+
+    @Override
+    public String summarize(String body, String headers, Consumer<String> onPartial) throws IOException, InterruptedException {
+        if (policy == SummaryPolicy.REMOTE_ONLY) {
+            return remote.summarize(body, headers, onPartial);
+        }
+        if (policy == SummaryPolicy.REMOTE_ON_DEMAND || !remote.isConfigured()) {
+            return local.summarize(body, headers, onPartial);
+        }
+
+        // Local first: show the extract right away, then stream the LLM summary underneath it
+        String localMarkdown = LocalSummarizer.summarizeToMarkdown(body, headers);
+        String localHtml = AISummary.convertMarkdownToHtml(localMarkdown);
+        if (onPartial != null) onPartial.accept(localMarkdown);
+        try {
+            String remoteHtml = remote.summarize(body, headers,
+                    onPartial == null ? null : markdown -> onPartial.accept(localMarkdown + "\n\n---\n\n" + markdown));
+            return localHtml + "<hr>" + remoteHtml;
+        } catch (IOException e) {
+            return localHtml + "<hr><p><small><i>AI summary unavailable: "
+                    + String.valueOf(e.getMessage()).replace("&", "&amp;").replace("<", "&lt;") + "</i></small></p>";
+        }
+    }
+}
@@ -35,6 +35,7 @@ public class PostmanApp {
             printResponse("POST Request", response2);
 
             System.out.println("\n💾 DATABASE STORAGE VERIFICATION");
+            service.flushPersistence();
             showDatabaseContents();
 
             System.out.println("\n✅ DEMO COMPLETED SUCCESSFULLY!");
@@ -51,6 +52,9 @@ public class PostmanApp {
         System.out.println("    Content-Type: " + response.getContentType());
         System.out.println("    Response Size: " + response.getBodySize() + " bytes");
         System.out.println("    Response Time: " + response.getResponseTime() + " ms");
+        if (response.getTiming() != null) {
+            System.out.println("    Timing: " + response.getTiming());
+        }
 
         if (response.getBody() != null && !response.getBody().isEmpty()) {
             String preview = response.getBody().length() > 100 ?
@@ -64,7 +68,10 @@ public class PostmanApp {
         try {
             System.out.println("  📊 Checking database contents...");
             RequestsDAO requestsDAO = new RequestsDAO();
-            System.out.println("  📥 Stored Requests: " + requestsDAO.GetAll().size());
+            System.out.println("  📥 Stored Requests: " + requestsDAO.getCount());
+            BodyStoreStats bodies = BodyStore.getStats();
+            System.out.println("  🗜️  Response bodies: " + bodies.getLogicalBytes() + " bytes stored as "
+                    + bodies.getStoredBytes() + " bytes");
 
             // The ResponsesDAO class does not have a GetAll() method, so we remove these lines.
             // ResponsesDAO responsesDAO = new ResponsesDAO();
@@ -15,7 +15,13 @@ public class Request {
     public int getID() { return ID; }
     public String getMethod() { return method; }
     public String getUrl() { return url; }
-    public String getHeaders() { return headers; }
+    // "Name: value" lines; headers kept in HeaderStore are loaded on first use
+    public String getHeaders() {
+        if (headers == null && ID > 0) {
+            headers = HeaderStore.load(HeaderStore.Owner.REQUEST, ID);
+        }
+        return headers;
+    }
     public String getBody() { return body; }
     public String getTimestamp() { return timestamp; }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// A named, ordered group of request templates that can be run as a batch
+public class RequestCollection {
+    private int ID;
+    private String name, timestamp;
+
+    public RequestCollection(int ID, String name, String timestamp) {
+        this.ID = ID;
+        this.name = name;
+        this.timestamp = timestamp;
+    }
+
+    // Getters
+    public int getID() { return ID; }
+    public String getName() { return name; }
+    public String getTimestamp() { return timestamp; }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
+
+/**
+ * One request of a collection.
+ *
+ * URL, header values and body may reference variables as {{name}}. Variables are
+ * produced by earlier steps through extraction rules, one per line:
+ *
+ *   token = $.data.token        (JSON path into the response body)
+ *   etag  = header:ETag         (response header)
+ *   code  = status              (status code)
+ *
+ * A step waits for every step named in dependsOn (comma-separated).
+ */
+class CollectionStep {
+    private int ID, collectionID, position;
+    private String name, method, url, headers, body, dependsOn, extract;
+
+    public CollectionStep(int ID, int collectionID, int position, String name, String method, String url,
+                          String headers, String body, String dependsOn, String extract) {
+        this.ID = ID;
+        this.collectionID = collectionID;
+        this.position = position;
+        this.name = name;
+        this.method = method;
+        this.url = url;
+        this.headers = headers;
+        this.body = body;
+        this.dependsOn = dependsOn;
+        this.extract = extract;
+    }
+
+    // Getters
+    public int getID() { return ID; }
+    public int getCollectionID() { return collectionID; }
+    public int getPosition() { return position; }
+    public String getName() { return name; }
+    public String getMethod() { return method; }
+    public String getUrl() { return url; }
+    public String getHeaders() { return headers; }   // "Name: value" lines
+    public String getBody() { return body; }
+    public String getDependsOn() { return dependsOn; }
+    public String getExtract() { return extract; }
+
+    public List<String> getDependencies() {
+        List<String> names = new ArrayList<>();
+        if (dependsOn == null) return names;
+        for (String name : dependsOn.split(",")) {
+            if (!name.isBlank()) names.add(name.trim());
+        }
+        return names;
+    }
+
+    public Map<String, String> getHeaderMap() {
+        return parseLines(headers, ":");
+    }
+
+    // Variable name -> source expression
+    public Map<String, String> getExtractRules() {
+        return parseLines(extract, "=");
+    }
+
+    public static String formatHeaders(Map<String, String> headers) {
+        StringBuilder sb = new StringBuilder();
+        if (headers != null) {
+            headers.forEach((k, v) -> sb.append(k).append(": ").append(v).append('\n'));
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, String> parseLines(String text, String separator) {
+        Map<String, String> values = new LinkedHashMap<>();
+        if (text == null) return values;
+        for (String line : text.split("\\R")) {
+            int i = line.indexOf(separator);
+            if (i > 0) values.put(line.substring(0, i).trim(), line.substring(i + separator.length()).trim());
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        String deps = getDependencies().isEmpty() ? "" : "  <- " + String.join(", ", getDependencies());
+        return name + ": " + method + " " + url + deps;
+    }
+}
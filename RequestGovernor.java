@@ -0,0 +1,557 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request governance in front of the HttpClient, so bulk runs (collections,
+ * load tests, many tabs) neither overwhelm a service nor trip its rate limits.
+ *
+ * Every request to a host first takes a slot (at most maxPerHost in flight)
+ * and a token from the host's bucket (ratePerHost per second, up to burst
+ * saved up). Requests that cannot go yet wait in FIFO order; on the async path
+ * no thread is held while they wait. Idempotent requests (GET, PUT, DELETE,
+ * HEAD, OPTIONS) that fail with an I/O error, 429 or a retryable 5xx are sent
+ * again after an exponential backoff with full jitter, or after the server's
+ * Retry-After. After breakerFailures requests in a row could not reach a host
+ * (I/O errors, after their retries) its circuit opens: its requests fail at
+ * once for the cooldown, then a single trial request decides whether it closes
+ * again. A 5xx is an answer, not an outage, so it never opens the circuit: a
+ * developer sending to a failing endpoint keeps seeing its responses.
+ * Requests with bypassGovernor set (load tests) skip all of this.
+ *
+ * Configuration (system properties):
+ *   creo.http.maxPerHost          requests in flight per host, default 16 (0 = no limit)
+ *   creo.http.ratePerHost         requests per second per host, default 0 (no limit)
+ *   creo.http.burstPerHost        token bucket size, default max(1, rate)
+ *   creo.http.retries             retries after the first attempt, default 2
+ *   creo.http.retry.baseMs        first backoff ceiling, default 200 ms; doubles per retry up to 10 s
+ *   creo.http.retry.maxAfterMs    longest Retry-After honored, default 30 s; longer ones are not retried
+ *   creo.http.breaker.failures    failed requests in a row that open a circuit, default 5 (0 = off)
+ *   creo.http.breaker.cooldownMs  how long an open circuit rejects requests, default 30 s
+ */
+public class RequestGovernor {
+    private static final Set<String> IDEMPOTENT = Set.of("GET", "PUT", "DELETE", "HEAD", "OPTIONS");
+    private static final Set<Integer> RETRYABLE_STATUS = Set.of(429, 500, 502, 503, 504);
+    private static final long MAX_BACKOFF_MS = 10_000;
+
+    private final int maxPerHost;
+    private final double ratePerHost;
+    private final double burstPerHost;
+    private final int maxRetries;
+    private final long retryBaseMs;
+    private final long maxRetryAfterMs;
+    private final int breakerFailures;
+    private final long breakerCooldownMs;
+    // Backoff and token waits are scheduled on this executor; no thread sleeps on the async path
+    private final Executor executor;
+    private final Map<String, HostGate> hosts = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong queueNanos = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong retryAfterHonored = new AtomicLong();
+    private final AtomicLong retriesExhausted = new AtomicLong();
+    private final AtomicLong circuitsOpened = new AtomicLong();
+    private final AtomicLong circuitRejections = new AtomicLong();
+
+    public RequestGovernor(Executor executor) {
+        this(executor, Integer.getInteger("creo.http.maxPerHost", 16),
+                doubleProperty("creo.http.ratePerHost", 0),
+                doubleProperty("creo.http.burstPerHost", Math.max(1, doubleProperty("creo.http.ratePerHost", 0))),
+                Integer.getInteger("creo.http.retries", 2),
+                Long.getLong("creo.http.retry.baseMs", 200),
+                Long.getLong("creo.http.retry.maxAfterMs", 30_000),
+                Integer.getInteger("creo.http.breaker.failures", 5),
+                Long.getLong("creo.http.breaker.cooldownMs", 30_000));
+    }
+
+    public RequestGovernor(Executor executor, int maxPerHost, double ratePerHost, double burstPerHost, int maxRetries,
+                           long retryBaseMs, long maxRetryAfterMs, int breakerFailures, long breakerCooldownMs) {
+        this.executor = executor;
+        this.maxPerHost = maxPerHost;
+        this.ratePerHost = ratePerHost;
+        this.burstPerHost = Math.max(1, burstPerHost);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryBaseMs = Math.max(1, retryBaseMs);
+        this.maxRetryAfterMs = maxRetryAfterMs;
+        this.breakerFailures = breakerFailures;
+        this.breakerCooldownMs = breakerCooldownMs;
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        try {
+            return Double.parseDouble(System.getProperty(name, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            System.err.println("✗ Invalid " + name + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Send a request (one network attempt per fetcher call) under the host's
+     * limits, retrying as configured. The calling thread waits for a slot, a
+     * token and any backoff. Throws what the last attempt threw, or
+     * CircuitOpenException when the host's circuit is open.
+     */
+    public HttpResponse execute(HttpRequestData request, HttpResponseCache.Fetcher fetcher) throws Exception {
+        HostGate gate = gateFor(request.getUrl());
+        requests.incrementAndGet();
+        HttpResponse lastResponse = null;
+        for (int attempt = 1; ; attempt++) {
+            boolean trial;
+            try {
+                trial = gate.breaker.allow();
+            } catch (CircuitOpenException e) {
+                circuitRejections.incrementAndGet();
+                if (lastResponse == null) throw e;
+                lastResponse.setAttempts(attempt - 1);
+                return lastResponse;
+            }
+            CompletableFuture<Void> permit = gate.acquire();
+            try {
+                permit.get();
+            } catch (InterruptedException e) {
+                if (!permit.cancel(true)) gate.release();  // granted just as we gave up
+                gate.breaker.abandon(trial);
+                throw e;
+            }
+
+            HttpResponse response = null;
+            Exception error = null;
+            try {
+                response = fetcher.fetch(request);
+            } catch (Exception e) {
+                error = e;
+            } finally {
+                gate.release();
+            }
+            long delay = retryDelayMs(request, response, error, attempt);
+            recordOutcome(gate, trial, response, error, delay < 0);
+            if (delay < 0) {
+                if (error != null) throw error;
+                response.setAttempts(attempt);
+                return response;
+            }
+            lastResponse = response;
+            retries.incrementAndGet();
+            Thread.sleep(delay);
+        }
+    }
+
+    /**
+     * Non-blocking execute: waiting for a slot, a token or a backoff holds no
+     * thread. cancel(true) on the result cancels whatever the request is
+     * waiting on at that moment, including the exchange in flight.
+     */
+    public CompletableFuture<HttpResponse> executeAsync(HttpRequestData request, HttpResponseCache.AsyncFetcher fetcher) {
+        requests.incrementAndGet();
+        AsyncCall call = new AsyncCall(request, gateFor(request.getUrl()), fetcher);
+        call.next();
+        return call.result;
+    }
+
+    // One request on the async path: each attempt waits for the breaker, a permit and the exchange, then maybe backs off
+    private final class AsyncCall {
+        private final HttpRequestData request;
+        private final HostGate gate;
+        private final HttpResponseCache.AsyncFetcher fetcher;
+        private final CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        // Whatever the call waits on right now, cancelled along with the result
+        private volatile CompletableFuture<?> current;
+        private HttpResponse lastResponse;
+        private int attempt;
+
+        AsyncCall(HttpRequestData request, HostGate gate, HttpResponseCache.AsyncFetcher fetcher) {
+            this.request = request;
+            this.gate = gate;
+            this.fetcher = fetcher;
+            result.whenComplete((response, e) -> {
+                CompletableFuture<?> waitingOn = current;
+                if (result.isCancelled() && waitingOn != null) waitingOn.cancel(true);
+            });
+        }
+
+        void next() {
+            if (result.isDone()) return;
+            attempt++;
+            boolean trial;
+            try {
+                trial = gate.breaker.allow();
+            } catch (CircuitOpenException e) {
+                circuitRejections.incrementAndGet();
+                if (lastResponse == null) {
+                    result.completeExceptionally(e);
+                } else {
+                    lastResponse.setAttempts(attempt - 1);
+                    result.complete(lastResponse);
+                }
+                return;
+            }
+            CompletableFuture<Void> permit = gate.acquire();
+            waitOn(permit);
+            permit.whenComplete((granted, e) -> {
+                if (e != null) {
+                    gate.breaker.abandon(trial);  // cancelled while queued
+                    return;
+                }
+                if (result.isDone()) {
+                    gate.release();
+                    gate.breaker.abandon(trial);
+                    return;
+                }
+                CompletableFuture<HttpResponse> exchange;
+                try {
+                    exchange = fetcher.fetch(request);
+                } catch (Exception ex) {
+                    exchange = CompletableFuture.failedFuture(ex);
+                }
+                waitOn(exchange);
+                exchange.whenComplete((response, error) -> {
+                    gate.release();
+                    onAttempt(trial, response, error);
+                });
+            });
+        }
+
+        private void onAttempt(boolean trial, HttpResponse response, Throwable error) {
+            Throwable cause = unwrap(error);
+            if (cause instanceof CancellationException || result.isDone()) {
+                gate.breaker.abandon(trial);
+                return;
+            }
+            long delay = retryDelayMs(request, response, cause, attempt);
+            recordOutcome(gate, trial, response, cause, delay < 0);
+            if (delay < 0) {
+                if (cause != null) {
+                    result.completeExceptionally(cause);
+                } else {
+                    response.setAttempts(attempt);
+                    result.complete(response);
+                }
+                return;
+            }
+            lastResponse = response;
+            retries.incrementAndGet();
+            CompletableFuture<Void> backoff = new CompletableFuture<>();
+            waitOn(backoff);
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor).execute(() -> backoff.complete(null));
+            backoff.thenRun(this::next);
+        }
+
+        // Remember what we wait on; if the result was cancelled in the meantime, cancel it straight away
+        private void waitOn(CompletableFuture<?> stage) {
+            current = stage;
+            if (result.isCancelled()) stage.cancel(true);
+        }
+    }
+
+    // A failure counts once per request, when it will not be retried; a trial attempt always settles the trial
+    private void recordOutcome(HostGate gate, boolean trial, HttpResponse response, Throwable error, boolean lastAttempt) {
+        boolean failed = error instanceof IOException;
+        if (failed && !lastAttempt && !trial) return;
+        if (gate.breaker.record(!failed, trial)) {
+            circuitsOpened.incrementAndGet();
+            System.err.println("✗ Circuit opened for " + gate.host + " after repeated failures");
+        }
+    }
+
+    /**
+     * How long to wait before the next attempt, or -1 to stop: the method must
+     * be idempotent, retries left, and the attempt must have failed with a
+     * retryable status or I/O error (not a request timeout, which is the
+     * caller's budget). Retry-After wins over the computed backoff.
+     */
+    long retryDelayMs(HttpRequestData request, HttpResponse response, Throwable error, int attempt) {
+        if (!isRetryable(response, error) || request.getMethod() == null
+                || !IDEMPOTENT.contains(request.getMethod().toUpperCase(Locale.ROOT))) {
+            return -1;
+        }
+        if (attempt > maxRetries) {
+            if (maxRetries > 0) retriesExhausted.incrementAndGet();
+            return -1;
+        }
+
+        long retryAfter = response != null ? retryAfterMs(firstHeader(response, "Retry-After")) : -1;
+        if (retryAfter > maxRetryAfterMs) return -1;  // the server wants a longer break than we are willing to wait
+        if (retryAfter >= 0) {
+            retryAfterHonored.incrementAndGet();
+            return retryAfter;
+        }
+        // Full jitter: anywhere between 0 and the exponential ceiling, so retrying clients spread out
+        long ceiling = Math.min(MAX_BACKOFF_MS, retryBaseMs << Math.min(20, attempt - 1));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static boolean isRetryable(HttpResponse response, Throwable error) {
+        if (error != null) {
+            if (error instanceof CircuitOpenException) return false;
+            if (error instanceof HttpTimeoutException && !(error instanceof HttpConnectTimeoutException)) return false;
+            return error instanceof IOException;
+        }
+        return response != null && RETRYABLE_STATUS.contains(response.getStatusCode());
+    }
+
+    // Retry-After is either delay-seconds or an HTTP-date; -1 when absent or unreadable
+    static long retryAfterMs(String value) {
+        if (value == null || value.isBlank()) return -1;
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value)) * 1000;
+        } catch (NumberFormatException e) {
+            // not a number, try a date
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static String firstHeader(HttpResponse response, String name) {
+        if (response.getHeaders() == null) return null;
+        for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+            if (header.getKey() != null && header.getKey().equalsIgnoreCase(name) && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    // Limits are per scheme, host and port
+    private HostGate gateFor(String url) {
+        String key;
+        try {
+            URI uri = URI.create(url.trim());
+            key = (uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort()).toLowerCase(Locale.ROOT);
+        } catch (Exception e) {
+            key = String.valueOf(url);  // the request will fail validation anyway
+        }
+        return hosts.computeIfAbsent(key, host -> new HostGate(host));
+    }
+
+    public String getStats() {
+        int inFlight = 0, waiting = 0, open = 0;
+        for (HostGate gate : hosts.values()) {
+            inFlight += gate.inFlight();
+            waiting += gate.waiting();
+            if (gate.breaker.isOpen()) open++;
+        }
+        long queuedCount = queued.get();
+        return String.format("Governor: requests=%d inFlight=%d waiting=%d queued=%d (avg wait %.1f ms) throttled=%d "
+                        + "retries=%d retryAfter=%d exhausted=%d circuitsOpened=%d rejected=%d openNow=%d hosts=%d",
+                requests.get(), inFlight, waiting, queuedCount,
+                queuedCount == 0 ? 0.0 : queueNanos.get() / 1e6 / queuedCount, throttled.get(),
+                retries.get(), retryAfterHonored.get(), retriesExhausted.get(),
+                circuitsOpened.get(), circuitRejections.get(), open, hosts.size());
+    }
+
+    public int getMaxPerHost() { return maxPerHost; }
+    public long getRetries() { return retries.get(); }
+    public long getQueued() { return queued.get(); }
+    public long getThrottled() { return throttled.get(); }
+    public long getCircuitRejections() { return circuitRejections.get(); }
+
+    /**
+     * In-flight slots and the token bucket of one host. Permits are handed out
+     * in arrival order; when the bucket is empty a timer is armed for the next
+     * token instead of anyone sleeping.
+     */
+    private final class HostGate {
+        final String host;
+        final CircuitBreaker breaker;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private double tokens = burstPerHost;
+        private long refilledAt = System.nanoTime();
+        private int inFlight;
+        private boolean timerArmed;
+
+        HostGate(String host) {
+            this.host = host;
+            this.breaker = new CircuitBreaker(host, breakerFailures, breakerCooldownMs);
+        }
+
+        CompletableFuture<Void> acquire() {
+            Waiter waiter = new Waiter();
+            List<Waiter> granted;
+            synchronized (this) {
+                waiters.add(waiter);
+                granted = dispatch();
+            }
+            grant(granted);
+            if (!waiter.future.isDone()) queued.incrementAndGet();
+            return waiter.future;
+        }
+
+        void release() {
+            List<Waiter> granted;
+            synchronized (this) {
+                inFlight--;
+                granted = dispatch();
+            }
+            grant(granted);
+        }
+
+        synchronized int inFlight() { return inFlight; }
+        synchronized int waiting() { return waiters.size(); }
+
+        // Hand out permits while there is a free slot and a token; called with the lock held
+        private List<Waiter> dispatch() {
+            List<Waiter> granted = new ArrayList<>();
+            while (!waiters.isEmpty()) {
+                Waiter head = waiters.peek();
+                if (head.future.isDone()) {  // cancelled while waiting
+                    waiters.poll();
+                    continue;
+                }
+                if (maxPerHost > 0 && inFlight >= maxPerHost) break;
+                long tokenWait = takeToken();
+                if (tokenWait > 0) {
+                    if (!head.throttled) {
+                        head.throttled = true;
+                        throttled.incrementAndGet();
+                    }
+                    if (!timerArmed) {
+                        timerArmed = true;
+                        CompletableFuture.delayedExecutor(tokenWait, TimeUnit.NANOSECONDS, executor).execute(this::onTokenTimer);
+                    }
+                    break;
+                }
+                waiters.poll();
+                inFlight++;
+                granted.add(head);
+            }
+            return granted;
+        }
+
+        private void onTokenTimer() {
+            List<Waiter> granted;
+            synchronized (this) {
+                timerArmed = false;
+                granted = dispatch();
+            }
+            grant(granted);
+        }
+
+        // Take a token if one is there (returns 0), else the nanoseconds until the next one
+        private long takeToken() {
+            if (ratePerHost <= 0) return 0;
+            long now = System.nanoTime();
+            tokens = Math.min(burstPerHost, tokens + (now - refilledAt) / 1e9 * ratePerHost);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / ratePerHost * 1e9));
+        }
+
+        // Completed outside the lock, since the permit's stages run right away
+        private void grant(List<Waiter> granted) {
+            for (Waiter waiter : granted) {
+                queueNanos.addAndGet(System.nanoTime() - waiter.since);  // next to nothing unless it queued
+                if (!waiter.future.complete(null)) release();  // cancelled at the last moment: give the slot back
+            }
+        }
+    }
+
+    private static final class Waiter {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final long since = System.nanoTime();
+        boolean throttled;
+    }
+}
+
+/**
+ * Consecutive-failure circuit breaker for one host: closed, open for the
+ * cooldown, then half-open with a single trial request.
+ */
+class CircuitBreaker {
+    private final String host;
+    private final int threshold;
+    private final long cooldownNanos;
+    private int failures;
+    private boolean open;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    CircuitBreaker(String host, int threshold, long cooldownMs) {
+        this.host = host;
+        this.threshold = threshold;
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMs);
+    }
+
+    // Whether a request may go; true if it is the half-open trial
+    synchronized boolean allow() throws CircuitOpenException {
+        if (threshold <= 0 || !open) return false;
+        long remaining = cooldownNanos - (System.nanoTime() - openedAt);
+        if (remaining > 0 || trialInFlight) {
+            throw new CircuitOpenException(host, Math.max(1, (remaining + 999_999_999) / 1_000_000_000));
+        }
+        trialInFlight = true;
+        return true;
+    }
+
+    // Record an attempt; true if this opened the circuit
+    synchronized boolean record(boolean success, boolean trial) {
+        if (threshold <= 0) return false;
+        if (trial) trialInFlight = false;
+        if (success) {
+            failures = 0;
+            open = false;
+            return false;
+        }
+        failures++;
+        if (trial || (!open && failures >= threshold)) {
+            boolean opened = !open;
+            open = true;
+            openedAt = System.nanoTime();
+            return opened;
+        }
+        return false;
+    }
+
+    // The trial never got an answer (cancelled); let the next request try
+    synchronized void abandon(boolean trial) {
+        if (trial) trialInFlight = false;
+    }
+
+    synchronized boolean isOpen() {
+        return open;
+    }
+}
+
+// Thrown instead of sending while a host's circuit is open
+class CircuitOpenException extends IOException {
+    CircuitOpenException(String host, long retryInSeconds) {
+        super("Circuit open for " + host + " after repeated failures; not sending for another " + retryInSeconds + " s");
+    }
+}
@@ -0,0 +1,678 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * One tab of the workspace: a request editor and the response it got back.
+ * Every tab can have its own request in flight; Cancel aborts the exchange
+ * (the connection is dropped, nothing is stored) and the timeout spinner
+ * overrides the client's default for this tab's requests.
+ */
+public class RequestTab extends JPanel {
+    private static final AtomicInteger tabCounter = new AtomicInteger();
+    private static final String TEXT_CARD = "text", HEX_CARD = "hex", IMAGE_CARD = "image";
+
+    // --- UI Component Fields ---
+    private final JComboBox<String> methodComboBox = new JComboBox<>(new String[]{"GET", "POST", "PUT", "DELETE"});
+    private final JTextField urlField = new JTextField("https://jsonplaceholder.typicode.com/posts/1");
+    private final JSpinner timeoutSpinner = new JSpinner(new SpinnerNumberModel(30, 1, 3600, 1));
+    private final JButton sendButton = new JButton("Send");
+    private final JButton cancelButton = new JButton("Cancel");
+    private final DefaultTableModel headersModel = new DefaultTableModel(new String[]{"Key", "Value"}, 0);
+    private final JTextArea requestBodyArea = new JTextArea();
+    private final JLabel statusLabel = new JLabel("Status:");
+    private final JLabel timeLabel = new JLabel("Time:");
+    private final JLabel sizeLabel = new JLabel("Size:");
+    private final JLabel cacheLabel = new JLabel("Cache:");
+    private final JLabel connectionLabel = new JLabel("Protocol:");
+    private final BodyViewer responseBodyArea = new BodyViewer();
+    private final JTextArea responseHeadersArea = new JTextArea();
+    private final JTextPane summaryPane = new JTextPane();
+    private final JToggleButton prettyToggle = new JToggleButton("Pretty", true);
+    private final JToggleButton hexToggle = new JToggleButton("Hex");
+    private final HexViewer hexViewer = new HexViewer();
+    private final ImagePreview imagePreview = new ImagePreview();
+    private final CardLayout bodyCards = new CardLayout();
+    private final JPanel bodyCardPanel = new JPanel(bodyCards);
+    private JTabbedPane responseTabs;
+    private JPanel bodyPanel;
+
+    // --- Data Field ---
+    private final PostmanBackendService backendService;
+    private final PolicySummarizer summarizer;
+    private final SummaryScheduler summaryScheduler;
+    private final Consumer<RequestTab> onTitleChange;
+    // Each tab summarizes into its own slot, so tabs never supersede each other's summaries
+    private final String summarySlot = "tab-" + tabCounter.incrementAndGet();
+
+    private HttpResponse currentResponse;
+    private CompletableFuture<HttpResponse> inFlight;
+    private SwingWorker<FormattedBody, Void> bodyFormatWorker;
+    // Body on screen, raw; the pretty version is derived from it on demand
+    private ResponseBody displayedBody;
+    private String displayedContentType;
+    private boolean formatPending;
+
+    public RequestTab(PostmanBackendService backendService, PolicySummarizer summarizer,
+                      SummaryScheduler summaryScheduler, Consumer<RequestTab> onTitleChange) {
+        super(new BorderLayout());
+        this.backendService = backendService;
+        this.summarizer = summarizer;
+        this.summaryScheduler = summaryScheduler;
+        this.onTitleChange = onTitleChange;
+
+        summaryPane.setContentType("text/html");
+        summaryPane.setEditable(false);
+
+        add(createRequestControlPanel(), BorderLayout.NORTH);
+
+        // Main workspace split (request tabs | response)
+        JSplitPane workspaceSplit = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                createRequestTabs(), createResponsePanel());
+        workspaceSplit.setDividerLocation(300);
+        workspaceSplit.setResizeWeight(0.5);
+        add(workspaceSplit, BorderLayout.CENTER);
+
+        sendButton.addActionListener(e -> onSendRequest());
+        cancelButton.addActionListener(e -> cancelRequest());
+        methodComboBox.addActionListener(e -> onTitleChange.accept(this));
+        urlField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { onTitleChange.accept(RequestTab.this); }
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { onTitleChange.accept(RequestTab.this); }
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { onTitleChange.accept(RequestTab.this); }
+        });
+    }
+
+    // Method and the last part of the URL, marked while a request is in flight
+    public String getTitle() {
+        String url = urlField.getText().trim();
+        String name = url;
+        try {
+            URI uri = URI.create(url);
+            String path = uri.getPath();
+            if (path != null && path.length() > 1) {
+                name = path.substring(path.lastIndexOf('/', path.length() - 2) + 1);
+            } else if (uri.getHost() != null) {
+                name = uri.getHost();
+            }
+        } catch (IllegalArgumentException ignored) {
+        }
+        if (name.isEmpty()) name = "New Request";
+        if (name.length() > 24) name = name.substring(0, 23) + "…";
+        return (isBusy() ? "● " : "") + methodComboBox.getSelectedItem() + " " + name;
+    }
+
+    public String getToolTip() {
+        return methodComboBox.getSelectedItem() + " " + urlField.getText();
+    }
+
+    public boolean isBusy() {
+        return inFlight != null;
+    }
+
+    private JPanel createRequestControlPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        // Style the send button
+        sendButton.setBackground(new Color(0, 122, 255));
+        sendButton.setForeground(Color.WHITE);
+        sendButton.setPreferredSize(new Dimension(80, 30));
+        cancelButton.setPreferredSize(new Dimension(80, 30));
+        cancelButton.setEnabled(false);
+        cancelButton.setToolTipText("Abort the request in flight");
+
+        // Method dropdown
+        methodComboBox.setPreferredSize(new Dimension(80, 30));
+
+        timeoutSpinner.setToolTipText("Timeout for this tab's requests, in seconds");
+        JPanel actions = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        actions.add(new JLabel("Timeout (s):"));
+        actions.add(timeoutSpinner);
+        actions.add(sendButton);
+        actions.add(cancelButton);
+
+        panel.add(methodComboBox, BorderLayout.WEST);
+        panel.add(urlField, BorderLayout.CENTER);
+        panel.add(actions, BorderLayout.EAST);
+
+        return panel;
+    }
+
+    private JTabbedPane createRequestTabs() {
+        JTabbedPane tabs = new JTabbedPane();
+
+        // Headers tab
+        headersModel.addRow(new String[]{"Content-Type", "application/json"});
+        JTable headersTable = new JTable(headersModel);
+        headersTable.setFillsViewportHeight(true);
+
+        JPanel headersPanel = new JPanel(new BorderLayout());
+        headersPanel.add(new JScrollPane(headersTable), BorderLayout.CENTER);
+
+        // Add/Remove buttons for headers
+        JPanel headerButtonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton addHeaderBtn = new JButton("Add Header");
+        JButton removeHeaderBtn = new JButton("Remove Header");
+
+        addHeaderBtn.addActionListener(e -> headersModel.addRow(new String[]{"", ""}));
+        removeHeaderBtn.addActionListener(e -> {
+            int selectedRow = headersTable.getSelectedRow();
+            if (selectedRow >= 0) {
+                headersModel.removeRow(selectedRow);
+            }
+        });
+
+        headerButtonPanel.add(addHeaderBtn);
+        headerButtonPanel.add(removeHeaderBtn);
+        headersPanel.add(headerButtonPanel, BorderLayout.SOUTH);
+
+        tabs.addTab("Headers", headersPanel);
+
+        // Body tab
+        requestBodyArea.setWrapStyleWord(true);
+        requestBodyArea.setLineWrap(true);
+        tabs.addTab("Body", new JScrollPane(requestBodyArea));
+
+        return tabs;
+    }
+
+    // Body viewer with its display options
+    private JPanel createBodyPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        JCheckBox wrapBox = new JCheckBox("Wrap lines", responseBodyArea.getLineWrap());
+        wrapBox.addActionListener(e -> responseBodyArea.setLineWrap(wrapBox.isSelected()));
+        prettyToggle.setToolTipText("Show the body formatted (JSON, XML, HTML) or as received");
+        prettyToggle.addActionListener(e -> refreshBodyView());
+        hexToggle.setToolTipText("Show the body as a hex dump (binary bodies that are not images always are)");
+        hexToggle.addActionListener(e -> refreshBodyView());
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        toolbar.add(prettyToggle);
+        toolbar.add(hexToggle);
+        toolbar.add(wrapBox);
+        panel.add(toolbar, BorderLayout.NORTH);
+        bodyCardPanel.add(new JScrollPane(responseBodyArea), TEXT_CARD);
+        bodyCardPanel.add(new JScrollPane(hexViewer), HEX_CARD);
+        bodyCardPanel.add(imagePreview, IMAGE_CARD);
+        panel.add(bodyCardPanel, BorderLayout.CENTER);
+        return panel;
+    }
+
+    // Summary pane with a button to ask the LLM, for when the policy does not do so by itself
+    private JPanel createSummaryPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        JButton askAiButton = new JButton("Summarize with AI");
+        askAiButton.setToolTipText("Policy: " + summarizer.getPolicy().name().toLowerCase().replace('_', '-'));
+        askAiButton.addActionListener(e -> {
+            if (currentResponse != null) requestSummary(currentResponse, summarizer.getRemote());
+        });
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        toolbar.add(askAiButton);
+        panel.add(toolbar, BorderLayout.NORTH);
+        panel.add(new JScrollPane(summaryPane), BorderLayout.CENTER);
+        return panel;
+    }
+
+    private JPanel createResponsePanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+
+        // Status panel
+        JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        statusPanel.setBorder(BorderFactory.createEtchedBorder());
+        statusPanel.add(statusLabel);
+        statusPanel.add(Box.createHorizontalStrut(20));
+        statusPanel.add(timeLabel);
+        statusPanel.add(Box.createHorizontalStrut(20));
+        statusPanel.add(sizeLabel);
+        statusPanel.add(Box.createHorizontalStrut(20));
+        statusPanel.add(cacheLabel);
+        statusPanel.add(Box.createHorizontalStrut(20));
+        statusPanel.add(connectionLabel);
+
+        // Response tabs
+        responseTabs = new JTabbedPane();
+
+        responseBodyArea.setLineWrap(true);
+
+        responseHeadersArea.setEditable(false);
+        responseHeadersArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        bodyPanel = createBodyPanel();
+        responseTabs.addTab("Body", bodyPanel);
+        // Formatting waits until the body is actually looked at
+        responseTabs.addChangeListener(e -> {
+            if (responseTabs.getSelectedComponent() == bodyPanel && formatPending) refreshBodyView();
+        });
+        responseTabs.addTab("Headers", new JScrollPane(responseHeadersArea));
+        responseTabs.addTab("AI Summary", createSummaryPanel());
+        responseTabs.addTab("Load Test", new LoadTestPanel(backendService.getHttpClientService(), this::getRequestDataFromFields));
+        responseTabs.addTab("Collections", new CollectionPanel(backendService, this::getRequestDataFromFields));
+
+        panel.add(statusPanel, BorderLayout.NORTH);
+        panel.add(responseTabs, BorderLayout.CENTER);
+
+        return panel;
+    }
+
+    // Send without tying up a thread: the request runs as async stages (send, store, pre-format)
+    // and the result comes back to the EDT when the last stage is done. Other tabs stay usable meanwhile.
+    private void onSendRequest() {
+        if (isBusy()) return;
+        boolean pretty = prettyToggle.isSelected() && !hexToggle.isSelected();
+        CompletableFuture<HttpResponse> sent = backendService.handleRequestAsync(getRequestDataFromFields());
+        CompletableFuture<HttpResponse> request = HttpClientService.cancelsUpstream(
+                sent.thenApplyAsync(response -> preformat(response, pretty), backendService.getHttpClientService().getExecutor()), sent);
+        inFlight = request;
+        setBusy(true);
+        statusLabel.setText("Status: sending...");
+
+        request.whenComplete((response, error) -> SwingUtilities.invokeLater(() -> {
+            if (inFlight != request) return;  // cancelled, the tab has moved on
+            inFlight = null;
+            setBusy(false);
+            if (error != null) {
+                clearResponseFields();
+                responseBodyArea.setText("Error: \n" + error.getMessage());
+                return;
+            }
+            currentResponse = response;
+            updateResponseFields(currentResponse);
+            requestSummary(currentResponse, summarizer);
+        }));
+    }
+
+    // Abort the exchange in flight; HttpClient closes its connection, so the server sees the client go away
+    public void cancelRequest() {
+        CompletableFuture<HttpResponse> request = inFlight;
+        if (request == null) return;
+        inFlight = null;
+        request.cancel(true);
+        setBusy(false);
+        clearResponseFields();
+        statusLabel.setText("Status: cancelled");
+    }
+
+    // Called when the tab is closed
+    public void dispose() {
+        cancelRequest();
+        cancelBodyFormatting();
+        summaryScheduler.cancel(summarySlot);
+    }
+
+    private void setBusy(boolean busy) {
+        sendButton.setEnabled(!busy);
+        cancelButton.setEnabled(busy);
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+        onTitleChange.accept(this);
+    }
+
+    // Format small bodies before they reach the EDT, so Pretty shows at once; big ones are formatted on demand
+    static HttpResponse preformat(HttpResponse response, boolean pretty) {
+        ResponseBody body = response.getBodyHandle();
+        if (!pretty || body == null || body.isBinary() || body.size() > JsonPrettyPrinter.INLINE_FORMAT_LIMIT) {
+            return response;
+        }
+        BodyFormatter.Kind kind = BodyFormatter.kindOf(response.getContentType(), body.preview(64));
+        if (kind != null) {
+            try {
+                BodyFormatter.format(body, kind);
+            } catch (Exception e) {
+                // Not well-formed: the raw body is shown, as refreshBodyView would do
+            }
+        }
+        return response;
+    }
+
+    // The summary streams in; partial summaries arrive throttled, already rendered to HTML off the EDT.
+    // A newer response in this tab supersedes this one, so a late summary never lands on the wrong response.
+    private void requestSummary(HttpResponse response, Summarizer summarizer) {
+        if (response.isBinary()) {
+            summaryScheduler.cancel(summarySlot);
+            summaryPane.setText("<p><i>Binary body (" + response.getContentType() + "), nothing to summarize.</i></p>");
+            return;
+        }
+        summaryPane.setText("<p><i>Summarizing...</i></p>");
+        summaryScheduler.submit(summarySlot, summarizer, response.getBodyPreview(), formatResponseHeaders(response.getHeaders()),
+                new SummaryScheduler.Listener() {
+                    @Override
+                    public void onPartial(String html) {
+                        summaryPane.setText(html);
+                    }
+
+                    @Override
+                    public void onSummary(String html) {
+                        summaryPane.setText(html);
+                    }
+
+                    @Override
+                    public void onError(Exception ex) {
+                        summaryPane.setText("Error: \n" + ex.getMessage());
+                    }
+                });
+    }
+
+    // The history list only holds summaries, so fetch the full request (headers, body) on demand
+    public void loadRequest(int requestId) {
+        SwingWorker<Request, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Request doInBackground() {
+                Request request = new RequestsDAO().FindById(requestId);
+                if (request != null) request.getHeaders();  // loaded from HeaderStore here rather than on the EDT
+                return request;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    Request request = get();
+                    if (request != null) {
+                        populateRequestFields(request);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    public void loadResponse(int requestId) {
+        SwingWorker<Response, Void> worker = new SwingWorker<>() {
+            private ResponseBody storedBody;
+
+            @Override
+            protected Response doInBackground() {
+                Response response = new ResponsesDAO().FindByRequestID(requestId);
+                if (response != null) {
+                    // Bodies are stored compressed; decompress here rather than on the EDT, and a large one
+                    // into a temp file as when it was received
+                    storedBody = response.getBodyHash() != null
+                            ? BodyStore.loadBody(response.getBodyHash(), response.isBinary(),
+                                    backendService.getHttpClientService().getMaxInMemoryBodyBytes())
+                            : null;
+                    if (storedBody == null) {
+                        storedBody = response.isBinary()
+                                ? ResponseBody.ofBytes(response.getBodyBytes(), null, true)
+                                : ResponseBody.ofString(response.getBody(), StandardCharsets.UTF_8);
+                    }
+                    response.getHeaders();
+                }
+                return response;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    Response dbResponse = get();
+                    summaryScheduler.cancel(summarySlot);
+                    summaryPane.setText("");
+                    if (dbResponse != null) {
+                        statusLabel.setText("Status: " + dbResponse.getStatusCode());
+                        showTiming(dbResponse.getTiming());
+                        showSize(dbResponse.getBodySize(), dbResponse.getWireSize(), null);
+                        showCacheStatus(null);
+                        showBody(storedBody, dbResponse.getContentType());
+                        responseHeadersArea.setText(dbResponse.getHeaders());
+                    } else {
+                        clearResponseFields();
+                        responseBodyArea.setText("No saved response found.");
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void updateResponseFields(HttpResponse response) {
+        statusLabel.setText("Status: " + response.getStatusCode() + " " + response.getStatusText()
+                + (response.getAttempts() > 1 ? "  (" + response.getAttempts() + " attempts)" : ""));
+        RequestGovernor governor = backendService.getHttpClientService().getGovernor();
+        statusLabel.setToolTipText(governor != null ? governor.getStats() : null);
+        showTiming(response.getTiming());
+        showSize(response.getBodySize(), response.getWireSize(), response.getContentEncoding());
+        showCacheStatus(response.getCacheStatus());
+        showResponseBody(response);
+        responseHeadersArea.setText(formatResponseHeaders(response.getHeaders()));
+    }
+
+    private void showResponseBody(HttpResponse response) {
+        ResponseBody handle = response.getBodyHandle();
+        if (handle == null) {
+            handle = ResponseBody.ofString(response.getBody(), StandardCharsets.UTF_8);  // error responses
+        }
+        showBody(handle, response.getContentType());
+    }
+
+    private void showBody(ResponseBody body, String contentType) {
+        displayedBody = body;
+        displayedContentType = contentType;
+        refreshBodyView();
+    }
+
+    /**
+     * Show the displayed body raw or pretty. The raw body goes on screen at once;
+     * the formatted one comes from BodyFormatter's cache or is made in the
+     * background, and only while the Body tab is showing.
+     */
+    private void refreshBodyView() {
+        cancelBodyFormatting();
+        formatPending = false;
+        ResponseBody body = displayedBody;
+        if (body == null) {
+            showBodyCard(TEXT_CARD);
+            responseBodyArea.setText("");
+            return;
+        }
+        // Binary bodies are never decoded: images are shown as such, everything else as hex
+        prettyToggle.setEnabled(!body.isBinary() && !hexToggle.isSelected());
+        if (hexToggle.isSelected() || body.isBinary()) {
+            if (!hexToggle.isSelected() && ImagePreview.isImageType(displayedContentType)) {
+                imagePreview.setBody(body);
+                showBodyCard(IMAGE_CARD);
+            } else {
+                hexViewer.setBody(body);
+                showBodyCard(HEX_CARD);
+            }
+            return;
+        }
+        showBodyCard(TEXT_CARD);
+        BodyFormatter.Kind kind = BodyFormatter.kindOf(displayedContentType, body.preview(64));
+        boolean json = kind == BodyFormatter.Kind.JSON;
+        FormattedBody formatted = kind != null && prettyToggle.isSelected() ? BodyFormatter.cached(body, kind) : null;
+        if (formatted != null) {
+            showFormatted(formatted, json);
+            return;
+        }
+        responseBodyArea.setBody(body, json);
+        if (kind == null || !prettyToggle.isSelected()) {
+            return;
+        }
+        if (responseTabs != null && responseTabs.getSelectedComponent() != bodyPanel) {
+            formatPending = true;
+            return;
+        }
+
+        bodyFormatWorker = new SwingWorker<>() {
+            @Override
+            protected FormattedBody doInBackground() throws Exception {
+                return BodyFormatter.format(body, kind);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || body != displayedBody || !prettyToggle.isSelected()) return;
+                try {
+                    showFormatted(get(), json);
+                } catch (Exception e) {
+                    // Not well-formed after all: the raw body stays on screen
+                    System.err.println("✗ Could not format body: " + e.getMessage());
+                }
+            }
+        };
+        bodyFormatWorker.execute();
+    }
+
+    private void showBodyCard(String card) {
+        bodyCards.show(bodyCardPanel, card);
+    }
+
+    private void showFormatted(FormattedBody formatted, boolean json) {
+        if (!formatted.isFile()) {
+            responseBodyArea.setText(formatted.getText(), json);
+            return;
+        }
+        try {
+            responseBodyArea.setFile(formatted.getFile(), StandardCharsets.UTF_8, json);
+        } catch (IOException e) {
+            System.err.println("✗ Could not open formatted body: " + e.getMessage());
+        }
+    }
+
+    private void populateRequestFields(Request request) {
+        urlField.setText(request.getUrl());
+        methodComboBox.setSelectedItem(request.getMethod());
+        requestBodyArea.setText(request.getBody());
+        populateHeadersTable(request.getHeaders());
+    }
+
+    // Stored headers are "Name: value" lines (see HeaderStore)
+    private void populateHeadersTable(String headers) {
+        headersModel.setRowCount(0);
+        for (String[] header : HeaderStore.parse(headers)) {
+            headersModel.addRow(header);
+        }
+    }
+
+    // Snapshot of the request editor, e.g. for the load tester
+    private HttpRequestData getRequestDataFromFields() {
+        HttpRequestData requestData = new HttpRequestData(urlField.getText(), (String) methodComboBox.getSelectedItem());
+        requestData.setHeaders(getHeadersFromTable());
+        requestData.setBody(requestBodyArea.getText());
+        requestData.setTimeout(Duration.ofSeconds(((Number) timeoutSpinner.getValue()).longValue()));
+        return requestData;
+    }
+
+    private Map<String, String> getHeadersFromTable() {
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 0; i < headersModel.getRowCount(); i++) {
+            String key = (String) headersModel.getValueAt(i, 0);
+            String value = (String) headersModel.getValueAt(i, 1);
+            if (key != null && !key.trim().isEmpty()) {
+                headers.put(key, value != null ? value : "");
+            }
+        }
+        return headers;
+    }
+
+    private void cancelBodyFormatting() {
+        if (bodyFormatWorker != null) {
+            bodyFormatWorker.cancel(true);
+            bodyFormatWorker = null;
+        }
+    }
+
+    // Decoded size, plus what actually crossed the wire when the body came compressed
+    private void showSize(long bodySize, long wireSize, String contentEncoding) {
+        sizeLabel.setToolTipText(null);
+        if (bodySize < 0) {
+            sizeLabel.setText("Size: (N/A)");
+        } else if (wireSize < 0 || wireSize == bodySize) {
+            sizeLabel.setText("Size: " + bodySize + " bytes");
+        } else {
+            sizeLabel.setText(String.format("Size: %d bytes (%d on the wire, %.0f%% saved)",
+                    bodySize, wireSize, 100.0 * (bodySize - wireSize) / Math.max(1, bodySize)));
+            sizeLabel.setToolTipText(contentEncoding != null ? "Content-Encoding: " + contentEncoding : null);
+        }
+    }
+
+    // Total in the status bar, full breakdown in the tooltip
+    private void showTiming(RequestTiming timing) {
+        if (timing == null || timing.getTotalMs() < 0) {
+            timeLabel.setText("Time: (N/A)");
+            timeLabel.setToolTipText(null);
+            showConnection(null);
+            return;
+        }
+        timeLabel.setText(String.format("Time: %.0f ms", timing.getTotalMs()));
+        timeLabel.setToolTipText(timing.toString());
+        showConnection(timing);
+    }
+
+    // Protocol and connection reuse of this exchange; client-wide connection counters in the tooltip
+    private void showConnection(RequestTiming timing) {
+        ConnectionTracker connections = backendService.getHttpClientService().getConnections();
+        connectionLabel.setToolTipText(connections != null ? connections.getStats() : null);
+        if (timing == null || timing.getProtocol() == null) {
+            connectionLabel.setText("Protocol: -");
+            return;
+        }
+        String text = "Protocol: " + timing.getProtocol();
+        String connection = timing.getConnectionLabel();
+        if (connection != null) {
+            text += ", " + connection;
+            if (Boolean.TRUE.equals(timing.isNewConnection()) && timing.getConnectMs() >= 0) {
+                text += String.format(" (~%.0f ms setup)", timing.getConnectMs());
+            }
+        }
+        connectionLabel.setText(text);
+    }
+
+    // Outcome for this response plus the running hit ratio; full counters in the tooltip
+    private void showCacheStatus(HttpResponseCache.Status status) {
+        HttpResponseCache cache = backendService.getHttpClientService().getCache();
+        if (status == null || cache == null) {
+            cacheLabel.setText("Cache: -");
+            cacheLabel.setToolTipText(cache == null ? "Response cache disabled" : null);
+            return;
+        }
+        String outcome = status == HttpResponseCache.Status.REVALIDATED ? "REVALIDATED (304)" : status.name();
+        cacheLabel.setText(String.format("Cache: %s  (hit ratio %.0f%%)", outcome, cache.getHitRatio() * 100));
+        cacheLabel.setToolTipText(cache.getStats());
+    }
+
+    public void clearResponseFields() {
+        cancelBodyFormatting();
+        displayedBody = null;
+        currentResponse = null;
+        formatPending = false;
+        statusLabel.setText("Status:");
+        statusLabel.setToolTipText(null);
+        timeLabel.setText("Time:");
+        timeLabel.setToolTipText(null);
+        sizeLabel.setText("Size:");
+        sizeLabel.setToolTipText(null);
+        cacheLabel.setText("Cache:");
+        cacheLabel.setToolTipText(null);
+        connectionLabel.setText("Protocol:");
+        connectionLabel.setToolTipText(null);
+        showBodyCard(TEXT_CARD);
+        responseBodyArea.setText("");
+        hexViewer.setBody(null);
+        imagePreview.setBody(null);
+        responseHeadersArea.setText("");
+    }
+
+    private String formatResponseHeaders(Map<String, List<String>> headers) {
+        StringBuilder sb = new StringBuilder();
+        if (headers != null) {
+            headers.forEach((key, value) ->
+                    sb.append(key).append(": ").append(String.join(", ", value)).append("\n"));
+        }
+        return sb.toString();
+    }
+}
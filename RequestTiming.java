@@ -0,0 +1,166 @@
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Monotonic timing breakdown of one HTTP exchange, measured with System.nanoTime.
+ *
+ *   queue    - from executeRequest until the request is handed to the HttpClient
+ *   connect  - connection setup when it can be determined, otherwise -1
+ *   ttfb     - from handing off the request until the response headers arrive
+ *   download - from the response headers until the last body byte
+ *
+ * Along with them: the negotiated protocol and whether the exchange ran on a
+ * new or a reused connection (see ConnectionTracker; for new connections the
+ * connect time is the estimated setup cost). Timings read back from the
+ * database only carry these values, not the timestamps.
+ */
+public class RequestTiming {
+    private final long startNanos;
+    private long sentNanos, headersNanos, firstByteNanos, completeNanos;
+
+    // Stored values, in milliseconds
+    private double queueMs = -1, connectMs = -1, ttfbMs = -1, downloadMs = -1, totalMs = -1;
+    private String protocol;           // "HTTP/2", "HTTP/1.1"; null when unknown or served from cache
+    private Boolean newConnection;     // null when unknown
+    private boolean connectionObserved; // seen by the TLS hook rather than inferred
+
+    public RequestTiming() {
+        this.startNanos = System.nanoTime();
+    }
+
+    public static RequestTiming fromMillis(double totalMs, double queueMs, double connectMs, double ttfbMs, double downloadMs) {
+        RequestTiming timing = new RequestTiming();
+        timing.totalMs = totalMs;
+        timing.queueMs = queueMs;
+        timing.connectMs = connectMs;
+        timing.ttfbMs = ttfbMs;
+        timing.downloadMs = downloadMs;
+        return timing;
+    }
+
+    public void markSent() {
+        sentNanos = System.nanoTime();
+        queueMs = toMillis(sentNanos - startNanos);
+    }
+
+    void markHeaders() {
+        headersNanos = System.nanoTime();
+        ttfbMs = toMillis(headersNanos - sentNanos);
+    }
+
+    void markFirstByte() {
+        if (firstByteNanos == 0) firstByteNanos = System.nanoTime();
+    }
+
+    void markComplete() {
+        completeNanos = System.nanoTime();
+        downloadMs = toMillis(completeNanos - headersNanos);
+        totalMs = toMillis(completeNanos - startNanos);
+    }
+
+    // Answered by the response cache: no network phases, the total is the lookup time
+    void markServedFromCache() {
+        long now = System.nanoTime();
+        sentNanos = headersNanos = firstByteNanos = completeNanos = now;
+        queueMs = toMillis(now - startNanos);
+        ttfbMs = 0;
+        downloadMs = 0;
+        totalMs = queueMs;
+    }
+
+    public void setConnectMs(double connectMs) { this.connectMs = connectMs; }
+    public void setProtocol(String protocol) { this.protocol = protocol; }
+
+    public void setConnection(Boolean newConnection, boolean observed) {
+        this.newConnection = newConnection;
+        this.connectionObserved = observed;
+    }
+
+    public String getProtocol() { return protocol; }
+    public Boolean isNewConnection() { return newConnection; }
+    public boolean isConnectionObserved() { return connectionObserved; }
+
+    // e.g. "new connection" or "reused connection (inferred)"; null when unknown
+    public String getConnectionLabel() {
+        if (newConnection == null) return null;
+        return (newConnection ? "new" : "reused") + " connection" + (connectionObserved ? "" : " (inferred)");
+    }
+
+    // Getters (-1 = not measured)
+    public double getQueueMs() { return queueMs; }
+    public double getConnectMs() { return connectMs; }
+    public double getTtfbMs() { return ttfbMs; }
+    public double getDownloadMs() { return downloadMs; }
+    public double getTotalMs() { return totalMs; }
+
+    // Nanosecond timestamps of this exchange, or 0 when unknown (e.g. loaded from the database)
+    public long getSentNanos() { return sentNanos; }
+    public long getHeadersNanos() { return headersNanos; }
+    public long getFirstByteNanos() { return firstByteNanos; }
+
+    // Wrap a body handler so header arrival, first byte and completion are timestamped
+    public <T> java.net.http.HttpResponse.BodyHandler<T> wrap(java.net.http.HttpResponse.BodyHandler<T> handler) {
+        return responseInfo -> {
+            markHeaders();
+            protocol = responseInfo.version() == java.net.http.HttpClient.Version.HTTP_2 ? "HTTP/2" : "HTTP/1.1";
+            return new TimedBodySubscriber<>(handler.apply(responseInfo), this);
+        };
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static String format(double ms) {
+        return ms < 0 ? "n/a" : String.format("%.1f ms", ms);
+    }
+
+    @Override
+    public String toString() {
+        String connection = getConnectionLabel();
+        return "Total " + format(totalMs) + " (queue " + format(queueMs) + ", connect " + format(connectMs)
+                + ", TTFB " + format(ttfbMs) + ", download " + format(downloadMs) + ")"
+                + (protocol != null ? ", " + protocol : "") + (connection != null ? ", " + connection : "");
+    }
+}
+
+// Delegating subscriber that timestamps the first body byte and the end of the body
+class TimedBodySubscriber<T> implements BodySubscriber<T> {
+    private final BodySubscriber<T> delegate;
+    private final RequestTiming timing;
+
+    TimedBodySubscriber(BodySubscriber<T> delegate, RequestTiming timing) {
+        this.delegate = delegate;
+        this.timing = timing;
+    }
+
+    @Override
+    public CompletionStage<T> getBody() {
+        return delegate.getBody();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        delegate.onSubscribe(subscription);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+        timing.markFirstByte();
+        delegate.onNext(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        delegate.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        timing.markComplete();
+        delegate.onComplete();
+    }
+}
@@ -4,30 +4,57 @@ import java.util.List;
 
 public class RequestsDAO {
     public int insert(Request request) {
-        String query = "INSERT INTO Requests(Method, URL, Headers, Body) VALUES (?, ?, ?, ?);";
+        try (Connection con = DBHandle.connect()) {
+            return insert(con, request);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    // Insert on a caller-owned connection so several rows can share one transaction
+    public int insert(Connection con, Request request) throws SQLException {
+        String query = "INSERT INTO Requests(Method, URL, Body) VALUES (?, ?, ?);";
         int generatedId = -1;
-        try (Connection con = DBHandle.connect();
-             PreparedStatement p = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement p = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             p.setString(1, request.getMethod());
             p.setString(2, request.getUrl());
-            p.setString(3, request.getHeaders());
-            p.setString(4, request.getBody());
+            p.setString(3, request.getBody());
             p.executeUpdate();
             try (ResultSet generatedKeys = p.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     generatedId = generatedKeys.getInt(1);
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        }
+        if (generatedId > 0) {
+            HeaderStore.put(con, HeaderStore.Owner.REQUEST, generatedId, request.getHeaders());
+            if (DBHandle.isFullTextAvailable()) {
+                indexForSearch(con, generatedId);
+            }
         }
         return generatedId;
     }
 
+    // Its headers only exist once written, so a new request is indexed here rather than by a trigger
+    private void indexForSearch(Connection con, int requestId) throws SQLException {
+        try (PreparedStatement p = con.prepareStatement(
+                "INSERT INTO HistorySearch(rowid, Method, URL, Request_Headers, Request_Body) " +
+                "SELECT r.ID, r.Method, r.URL, " + DBHandle.REQUEST_HEADERS_TEXT + ", r.Body FROM Requests r WHERE r.ID = ?;")) {
+            p.setInt(1, requestId);
+            p.executeUpdate();
+        }
+    }
+
+    // Legacy rows keep a Map.toString() blob in Headers; null means the headers are in HeaderStore
+    private static String headers(ResultSet r) throws SQLException {
+        return HeaderStore.fromLegacy(r.getString("Headers"));
+    }
+
     public List<Request> GetAll() {
         List<Request> requests = new ArrayList<>();
         String query = "SELECT * FROM Requests ORDER BY Timestamp DESC;";
-        try (Connection con = DBHandle.connect();
+        try (Connection con = DBHandle.connectReadOnly();
              Statement s = con.createStatement();
              ResultSet r = s.executeQuery(query)) {
             while (r.next()) {
@@ -35,7 +62,7 @@ public class RequestsDAO {
                         r.getInt("ID"),
                         r.getString("Method"),
                         r.getString("URL"),
-                        r.getString("Headers"),
+                        headers(r),
                         r.getString("Body"),
                         r.getString("Timestamp")
                 ));
@@ -46,6 +73,96 @@ public class RequestsDAO {
         return requests;
     }
 
+    private static final String HISTORY_COLUMNS =
+            "SELECT r.ID, r.Method, r.URL, r.Timestamp, " +
+            "(SELECT s.Status_Code FROM Responses s WHERE s.Request_ID = r.ID ORDER BY s.ID DESC LIMIT 1) AS Status_Code ";
+
+    /**
+     * Keyset-paginated history listing, newest first. Pass a null beforeTimestamp for the
+     * first page, then the Timestamp/ID of the last entry received to get the next one.
+     * Only the columns needed for the history list are read, never headers or bodies.
+     * Throws on a database error, so callers can tell it apart from the end of history.
+     */
+    public List<HistoryEntry> GetPage(String beforeTimestamp, int beforeId, int limit) throws SQLException {
+        String query = beforeTimestamp == null
+                ? HISTORY_COLUMNS + "FROM Requests r ORDER BY r.Timestamp DESC, r.ID DESC LIMIT ?;"
+                : HISTORY_COLUMNS + "FROM Requests r WHERE (r.Timestamp, r.ID) < (?, ?) ORDER BY r.Timestamp DESC, r.ID DESC LIMIT ?;";
+        try (Connection con = connectReadOnly();
+             PreparedStatement p = con.prepareStatement(query)) {
+            int i = 1;
+            if (beforeTimestamp != null) {
+                p.setString(i++, beforeTimestamp);
+                p.setInt(i++, beforeId);
+            }
+            p.setInt(i, limit);
+            return readHistoryEntries(p);
+        }
+    }
+
+    /**
+     * Ranked full-text search over URL, headers and request/response bodies, best match first.
+     * Falls back to a LIKE scan of method and URL when the SQLite build has no FTS5.
+     * Throws on a database error, like GetPage.
+     */
+    public List<HistoryEntry> Search(String text, int offset, int limit) throws SQLException {
+        if (text == null || text.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        boolean fullText = DBHandle.isFullTextAvailable();
+        String query = fullText
+                ? HISTORY_COLUMNS + "FROM HistorySearch f JOIN Requests r ON r.ID = f.rowid " +
+                  "WHERE HistorySearch MATCH ? ORDER BY f.rank, r.ID DESC LIMIT ? OFFSET ?;"
+                : HISTORY_COLUMNS + "FROM Requests r WHERE r.Method LIKE ? ESCAPE '\\' OR r.URL LIKE ? ESCAPE '\\' " +
+                  "ORDER BY r.Timestamp DESC, r.ID DESC LIMIT ? OFFSET ?;";
+        try (Connection con = connectReadOnly();
+             PreparedStatement p = con.prepareStatement(query)) {
+            int i = 1;
+            if (fullText) {
+                p.setString(i++, toMatchExpression(text));
+            } else {
+                String pattern = "%" + text.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+                p.setString(i++, pattern);
+                p.setString(i++, pattern);
+            }
+            p.setInt(i++, limit);
+            p.setInt(i, offset);
+            return readHistoryEntries(p);
+        }
+    }
+
+    private static Connection connectReadOnly() throws SQLException {
+        Connection con = DBHandle.connectReadOnly();
+        if (con == null) throw new SQLException("No database connection");
+        return con;
+    }
+
+    // Turn free text into an FTS5 query: every word must match, each as a prefix
+    private static String toMatchExpression(String text) {
+        StringBuilder match = new StringBuilder();
+        for (String term : text.trim().split("\\s+")) {
+            if (term.isEmpty()) continue;
+            if (match.length() > 0) match.append(' ');
+            match.append('"').append(term.replace("\"", "\"\"")).append("\"*");
+        }
+        return match.toString();
+    }
+
+    private List<HistoryEntry> readHistoryEntries(PreparedStatement p) throws SQLException {
+        List<HistoryEntry> page = new ArrayList<>();
+        try (ResultSet r = p.executeQuery()) {
+            while (r.next()) {
+                page.add(new HistoryEntry(
+                        r.getInt("ID"),
+                        r.getString("Method"),
+                        r.getString("URL"),
+                        r.getInt("Status_Code"),
+                        r.getString("Timestamp")
+                ));
+            }
+        }
+        return page;
+    }
+
     public void Delete(int requestId) throws SQLException {
         String query = "DELETE FROM Requests WHERE ID = ?;";
         try (Connection con = DBHandle.connect();
@@ -68,7 +185,7 @@ public class RequestsDAO {
 
     public Request FindById(int requestId) {
         String query = "SELECT * FROM Requests WHERE ID = ?;";
-        try (Connection con = DBHandle.connect();
+        try (Connection con = DBHandle.connectReadOnly();
              PreparedStatement p = con.prepareStatement(query)) {
             p.setInt(1, requestId);
             ResultSet r = p.executeQuery();
@@ -77,7 +194,7 @@ public class RequestsDAO {
                         r.getInt("ID"),
                         r.getString("Method"),
                         r.getString("URL"),
-                        r.getString("Headers"),
+                        headers(r),
                         r.getString("Body"),
                         r.getString("Timestamp")
                 );
@@ -90,7 +207,7 @@ public class RequestsDAO {
 
     public int getCount() {
         String query = "SELECT COUNT(*) as count FROM Requests;";
-        try (Connection con = DBHandle.connect();
+        try (Connection con = DBHandle.connectReadOnly();
              Statement s = con.createStatement();
              ResultSet r = s.executeQuery(query)) {
             if (r.next()) {
@@ -101,4 +218,4 @@ public class RequestsDAO {
         }
         return 0;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
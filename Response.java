@@ -1,8 +1,19 @@
 public class Response {
     private int id, requestID, statusCode;
     private String headers, body, contentType, timestamp;
+    private RequestTiming timing;
+    private String bodyHash;
+    private byte[] bodyBytes;   // binary bodies only, loaded lazily like the text
+    private boolean binary;
+    private long bodySize = -1, wireSize = -1;  // decoded and on-the-wire bytes; -1 when not recorded
+    private ResponseBody spilledBody;  // a body too large for memory, stored from its temp file; body holds its start
 
     public Response(int id, int requestID, int statusCode, String headers, String body, String contentType, String timestamp) {
+        this(id, requestID, statusCode, headers, body, contentType, timestamp, null);
+    }
+
+    public Response(int id, int requestID, int statusCode, String headers, String body, String contentType, String timestamp,
+                    RequestTiming timing) {
         this.id = id;
         this.requestID = requestID;
         this.statusCode = statusCode;
@@ -10,14 +21,86 @@ public class Response {
         this.body = body;
         this.contentType = contentType;
         this.timestamp = timestamp;
+        this.timing = timing;
     }
 
     // Getters
     public int getID() { return id; }
     public int getRequestID() { return requestID; }
     public int getStatusCode() { return statusCode; }
-    public String getHeaders() { return headers; }
-    public String getBody() { return body; }
+    // "Name: value" lines, one per value; headers kept in HeaderStore are loaded on first use
+    public String getHeaders() {
+        if (headers == null && id > 0) {
+            headers = HeaderStore.load(HeaderStore.Owner.RESPONSE, id);
+        }
+        return headers;
+    }
+    // Stored bodies are loaded from the body store on first use
+    public String getBody() {
+        if (binary) {
+            long length = bodyBytes != null ? bodyBytes.length : spilledBody != null ? spilledBody.size() : -1;
+            return "[Binary body" + (length >= 0 ? ": " + length + " bytes" : "") + ", " + contentType + "]";
+        }
+        if (body == null && bodyHash != null) {
+            body = BodyStore.loadText(bodyHash);
+        }
+        return body;
+    }
     public String getContentType() { return contentType; }
     public String getTimestamp() { return timestamp; }
+    public RequestTiming getTiming() { return timing; } // null when no timing was recorded
+    public String getBodyHash() { return bodyHash; }
+    public boolean isBinary() { return binary; }
+    public long getBodySize() { return bodySize; }
+    public long getWireSize() { return wireSize; }  // less than getBodySize() when the body came compressed
+
+    // The body as bytes: exactly as received for binary bodies, UTF-8 for text
+    public byte[] getBodyBytes() {
+        if (!binary) {
+            String text = getBody();
+            return text != null ? text.getBytes(java.nio.charset.StandardCharsets.UTF_8) : null;
+        }
+        if (bodyBytes == null && bodyHash != null) {
+            bodyBytes = BodyStore.loadBytes(bodyHash);
+        } else if (bodyBytes == null && spilledBody != null) {
+            return spilledBody.bytes();  // not kept: it is too large to hold on to
+        }
+        return bodyBytes;
+    }
+
+    public void setSizes(long bodySize, long wireSize) {
+        this.bodySize = bodySize;
+        this.wireSize = wireSize;
+    }
+
+    // The same response attached to another request, e.g. once the request has its database ID
+    public Response withRequestID(int requestID) {
+        Response copy = new Response(id, requestID, statusCode, getHeaders(), body, contentType, timestamp, timing);
+        copy.bodyHash = bodyHash;
+        copy.bodyBytes = bodyBytes;
+        copy.binary = binary;
+        copy.bodySize = bodySize;
+        copy.wireSize = wireSize;
+        copy.spilledBody = spilledBody;
+        return copy;
+    }
+
+    // The full body lives in a temp file; ResponsesDAO streams it into the body store
+    public void setSpilledBody(ResponseBody spilledBody) { this.spilledBody = spilledBody; }
+    // Roughly what the record keeps in memory (body and headers), without loading anything; a spilled body counts its start
+    long heldBytes() {
+        return (body != null ? body.length() : 0) + (bodyBytes != null ? bodyBytes.length : 0)
+                + (headers != null ? headers.length() : 0);
+    }
+    public ResponseBody getSpilledBody() { return spilledBody; }
+
+    public void setBinaryBody(byte[] bytes) {
+        this.binary = true;
+        this.bodyBytes = bytes;
+        this.body = null;
+    }
+
+    // Set by ResponsesDAO when the body lives in the body store
+    void setBodyHash(String bodyHash) { this.bodyHash = bodyHash; }
+    void setBinary(boolean binary) { this.binary = binary; }
 }
\ No newline at end of file
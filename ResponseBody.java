@@ -0,0 +1,334 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Lazy handle to a response body.
+ *
+ * Bodies up to the in-memory cap are kept as a byte array. Anything larger is
+ * spilled to a temp file while it streams in, and only the first few KB stay
+ * in memory for previews. Size and SHA-256 are computed on the fly, so neither
+ * requires reading the body again.
+ *
+ * Bodies are bytes. Only textual bodies (by content type or, without one, by
+ * sniffing the first bytes) have a charset and are ever decoded; binary bodies
+ * such as images or protobuf are kept and stored exactly as received.
+ */
+public class ResponseBody {
+    static final int PREVIEW_BYTES = 64 * 1024;
+    private static final int SNIFF_BYTES = 1024;
+    private static final Cleaner cleaner = Cleaner.create();
+
+    private final byte[] head;          // the whole body when in memory, otherwise the first PREVIEW_BYTES
+    private final Path spillFile;       // null when the body is in memory
+    private final long size;
+    private final String sha256;
+    private final Charset charset;
+    private final boolean binary;
+    private String contentEncoding;     // as received, e.g. "gzip"; null when not encoded
+    private long wireSize = -1;         // bytes on the wire before decoding; -1 when same as size
+    private String text;                // decoded on first use
+
+    ResponseBody(byte[] head, Path spillFile, long size, String sha256, Charset charset, boolean binary) {
+        this.head = head;
+        this.spillFile = spillFile;
+        this.size = size;
+        this.sha256 = sha256;
+        this.charset = charset;
+        this.binary = binary;
+        if (spillFile != null) {
+            // Remove the temp file once nobody holds the handle any more
+            cleaner.register(this, () -> deleteQuietly(spillFile));
+        }
+    }
+
+    public static ResponseBody ofString(String body, Charset charset) {
+        byte[] bytes = body == null ? new byte[0] : body.getBytes(charset);
+        return new ResponseBody(bytes, null, bytes.length, sha256Hex(bytes), charset, false);
+    }
+
+    public static ResponseBody ofBytes(byte[] bytes, Charset charset, boolean binary) {
+        byte[] data = bytes == null ? new byte[0] : bytes;
+        return new ResponseBody(data, null, data.length, sha256Hex(data), charset, binary);
+    }
+
+    // Read a body from a stream the way a response streams in: in memory up to maxInMemory, else into a temp file
+    static ResponseBody spool(InputStream in, long maxInMemory, Charset charset, boolean binary) throws IOException {
+        SpoolingBodySubscriber spooling = new SpoolingBodySubscriber(maxInMemory, charset, !binary);
+        spooling.onSubscribe(new Flow.Subscription() {
+            @Override public void request(long n) { }
+            @Override public void cancel() { }
+        });
+        byte[] buffer = new byte[64 * 1024];
+        try {
+            for (int n; (n = in.read(buffer)) >= 0; ) {
+                if (n > 0) spooling.onNext(List.of(ByteBuffer.wrap(buffer, 0, n)));
+            }
+        } catch (IOException e) {
+            spooling.onError(e);
+            throw e;
+        }
+        spooling.onComplete();
+        try {
+            return spooling.getBody().toCompletableFuture().join();
+        } catch (java.util.concurrent.CompletionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Whether a content type is text: TRUE, FALSE, or null when it does not say
+     * (missing, or a generic type) and the bytes have to be sniffed.
+     */
+    static Boolean isTextualType(String contentType) {
+        if (contentType == null || contentType.isBlank() || contentType.equals("unknown")) return null;
+        String type = contentType.toLowerCase(java.util.Locale.ROOT);
+        if (type.startsWith("application/octet-stream")) return null;
+        if (type.startsWith("text/") || type.contains("json") || type.contains("xml") || type.contains("javascript")
+                || type.contains("x-www-form-urlencoded") || type.contains("yaml") || type.contains("graphql")
+                || type.contains("csv") || type.contains("charset=")) {
+            return Boolean.TRUE;
+        }
+        return Boolean.FALSE;  // image/*, audio/*, video/*, font/*, application/protobuf, zip, pdf, ...
+    }
+
+    // A NUL byte or invalid UTF-8 near the start means binary
+    static boolean looksBinary(byte[] head, int length) {
+        int n = Math.min(length, SNIFF_BYTES);
+        for (int i = 0; i < n; i++) {
+            if (head[i] == 0) return true;
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CoderResult result = decoder.decode(ByteBuffer.wrap(head, 0, n), CharBuffer.allocate(n), n == length);
+        return result.isError();  // a character cut off at n is underflow, not an error
+    }
+
+    public long size() { return size; }
+    public String sha256() { return sha256; }
+    public Charset charset() { return charset; }  // null for binary bodies
+    public boolean isBinary() { return binary; }
+    public String contentEncoding() { return contentEncoding; }
+    public long wireSize() { return wireSize >= 0 ? wireSize : size; }
+
+    void setTransfer(String contentEncoding, long wireSize) {
+        this.contentEncoding = contentEncoding;
+        this.wireSize = wireSize;
+    }
+    public boolean isInMemory() { return spillFile == null; }
+    public Path spillFile() { return spillFile; }
+
+    // Stream the full body, from memory or from the spill file
+    public InputStream openStream() throws IOException {
+        return isInMemory() ? new ByteArrayInputStream(head) : Files.newInputStream(spillFile);
+    }
+
+    // Full body as bytes. For spilled bodies this reads the whole temp file.
+    public byte[] bytes() {
+        if (isInMemory()) return head;
+        try {
+            return Files.readAllBytes(spillFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Full body decoded with the response charset, cached after the first call. Meaningless for binary bodies.
+    public synchronized String text() {
+        if (text == null) {
+            text = new String(bytes(), decodingCharset());
+        }
+        return text;
+    }
+
+    // At most maxBytes of the start of the body, decoded. Never touches the spill file.
+    public String preview(int maxBytes) {
+        int length = (int) Math.min(Math.min(maxBytes, head.length), size);
+        if (length == size) {
+            return new String(head, 0, length, decodingCharset());
+        }
+        // Not the end of the body: a character cut off at length is left out rather than garbled
+        CharsetDecoder decoder = decodingCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate((int) (length * (double) decoder.maxCharsPerByte()) + 1);
+        decoder.decode(ByteBuffer.wrap(head, 0, length), chars, false);
+        return chars.flip().toString();
+    }
+
+    // At most maxBytes of the start of the body, as bytes. Never touches the spill file.
+    public byte[] previewBytes(int maxBytes) {
+        int length = (int) Math.min(Math.min(maxBytes, head.length), size);
+        return length == head.length ? head : java.util.Arrays.copyOf(head, length);
+    }
+
+    // Binary bodies have no charset; if they are decoded anyway, byte for byte
+    private Charset decodingCharset() {
+        return charset != null ? charset : StandardCharsets.ISO_8859_1;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String sha256Hex(byte[] bytes) {
+        return HexFormat.of().formatHex(newDigest().digest(bytes));
+    }
+}
+
+/**
+ * Consumes a response body chunk by chunk into a {@link ResponseBody}: counts and
+ * hashes each buffer, and switches from memory to a temp file once the cap is hit.
+ */
+class SpoolingBodySubscriber implements BodySubscriber<ResponseBody> {
+    private final long maxInMemory;
+    private final Charset charset;
+    private final Boolean textual;  // from the content type; null = sniff
+    private final MessageDigest digest = ResponseBody.newDigest();
+    private final CompletableFuture<ResponseBody> result = new CompletableFuture<>();
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private ByteArrayOutputStream head;  // preview kept once the body has spilled
+    private Flow.Subscription subscription;
+    private Path spillFile;
+    private FileChannel spillChannel;
+    private long size = 0;
+    private String contentEncoding;
+    private long wireSize = -1;
+
+    SpoolingBodySubscriber(long maxInMemory, Charset charset, Boolean textual) {
+        this.maxInMemory = maxInMemory;
+        this.charset = charset != null ? charset : StandardCharsets.UTF_8;
+        this.textual = textual;
+    }
+
+    @Override
+    public CompletionStage<ResponseBody> getBody() {
+        return result;
+    }
+
+    // Set by DecodingBodySubscriber when the bytes arriving here were decoded on the way
+    void setTransfer(String contentEncoding, long wireSize) {
+        this.contentEncoding = contentEncoding;
+        this.wireSize = wireSize;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        try {
+            for (ByteBuffer buffer : buffers) {
+                int length = buffer.remaining();
+                digest.update(buffer.duplicate());
+                size += length;
+                if (spillChannel == null && memory.size() + (long) length > maxInMemory) {
+                    spill();
+                }
+                if (spillChannel != null) {
+                    int headRoom = ResponseBody.PREVIEW_BYTES - head.size();
+                    if (headRoom > 0) {
+                        ByteBuffer slice = buffer.duplicate();
+                        byte[] chunk = new byte[Math.min(headRoom, slice.remaining())];
+                        slice.get(chunk);
+                        head.write(chunk, 0, chunk.length);
+                    }
+                    while (buffer.hasRemaining()) {
+                        spillChannel.write(buffer);
+                    }
+                } else {
+                    byte[] chunk = new byte[length];
+                    buffer.get(chunk);
+                    memory.write(chunk, 0, length);
+                }
+            }
+        } catch (IOException e) {
+            subscription.cancel();
+            onError(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        closeChannel();
+        if (spillFile != null) {
+            try {
+                Files.deleteIfExists(spillFile);
+            } catch (IOException ignored) {
+            }
+        }
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        closeChannel();
+        String hash = HexFormat.of().formatHex(digest.digest());
+        byte[] bytes = spillFile == null ? memory.toByteArray() : head.toByteArray();
+        boolean binary = textual == null ? ResponseBody.looksBinary(bytes, bytes.length) : !textual;
+        ResponseBody body = new ResponseBody(bytes, spillFile, size, hash, binary ? null : charset, binary);
+        body.setTransfer(contentEncoding, wireSize);
+        result.complete(body);
+        memory = null;
+    }
+
+    // Move what is buffered so far into a temp file and keep only a preview in memory
+    private void spill() throws IOException {
+        spillFile = Files.createTempFile("creo-body-", ".tmp");
+        spillChannel = FileChannel.open(spillFile, StandardOpenOption.WRITE);
+        byte[] buffered = memory.toByteArray();
+        ByteBuffer pending = ByteBuffer.wrap(buffered);
+        while (pending.hasRemaining()) {
+            spillChannel.write(pending);
+        }
+        head = new ByteArrayOutputStream(ResponseBody.PREVIEW_BYTES);
+        head.write(buffered, 0, Math.min(buffered.length, ResponseBody.PREVIEW_BYTES));
+        memory = null;
+    }
+
+    private void closeChannel() {
+        if (spillChannel != null) {
+            try {
+                spillChannel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
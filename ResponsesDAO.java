@@ -1,39 +1,91 @@
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ResponsesDAO {
     public void insert(Response response) {
-        String query = "INSERT INTO Responses(Request_ID, Status_Code, Headers, Body, Content_Type) VALUES(?, ?, ?, ?, ?);";
-        try (Connection con = DBHandle.connect();
-             PreparedStatement p = con.prepareStatement(query)) {
-            p.setInt(1, response.getRequestID());
-            p.setInt(2, response.getStatusCode());
-            p.setString(3, response.getHeaders());
-            p.setString(4, response.getBody());
-            p.setString(5, response.getContentType());
-            p.executeUpdate();
+        try (Connection con = DBHandle.connect()) {
+            insert(con, response);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    // Insert on a caller-owned connection so several rows can share one transaction
+    public void insert(Connection con, Response response) throws SQLException {
+        String query = "INSERT INTO Responses(Request_ID, Status_Code, Body_Hash, Content_Type, Total_Ms, Queue_Ms, Connect_Ms, TTFB_Ms, Download_Ms, Body_Binary, Body_Size, Wire_Size, Protocol, Connection, Connection_Observed) " +
+                "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
+        int generatedId = -1;
+        try (PreparedStatement p = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            // Foreign keys are enforced on pooled connections, so an unknown request is stored as NULL
+            if (response.getRequestID() > 0) {
+                p.setInt(1, response.getRequestID());
+            } else {
+                p.setNull(1, Types.INTEGER);
+            }
+            p.setInt(2, response.getStatusCode());
+            p.setString(3, response.getSpilledBody() != null ? BodyStore.put(con, response.getSpilledBody())
+                    : response.isBinary() ? BodyStore.put(con, response.getBodyBytes()) : BodyStore.put(con, response.getBody()));
+            p.setString(4, response.getContentType());
+            RequestTiming timing = response.getTiming();
+            setMillis(p, 5, timing != null ? timing.getTotalMs() : -1);
+            setMillis(p, 6, timing != null ? timing.getQueueMs() : -1);
+            setMillis(p, 7, timing != null ? timing.getConnectMs() : -1);
+            setMillis(p, 8, timing != null ? timing.getTtfbMs() : -1);
+            setMillis(p, 9, timing != null ? timing.getDownloadMs() : -1);
+            p.setInt(10, response.isBinary() ? 1 : 0);
+            setSize(p, 11, response.getBodySize());
+            setSize(p, 12, response.getWireSize());
+            p.setString(13, timing != null ? timing.getProtocol() : null);
+            Boolean newConnection = timing != null ? timing.isNewConnection() : null;
+            if (newConnection != null) {
+                p.setString(14, newConnection ? "new" : "reused");
+                p.setInt(15, timing.isConnectionObserved() ? 1 : 0);
+            } else {
+                p.setNull(14, Types.VARCHAR);
+                p.setNull(15, Types.INTEGER);
+            }
+            p.executeUpdate();
+            try (ResultSet generatedKeys = p.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    generatedId = generatedKeys.getInt(1);
+                }
+            }
+        }
+        if (generatedId > 0) {
+            HeaderStore.put(con, HeaderStore.Owner.RESPONSE, generatedId, response.getHeaders());
+        }
+        if (DBHandle.isFullTextAvailable() && response.getRequestID() > 0) {
+            indexForSearch(con, response);
+        }
+    }
+
+    // Rebuild the request's search row with this response (the body is not readable from SQL)
+    private void indexForSearch(Connection con, Response response) throws SQLException {
+        try (PreparedStatement delete = con.prepareStatement("DELETE FROM HistorySearch WHERE rowid = ?;");
+             PreparedStatement insert = con.prepareStatement(
+                     "INSERT INTO HistorySearch(rowid, Method, URL, Request_Headers, Request_Body, Response_Headers, Response_Body) " +
+                     "SELECT r.ID, r.Method, r.URL, " + DBHandle.REQUEST_HEADERS_TEXT + ", r.Body, ?, ? FROM Requests r WHERE r.ID = ?;")) {
+            delete.setInt(1, response.getRequestID());
+            delete.executeUpdate();
+            insert.setString(1, response.getHeaders());
+            // Nothing to search in binary bodies; a spilled text body is indexed by its start
+            insert.setString(2, response.isBinary() ? "" : response.getBody());
+            insert.setInt(3, response.getRequestID());
+            insert.executeUpdate();
+        }
+    }
+
     public Response FindByRequestID(int requestId) {
         String query = "SELECT * FROM Responses WHERE Request_ID = ?;";
-        try (Connection con = DBHandle.connect();
+        try (Connection con = DBHandle.connectReadOnly();
              PreparedStatement p = con.prepareStatement(query)) {
             p.setInt(1, requestId);
             ResultSet r = p.executeQuery();
             if (r.next()) {
-                return new Response(
-                        r.getInt("ID"),
-                        r.getInt("Request_ID"),
-                        r.getInt("Status_Code"),
-                        r.getString("Headers"),
-                        r.getString("Body"),
-                        r.getString("Content_Type"),
-                        r.getString("Timestamp")
-                );
+                return mapRow(r);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -73,19 +125,11 @@ public class ResponsesDAO {
     public List<Response> GetAll() {
         List<Response> responses = new ArrayList<>();
         String query = "SELECT * FROM Responses ORDER BY Timestamp DESC;";
-        try (Connection con = DBHandle.connect();
+        try (Connection con = DBHandle.connectReadOnly();
              Statement s = con.createStatement();
              ResultSet r = s.executeQuery(query)) {
             while (r.next()) {
-                responses.add(new Response(
-                        r.getInt("ID"),
-                        r.getInt("Request_ID"),
-                        r.getInt("Status_Code"),
-                        r.getString("Headers"),
-                        r.getString("Body"),
-                        r.getString("Content_Type"),
-                        r.getString("Timestamp")
-                ));
+                responses.add(mapRow(r));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -95,7 +139,7 @@ public class ResponsesDAO {
 
     public int getCount() {
         String query = "SELECT COUNT(*) as count FROM Responses;";
-        try (Connection con = DBHandle.connect();
+        try (Connection con = DBHandle.connectReadOnly();
              Statement s = con.createStatement();
              ResultSet r = s.executeQuery(query)) {
             if (r.next()) {
@@ -110,24 +154,113 @@ public class ResponsesDAO {
     public List<Response> FindByStatusCode(int statusCode) {
         List<Response> responses = new ArrayList<>();
         String query = "SELECT * FROM Responses WHERE Status_Code = ? ORDER BY Timestamp DESC;";
-        try (Connection con = DBHandle.connect();
+        try (Connection con = DBHandle.connectReadOnly();
              PreparedStatement p = con.prepareStatement(query)) {
             p.setInt(1, statusCode);
             ResultSet r = p.executeQuery();
             while (r.next()) {
-                responses.add(new Response(
-                        r.getInt("ID"),
-                        r.getInt("Request_ID"),
-                        r.getInt("Status_Code"),
-                        r.getString("Headers"),
-                        r.getString("Body"),
-                        r.getString("Content_Type"),
-                        r.getString("Timestamp")
-                ));
+                responses.add(mapRow(r));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return responses;
+    }
+
+    // Responses carrying a header (name matched case-insensitively), e.g. Server; a null value matches any value
+    public List<Response> FindByHeader(String name, String value) {
+        List<Response> responses = new ArrayList<>();
+        String query = "SELECT * FROM Responses WHERE ID IN (SELECT h.Response_ID FROM Response_Headers h " +
+                "WHERE h.Name_ID IN (SELECT ID FROM Header_Names WHERE Name = ? COLLATE NOCASE)" +
+                (value != null ? " AND h.Value = ?" : "") + ") ORDER BY Timestamp DESC;";
+        try (Connection con = DBHandle.connectReadOnly();
+             PreparedStatement p = con.prepareStatement(query)) {
+            p.setString(1, name);
+            if (value != null) p.setString(2, value);
+            ResultSet r = p.executeQuery();
+            while (r.next()) {
+                responses.add(mapRow(r));
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return responses;
     }
-}
\ No newline at end of file
+
+    // How many responses carried each value of a header, most common first, e.g. X-Cache -> {HIT=120, MISS=15}
+    public Map<String, Integer> CountByHeader(String name) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        String query = "SELECT Value, COUNT(DISTINCT Response_ID) AS count FROM Response_Headers " +
+                "WHERE Name_ID IN (SELECT ID FROM Header_Names WHERE Name = ? COLLATE NOCASE) GROUP BY Value ORDER BY count DESC;";
+        try (Connection con = DBHandle.connectReadOnly();
+             PreparedStatement p = con.prepareStatement(query)) {
+            p.setString(1, name);
+            ResultSet r = p.executeQuery();
+            while (r.next()) {
+                counts.put(r.getString("Value"), r.getInt("count"));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return counts;
+    }
+
+    // Unmeasured values (-1) are stored as NULL
+    private static void setMillis(PreparedStatement p, int index, double millis) throws SQLException {
+        if (millis < 0) {
+            p.setNull(index, Types.REAL);
+        } else {
+            p.setDouble(index, millis);
+        }
+    }
+
+    private static void setSize(PreparedStatement p, int index, long bytes) throws SQLException {
+        if (bytes >= 0) {
+            p.setLong(index, bytes);
+        } else {
+            p.setNull(index, Types.INTEGER);
+        }
+    }
+
+    private static long getSize(ResultSet r, String column) throws SQLException {
+        long bytes = r.getLong(column);
+        return r.wasNull() ? -1 : bytes;
+    }
+
+    private static double getMillis(ResultSet r, String column) throws SQLException {
+        double millis = r.getDouble(column);
+        return r.wasNull() ? -1 : millis;
+    }
+
+    private static Response mapRow(ResultSet r) throws SQLException {
+        RequestTiming timing = null;
+        double totalMs = getMillis(r, "Total_Ms");
+        if (totalMs >= 0) {
+            timing = RequestTiming.fromMillis(totalMs, getMillis(r, "Queue_Ms"), getMillis(r, "Connect_Ms"),
+                    getMillis(r, "TTFB_Ms"), getMillis(r, "Download_Ms"));
+            timing.setProtocol(r.getString("Protocol"));
+            String connection = r.getString("Connection");
+            if (connection != null) {
+                timing.setConnection("new".equals(connection), r.getInt("Connection_Observed") != 0);
+            }
+        }
+        Response response = new Response(
+                r.getInt("ID"),
+                r.getInt("Request_ID"),
+                r.getInt("Status_Code"),
+                HeaderStore.fromLegacy(r.getString("Headers")),  // null: the headers are in HeaderStore
+                r.getString("Body"),
+                r.getString("Content_Type"),
+                r.getString("Timestamp"),
+                timing
+        );
+        // Rows written before the body store keep their body inline
+        String bodyHash = r.getString("Body_Hash");
+        if (bodyHash != null) {
+            response.setBodyHash(bodyHash);
+        }
+        response.setBinary(r.getInt("Body_Binary") != 0);
+        response.setSizes(getSize(r, "Body_Size"), getSize(r, "Wire_Size"));
+        return response;
+    }
+}
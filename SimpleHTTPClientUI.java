@@ -1,33 +1,23 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.awt.event.KeyEvent;
+import java.util.function.BiConsumer;
 
 public class SimpleHTTPClientUI extends JFrame {
 
     // --- UI Component Fields ---
-    private final JComboBox<String> methodComboBox;
-    private final JTextField urlField;
-    private final JButton sendButton;
-    private final DefaultTableModel headersModel;
-    private final JTextArea requestBodyArea;
-    private final JLabel statusLabel, timeLabel, sizeLabel;
-    private final JTextArea responseBodyArea, responseHeadersArea;
-    private final JList<String> historyList;
-    private final DefaultListModel<String> historyListModel;
-    private JTextPane summaryPane;
+    private final JTabbedPane requestTabs;
+    private final JList<HistoryEntry> historyList;
+    private final HistoryListModel historyListModel;
 
     // --- Data Field ---
-    private List<Request> requestHistory;
-    private List<Request> filteredHistory;  // For search functionality
     private final PostmanBackendService backendService;
+    private final AISummary aiSummary;
+    private final PolicySummarizer summarizer;
+    private final SummaryScheduler summaryScheduler;
     private final RequestsDAO requestsDAO;
     private final ResponsesDAO responsesDAO;
 
-    private HttpResponse currentResponse;
-
     public SimpleHTTPClientUI() {
         setTitle("Creo - API Client");
         setSize(1200, 800);
@@ -35,26 +25,33 @@ public class SimpleHTTPClientUI extends JFrame {
         setLocationRelativeTo(null);
 
         // Initialize components
-        this.backendService = new PostmanBackendService();
+        // Tabs send concurrently; a small pool is plenty since no thread waits on the network
+        HttpClientService httpClientService = new HttpClientService(
+                HttpClientService.fixedExecutor(Integer.getInteger("creo.ui.httpThreads", 4)));
+        this.backendService = new PostmanBackendService(
+                Boolean.parseBoolean(System.getProperty("creo.db.writeBehind", "true")), httpClientService);
+        this.aiSummary = new AISummary();
+        this.summarizer = new PolicySummarizer(new LocalSummarizer(), aiSummary, SummaryPolicy.fromProperty());
+        this.summaryScheduler = new SummaryScheduler(summarizer, SwingUtilities::invokeLater);
         this.requestsDAO = new RequestsDAO();
         this.responsesDAO = new ResponsesDAO();
-        historyListModel = new DefaultListModel<>();
+        historyListModel = new HistoryListModel(requestsDAO);
         historyList = new JList<>(historyListModel);
-        methodComboBox = new JComboBox<>(new String[]{"GET", "POST", "PUT", "DELETE"});
-        urlField = new JTextField("https://jsonplaceholder.typicode.com/posts/1");
-        sendButton = new JButton("Send");
-        headersModel = new DefaultTableModel(new String[]{"Key", "Value"}, 0);
-        requestBodyArea = new JTextArea();
-        statusLabel = new JLabel("Status:");
-        timeLabel = new JLabel("Time:");
-        sizeLabel = new JLabel("Size:");
-        responseBodyArea = new JTextArea();
-        responseHeadersArea = new JTextArea();
-        summaryPane = new JTextPane();
+        requestTabs = new JTabbedPane();
 
         setupUI();
         addListeners();
         loadHistory();
+        warmUpConnections(httpClientService);
+    }
+
+    // Hosts listed in -Dcreo.http.warmup (comma-separated URLs) get their connections opened in the background
+    private static void warmUpConnections(HttpClientService httpClientService) {
+        String urls = System.getProperty("creo.http.warmup", "").trim();
+        if (urls.isEmpty()) return;
+        httpClientService.warmUp(java.util.Arrays.asList(urls.split(",")), 1)
+                .thenAccept(lines -> lines.forEach(line -> System.out.println(
+                        (line.contains("failed:") ? "✗ Warm-up " : "✓ Warm-up ") + line)));
     }
 
     private void setupUI() {
@@ -70,9 +67,6 @@ public class SimpleHTTPClientUI extends JFrame {
 
         // Add to frame
         add(mainSplitPane, BorderLayout.CENTER);
-
-        summaryPane.setContentType("text/html");
-        summaryPane.setEditable(false);
     }
 
     private JPanel createHistoryPanel() {
@@ -89,6 +83,14 @@ public class SimpleHTTPClientUI extends JFrame {
 
         // History list
         historyList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // Fixed cell size so the list never has to touch every row to measure itself
+        historyList.setFixedCellHeight(24);
+        historyList.setFixedCellWidth(220);
+        historyListModel.setOnError(() -> {
+            int choice = JOptionPane.showConfirmDialog(this, "Error loading history. Try again?",
+                    "History Error", JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE);
+            if (choice == JOptionPane.YES_OPTION) historyListModel.retry();
+        });
         historyList.setCellRenderer(new DefaultListCellRenderer() {
             @Override
             public Component getListCellRendererComponent(JList<?> list, Object value, int index,
@@ -138,11 +140,16 @@ public class SimpleHTTPClientUI extends JFrame {
         buttonPanel.add(refreshButton);
 
         // Add listeners
-        searchField.addKeyListener(new java.awt.event.KeyAdapter() {
+        // Debounce typing so the search query runs once the user pauses
+        Timer searchDebounce = new Timer(250, e -> filterHistory(searchField.getText()));
+        searchDebounce.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
             @Override
-            public void keyReleased(java.awt.event.KeyEvent e) {
-                filterHistory(searchField.getText());
-            }
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { searchDebounce.restart(); }
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { searchDebounce.restart(); }
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { searchDebounce.restart(); }
         });
 
         deleteButton.addActionListener(e -> deleteSelectedHistoryItem());
@@ -173,257 +180,97 @@ public class SimpleHTTPClientUI extends JFrame {
         return panel;
     }
 
+    // One tab per request; FlatLaf draws the close buttons and the "+" next to the tabs
     private JPanel createWorkspacePanel() {
         JPanel panel = new JPanel(new BorderLayout());
 
-        // Request control panel at top
-        panel.add(createRequestControlPanel(), BorderLayout.NORTH);
-
-        // Main workspace split (request tabs | response)
-        JSplitPane workspaceSplit = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
-                createRequestTabs(), createResponsePanel());
-        workspaceSplit.setDividerLocation(300);
-        workspaceSplit.setResizeWeight(0.5);
+        JButton newTabButton = new JButton("+");
+        newTabButton.setToolTipText("New request tab");
+        newTabButton.addActionListener(e -> openTab());
+        requestTabs.putClientProperty("JTabbedPane.tabClosable", true);
+        requestTabs.putClientProperty("JTabbedPane.tabCloseToolTipText", "Close (cancels the request in flight)");
+        requestTabs.putClientProperty("JTabbedPane.tabCloseCallback",
+                (BiConsumer<JTabbedPane, Integer>) (tabs, index) -> closeTab(index));
+        requestTabs.putClientProperty("JTabbedPane.trailingComponent", newTabButton);
+        requestTabs.putClientProperty("JTabbedPane.scrollButtonsPlacement", "trailing");
+        requestTabs.setTabLayoutPolicy(JTabbedPane.SCROLL_TAB_LAYOUT);
+
+        int menuMask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        panel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_T, menuMask), "newTab");
+        panel.getActionMap().put("newTab", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                openTab();
+            }
+        });
+        panel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_W, menuMask), "closeTab");
+        panel.getActionMap().put("closeTab", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                if (requestTabs.getSelectedIndex() >= 0) closeTab(requestTabs.getSelectedIndex());
+            }
+        });
 
-        panel.add(workspaceSplit, BorderLayout.CENTER);
+        openTab();
+        panel.add(requestTabs, BorderLayout.CENTER);
         return panel;
     }
 
-    private JPanel createRequestControlPanel() {
-        JPanel panel = new JPanel(new BorderLayout(5, 5));
-        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-
-        // Style the send button
-        sendButton.setBackground(new Color(0, 122, 255));
-        sendButton.setForeground(Color.WHITE);
-        sendButton.setPreferredSize(new Dimension(80, 30));
-
-        // Method dropdown
-        methodComboBox.setPreferredSize(new Dimension(80, 30));
-
-        panel.add(methodComboBox, BorderLayout.WEST);
-        panel.add(urlField, BorderLayout.CENTER);
-        panel.add(sendButton, BorderLayout.EAST);
-
-        return panel;
+    private RequestTab openTab() {
+        RequestTab tab = new RequestTab(backendService, summarizer, summaryScheduler, this::updateTabTitle);
+        requestTabs.addTab(tab.getTitle(), tab);
+        requestTabs.setSelectedComponent(tab);
+        updateTabTitle(tab);
+        return tab;
     }
 
-    private JTabbedPane createRequestTabs() {
-        JTabbedPane tabs = new JTabbedPane();
-
-        // Headers tab
-        headersModel.addRow(new String[]{"Content-Type", "application/json"});
-        JTable headersTable = new JTable(headersModel);
-        headersTable.setFillsViewportHeight(true);
-
-        JPanel headersPanel = new JPanel(new BorderLayout());
-        headersPanel.add(new JScrollPane(headersTable), BorderLayout.CENTER);
-
-        // Add/Remove buttons for headers
-        JPanel headerButtonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        JButton addHeaderBtn = new JButton("Add Header");
-        JButton removeHeaderBtn = new JButton("Remove Header");
-
-        addHeaderBtn.addActionListener(e -> headersModel.addRow(new String[]{"", ""}));
-        removeHeaderBtn.addActionListener(e -> {
-            int selectedRow = headersTable.getSelectedRow();
-            if (selectedRow >= 0) {
-                headersModel.removeRow(selectedRow);
-            }
-        });
-
-        headerButtonPanel.add(addHeaderBtn);
-        headerButtonPanel.add(removeHeaderBtn);
-        headersPanel.add(headerButtonPanel, BorderLayout.SOUTH);
-
-        tabs.addTab("Headers", headersPanel);
-
-        // Body tab
-        requestBodyArea.setWrapStyleWord(true);
-        requestBodyArea.setLineWrap(true);
-        tabs.addTab("Body", new JScrollPane(requestBodyArea));
-
-        return tabs;
+    private void updateTabTitle(RequestTab tab) {
+        int index = requestTabs.indexOfComponent(tab);
+        if (index < 0) return;
+        requestTabs.setTitleAt(index, tab.getTitle());
+        requestTabs.setToolTipTextAt(index, tab.getToolTip());
     }
 
-    private JPanel createResponsePanel() {
-        JPanel panel = new JPanel(new BorderLayout());
-
-        // Status panel
-        JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        statusPanel.setBorder(BorderFactory.createEtchedBorder());
-        statusPanel.add(statusLabel);
-        statusPanel.add(Box.createHorizontalStrut(20));
-        statusPanel.add(timeLabel);
-        statusPanel.add(Box.createHorizontalStrut(20));
-        statusPanel.add(sizeLabel);
-
-        // Response tabs
-        JTabbedPane responseTabs = new JTabbedPane();
-
-        responseBodyArea.setEditable(false);
-        responseBodyArea.setWrapStyleWord(true);
-        responseBodyArea.setLineWrap(true);
-        responseBodyArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
-
-        responseHeadersArea.setEditable(false);
-        responseHeadersArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
-
-        responseTabs.addTab("Body", new JScrollPane(responseBodyArea));
-        responseTabs.addTab("Headers", new JScrollPane(responseHeadersArea));
-        responseTabs.addTab("AI Summary", new JScrollPane(summaryPane));
-
-        panel.add(statusPanel, BorderLayout.NORTH);
-        panel.add(responseTabs, BorderLayout.CENTER);
-
-        return panel;
+    // Closing a tab aborts its request; there is always at least one tab
+    private void closeTab(int index) {
+        RequestTab tab = (RequestTab) requestTabs.getComponentAt(index);
+        tab.dispose();
+        requestTabs.removeTabAt(index);
+        if (requestTabs.getTabCount() == 0) openTab();
     }
 
+    private RequestTab currentTab() {
+        return (RequestTab) requestTabs.getSelectedComponent();
+    }
 
     private void addListeners() {
-        sendButton.addActionListener(e -> onSendRequest());
         historyList.addListSelectionListener(e -> onHistorySelection(e));
+        // Requests are stored in the background, so add them once they actually land in the database
+        backendService.addPersistenceListener((request, response) -> {
+            HistoryEntry entry = new HistoryEntry(request.getID(), request.getMethod(), request.getUrl(),
+                    response != null ? response.getStatusCode() : 0, request.getTimestamp());
+            SwingUtilities.invokeLater(() -> historyListModel.prepend(entry));
+        });
     }
 
-
-
-    private void onSendRequest() {
-        sendButton.setEnabled(false);
-        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-
-        SwingWorker<String, Void> aiSummaryWorker = new SwingWorker<String, Void>() {
-            @Override
-            protected String doInBackground() throws Exception {
-                AISummary summaryInstance = new AISummary(backendService);
-                String responseString = currentResponse.getBody() + "\n\nHeaders:\n" + formatResponseHeaders(currentResponse.getHeaders());
-                return summaryInstance.summarizeResponse(responseString);
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    String summary = get();
-                    summaryPane.setText(summary);
-                } catch (Exception ex) {
-                    responseBodyArea.setText("Error: \n" + ex.getMessage());
-                    summaryPane.setText("Error: \n" + ex.getMessage());
-                }
-            }
-        };
-
-        SwingWorker<HttpResponse, Void> worker = new SwingWorker<>() {
-            @Override
-            protected HttpResponse doInBackground() {
-                return backendService.handleRequest(urlField.getText(),
-                        (String) methodComboBox.getSelectedItem(),
-                        getHeadersFromTable(),
-                        requestBodyArea.getText());
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    currentResponse = get();
-                    updateResponseFields(currentResponse);
-                    loadHistory();
-                    aiSummaryWorker.execute();
-                } catch (Exception ex) {
-                    responseBodyArea.setText("Error: \n" + ex.getMessage());
-                } finally {
-                    sendButton.setEnabled(true);
-                    setCursor(Cursor.getDefaultCursor());
-                }
-            }
-        };
-        worker.execute();
-
-    }
-
+    // Loads into the current tab, or a new one if the current tab is still waiting for its response
     private void onHistorySelection(javax.swing.event.ListSelectionEvent e) {
         if (!e.getValueIsAdjusting() && historyList.getSelectedIndex() != -1) {
-            Request selected = filteredHistory.get(historyList.getSelectedIndex());
-            populateRequestFields(selected);
-            loadResponseForRequest(selected.getID());
+            HistoryEntry selected = historyList.getSelectedValue();
+            RequestTab tab = currentTab().isBusy() ? openTab() : currentTab();
+            tab.loadRequest(selected.getID());
+            tab.loadResponse(selected.getID());
         }
     }
 
-    private void loadResponseForRequest(int requestId) {
-        SwingWorker<Response, Void> worker = new SwingWorker<>() {
-            @Override
-            protected Response doInBackground() {
-                return new ResponsesDAO().FindByRequestID(requestId);
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    Response dbResponse = get();
-                    if (dbResponse != null) {
-                        statusLabel.setText("Status: " + dbResponse.getStatusCode());
-                        timeLabel.setText("Time: (N/A)");
-                        sizeLabel.setText("Size: (N/A)");
-                        responseBodyArea.setText(dbResponse.getBody());
-                        responseHeadersArea.setText(dbResponse.getHeaders());
-                    } else {
-                        clearResponseFields();
-                        responseBodyArea.setText("No saved response found.");
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        };
-        worker.execute();
-    }
-
+    // Pages are fetched lazily by the model as the list scrolls
     private void loadHistory() {
-        SwingWorker<List<Request>, Void> worker = new SwingWorker<>() {
-            @Override
-            protected List<Request> doInBackground() {
-                return new RequestsDAO().GetAll();
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    requestHistory = get();
-                    filteredHistory = new java.util.ArrayList<>(requestHistory);
-                    updateHistoryDisplay();
-                } catch (Exception e) {
-                    historyListModel.clear();
-                    historyListModel.addElement("Error loading history: " + e.getMessage());
-                }
-            }
-        };
-        worker.execute();
-    }
-
-    private void updateHistoryDisplay() {
-        historyListModel.clear();
-        for (Request req : filteredHistory) {
-            String displayText = String.format("%s %s", req.getMethod(), req.getUrl());
-            // Truncate long URLs for display
-            if (displayText.length() > 50) {
-                displayText = displayText.substring(0, 47) + "...";
-            }
-            historyListModel.addElement(displayText);
-        }
+        historyListModel.reload();
     }
 
+    // Runs a ranked full-text search over URLs, headers and bodies (off the EDT, in the model)
     private void filterHistory(String searchText) {
-        if (requestHistory == null) return;
-
-        filteredHistory = new java.util.ArrayList<>();
-        String search = searchText.toLowerCase().trim();
-
-        for (Request req : requestHistory) {
-            if (search.isEmpty() ||
-                    req.getMethod().toLowerCase().contains(search) ||
-                    req.getUrl().toLowerCase().contains(search)) {
-                filteredHistory.add(req);
-            }
-        }
-        updateHistoryDisplay();
+        historyListModel.setFilter(searchText);
     }
 
     private void deleteSelectedHistoryItem() {
@@ -439,16 +286,16 @@ public class SimpleHTTPClientUI extends JFrame {
                 "Confirm Delete", JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            Request selectedRequest = filteredHistory.get(selectedIndex);
+            HistoryEntry selectedRequest = historyListModel.getElementAt(selectedIndex);
 
             SwingWorker<Boolean, Void> worker = new SwingWorker<>() {
                 @Override
                 protected Boolean doInBackground() {
                     try {
+                        // Delete the associated response first so the foreign key is not violated
+                        responsesDAO.DeleteByRequestID(selectedRequest.getID());
                         // Delete from database
                         requestsDAO.Delete(selectedRequest.getID());
-                        // Also delete associated response
-                        responsesDAO.DeleteByRequestID(selectedRequest.getID());
                         return true;
                     } catch (Exception e) {
                         e.printStackTrace();
@@ -460,8 +307,9 @@ public class SimpleHTTPClientUI extends JFrame {
                 protected void done() {
                     try {
                         if (get()) {
-                            loadHistory(); // Refresh the list
-                            clearResponseFields(); // Clear current response if it was showing this request
+                            int index = historyListModel.indexOf(selectedRequest);
+                            if (index >= 0) historyListModel.remove(index);
+                            if (!currentTab().isBusy()) currentTab().clearResponseFields(); // It may have been showing this request
                         } else {
                             JOptionPane.showMessageDialog(SimpleHTTPClientUI.this,
                                     "Error deleting request from history.",
@@ -477,7 +325,7 @@ public class SimpleHTTPClientUI extends JFrame {
     }
 
     private void clearAllHistory() {
-        if (requestHistory == null || requestHistory.isEmpty()) {
+        if (historyListModel.isEmpty()) {
             JOptionPane.showMessageDialog(this, "History is already empty.",
                     "No History", JOptionPane.INFORMATION_MESSAGE);
             return;
@@ -492,8 +340,8 @@ public class SimpleHTTPClientUI extends JFrame {
                 @Override
                 protected Boolean doInBackground() {
                     try {
-                        requestsDAO.DeleteAll();
                         responsesDAO.DeleteAll();
+                        requestsDAO.DeleteAll();
                         return true;
                     } catch (Exception e) {
                         e.printStackTrace();
@@ -506,7 +354,7 @@ public class SimpleHTTPClientUI extends JFrame {
                     try {
                         if (get()) {
                             loadHistory(); // Refresh the list
-                            clearResponseFields();
+                            if (!currentTab().isBusy()) currentTab().clearResponseFields();
                         } else {
                             JOptionPane.showMessageDialog(SimpleHTTPClientUI.this,
                                     "Error clearing history.",
@@ -525,7 +373,7 @@ public class SimpleHTTPClientUI extends JFrame {
         int selectedIndex = historyList.getSelectedIndex();
         if (selectedIndex == -1) return;
 
-        Request selectedRequest = filteredHistory.get(selectedIndex);
+        HistoryEntry selectedRequest = historyListModel.getElementAt(selectedIndex);
         java.awt.datatransfer.StringSelection stringSelection =
                 new java.awt.datatransfer.StringSelection(selectedRequest.getUrl());
         java.awt.datatransfer.Clipboard clipboard =
@@ -540,65 +388,9 @@ public class SimpleHTTPClientUI extends JFrame {
         int selectedIndex = historyList.getSelectedIndex();
         if (selectedIndex == -1) return;
 
-        Request selectedRequest = filteredHistory.get(selectedIndex);
-        populateRequestFields(selectedRequest);
-
-        // Clear response fields since this is a new request
-        clearResponseFields();
-    }
-
-    private void updateResponseFields(HttpResponse response) {
-        statusLabel.setText("Status: " + response.getStatusCode() + " " + response.getStatusText());
-        timeLabel.setText("Time: " + response.getResponseTime() + " ms");
-        sizeLabel.setText("Size: " + response.getBodySize() + " bytes");
-        responseBodyArea.setText(response.getBody());
-        responseHeadersArea.setText(formatResponseHeaders(response.getHeaders()));
-    }
-
-    private void populateRequestFields(Request request) {
-        urlField.setText(request.getUrl());
-        methodComboBox.setSelectedItem(request.getMethod());
-        requestBodyArea.setText(request.getBody());
-        populateHeadersTable(request.getHeaders());
-    }
-
-    private void populateHeadersTable(String headersString) {
-        headersModel.setRowCount(0);
-        if (headersString == null || headersString.length() <= 2) return;
-        String[] pairs = headersString.substring(1, headersString.length() - 1).split(",\\s*");
-        for (String pair : pairs) {
-            String[] kv = pair.split("=", 2);
-            if (kv.length == 2) headersModel.addRow(kv);
-        }
-    }
-
-    private Map<String, String> getHeadersFromTable() {
-        Map<String, String> headers = new HashMap<>();
-        for (int i = 0; i < headersModel.getRowCount(); i++) {
-            String key = (String) headersModel.getValueAt(i, 0);
-            String value = (String) headersModel.getValueAt(i, 1);
-            if (key != null && !key.trim().isEmpty()) {
-                headers.put(key, value != null ? value : "");
-            }
-        }
-        return headers;
-    }
-
-    private void clearResponseFields() {
-        statusLabel.setText("Status:");
-        timeLabel.setText("Time:");
-        sizeLabel.setText("Size:");
-        responseBodyArea.setText("");
-        responseHeadersArea.setText("");
-    }
-
-    private String formatResponseHeaders(Map<String, List<String>> headers) {
-        StringBuilder sb = new StringBuilder();
-        if (headers != null) {
-            headers.forEach((key, value) ->
-                    sb.append(key).append(": ").append(String.join(", ", value)).append("\n"));
-        }
-        return sb.toString();
+        // A new tab with the request filled in and no response yet
+        HistoryEntry selectedRequest = historyListModel.getElementAt(selectedIndex);
+        openTab().loadRequest(selectedRequest.getID());
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,36 @@
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Something that turns a response into a readable summary.
+ *
+ * Implementations: AISummary (remote LLM), LocalSummarizer (offline, extractive)
+ * and PolicySummarizer, which picks between the two according to a SummaryPolicy.
+ */
+public interface Summarizer {
+    // Short name; also separates the summaries of different summarizers when coalescing
+    String getName();
+
+    /**
+     * Summarize the body. onPartial (optional) receives the Markdown produced
+     * so far while the summary is in progress. Returns the final HTML.
+     */
+    String summarize(String body, String headers, Consumer<String> onPartial) throws IOException, InterruptedException;
+}
+
+// Which summarizer answers, selected with -Dcreo.ai.policy=local-first|remote-on-demand|remote-only
+enum SummaryPolicy {
+    LOCAL_FIRST,       // local summary at once, then the remote one below it when the LLM is reachable
+    REMOTE_ON_DEMAND,  // local summary only; the remote one when the user asks for it
+    REMOTE_ONLY;       // always the remote LLM
+
+    static SummaryPolicy fromProperty() {
+        String value = System.getProperty("creo.ai.policy", "local-first");
+        try {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            System.err.println("✗ Unknown creo.ai.policy '" + value + "', using local-first");
+            return LOCAL_FIRST;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import com.google.gson.JsonParser;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of AI summaries keyed by the SHA-256 of the normalized response body,
+ * the prompt and the model, so an identical response is summarized only once.
+ *
+ * The memory tier is a small LRU; every entry is also written to the
+ * AI_Summaries table so summaries survive restarts. Summaries are stored as
+ * the Markdown the model returned.
+ */
+public class SummaryCache {
+    private static final int MEMORY_ENTRIES = Integer.getInteger("creo.ai.summaryCacheEntries", 256);
+
+    private final Map<String, CachedSummary> memory = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedSummary> eldest) {
+            return size() > MEMORY_ENTRIES;
+        }
+    };
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong tokensSaved = new AtomicLong();
+
+    // Cache key for a body summarized with the given prompt and model
+    public static String key(String body, String prompt, String model) {
+        String material = model + "\n" + prompt + "\n" + normalize(body);
+        return BodyStore.sha256(material.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // JSON is re-serialized compactly so formatting does not matter; other text has its whitespace collapsed
+    static String normalize(String body) {
+        if (body == null) return "";
+        String trimmed = body.trim();
+        if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
+            try {
+                return JsonParser.parseString(trimmed).toString();
+            } catch (RuntimeException ignored) {
+                // not JSON after all
+            }
+        }
+        return trimmed.replaceAll("\\s+", " ");
+    }
+
+    // Cached summary (Markdown) for the key, or null
+    public String get(String key) {
+        CachedSummary cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+        if (cached == null) {
+            cached = loadFromDatabase(key);
+            if (cached != null) {
+                synchronized (memory) {
+                    memory.put(key, cached);
+                }
+            }
+        }
+        if (cached == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        tokensSaved.addAndGet(cached.tokens);
+        recordHit(key);
+        return cached.markdown;
+    }
+
+    // tokens = what producing the summary cost, reported as saved on later hits
+    public void put(String key, String model, String markdown, long tokens) {
+        synchronized (memory) {
+            memory.put(key, new CachedSummary(markdown, tokens));
+        }
+        String query = "INSERT INTO AI_Summaries(Cache_Key, Model, Summary, Tokens) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT(Cache_Key) DO UPDATE SET Summary = excluded.Summary, Tokens = excluded.Tokens;";
+        try (Connection con = DBHandle.connect();
+             PreparedStatement p = con.prepareStatement(query)) {
+            p.setString(1, key);
+            p.setString(2, model);
+            p.setString(3, markdown);
+            p.setLong(4, tokens);
+            p.executeUpdate();
+        } catch (Exception e) {
+            System.err.println("✗ Failed to store AI summary: " + e.getMessage());
+        }
+    }
+
+    private CachedSummary loadFromDatabase(String key) {
+        String query = "SELECT Summary, Tokens FROM AI_Summaries WHERE Cache_Key = ?;";
+        try (Connection con = DBHandle.connectReadOnly();
+             PreparedStatement p = con.prepareStatement(query)) {
+            p.setString(1, key);
+            try (ResultSet r = p.executeQuery()) {
+                if (r.next()) {
+                    return new CachedSummary(r.getString("Summary"), r.getLong("Tokens"));
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("✗ Failed to read AI summary cache: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private void recordHit(String key) {
+        String query = "UPDATE AI_Summaries SET Hits = Hits + 1, Last_Used = current_timestamp WHERE Cache_Key = ?;";
+        try (Connection con = DBHandle.connect();
+             PreparedStatement p = con.prepareStatement(query)) {
+            p.setString(1, key);
+            p.executeUpdate();
+        } catch (Exception e) {
+            // bookkeeping only
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    public String getStats() {
+        return "Summary cache: hits=" + hits.get() + " misses=" + misses.get() + " tokensSaved=" + tokensSaved.get();
+    }
+
+    private static class CachedSummary {
+        final String markdown;
+        final long tokens;
+
+        CachedSummary(String markdown, long tokens) {
+            this.markdown = markdown;
+            this.tokens = tokens;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Token-budgeted summarization of a response body.
+ *
+ *   sample  - JSON bodies are reduced structurally: long arrays keep their
+ *             first few items and a count, long strings are cut
+ *   single  - if the result fits the budget, one completion summarizes it
+ *   map     - otherwise the text is split into chunks that fit the budget and
+ *             the chunks are summarized in parallel (bounded concurrency)
+ *   reduce  - the partial summaries are merged, in rounds if they do not fit
+ *             into one prompt; only the final merge streams to the caller
+ *
+ * Tokens are estimated at 4 characters each; the real usage reported by the
+ * API is used for the stage report where available.
+ *
+ * Configuration (system properties):
+ *   creo.ai.tokenBudget        max prompt tokens per completion, default 6000
+ *   creo.ai.chunkConcurrency   chunks summarized at once, default 3
+ *   creo.ai.sampleArrayItems   array items kept when sampling JSON, default 5
+ */
+public class SummaryPipeline {
+    static final int TOKEN_BUDGET = Integer.getInteger("creo.ai.tokenBudget", 6000);
+    static final int CHUNK_CONCURRENCY = Integer.getInteger("creo.ai.chunkConcurrency", 3);
+    static final int SAMPLE_ARRAY_ITEMS = Integer.getInteger("creo.ai.sampleArrayItems", 5);
+    static final int MAX_STRING_CHARS = 400;
+    private static final int CHARS_PER_TOKEN = 4;
+
+    static final String MAP_PROMPT = "The following is part %d of %d of a response from an API call. "
+            + "Summarise the key info in this part concisely, as bullet points. Part: \n\n ";
+    static final String REDUCE_PROMPT = "The following are summaries of consecutive parts of one response from an API call. "
+            + "Merge them into one summary of the whole response and present it in a neat, concise manner. Summaries: \n\n ";
+
+    private final AISummary summarizer;
+    private final List<StageReport> stages = new ArrayList<>();
+
+    public SummaryPipeline(AISummary summarizer) {
+        this.summarizer = summarizer;
+    }
+
+    static long estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    public Result summarize(String body, String headers, Consumer<String> onPartial) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        String sampled = sample(body);
+        stages.add(new StageReport("sample", 1, System.nanoTime() - start, estimateTokens(body), estimateTokens(sampled), 0));
+
+        String single = AISummary.PROMPT + sampled + "\n\nHeaders:\n" + headers;
+        if (estimateTokens(single) <= TOKEN_BUDGET) {
+            LlmCompletion completion = summarizer.complete(single, onPartial);
+            stages.add(StageReport.of("single", List.of(completion), completion.getNanos()));
+            return new Result(completion.getMarkdown(), stages);
+        }
+
+        // Map: summarize chunks in parallel
+        int overhead = (int) estimateTokens(MAP_PROMPT) + 16;
+        List<String> chunks = split(sampled, (TOKEN_BUDGET - overhead) * CHARS_PER_TOKEN);
+        List<String> prompts = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            prompts.add(MAP_PROMPT.formatted(i + 1, chunks.size()) + chunks.get(i));
+        }
+        List<LlmCompletion> partials = completeAll("map", prompts);
+
+        // Reduce: merge partial summaries until they fit one prompt, streaming the last merge
+        List<String> summaries = new ArrayList<>();
+        for (LlmCompletion partial : partials) summaries.add(partial.getMarkdown());
+        String headerContext = "\n\nHeaders of the response:\n" + headers;
+        int round = 1;
+        while (true) {
+            String merged = REDUCE_PROMPT + joinSummaries(summaries) + headerContext;
+            if (estimateTokens(merged) <= TOKEN_BUDGET || summaries.size() <= 1) {
+                long reduceStart = System.nanoTime();
+                LlmCompletion completion = summarizer.complete(merged, onPartial);
+                stages.add(StageReport.of("reduce", List.of(completion), System.nanoTime() - reduceStart));
+                return new Result(completion.getMarkdown(), stages);
+            }
+            List<String> groups = groupToBudget(summaries, TOKEN_BUDGET - (int) estimateTokens(REDUCE_PROMPT) - 16);
+            List<String> groupPrompts = new ArrayList<>();
+            for (String group : groups) groupPrompts.add(REDUCE_PROMPT + group);
+            List<LlmCompletion> reduced = completeAll("reduce " + round++, groupPrompts);
+            summaries.clear();
+            for (LlmCompletion completion : reduced) summaries.add(completion.getMarkdown());
+        }
+    }
+
+    // Run the prompts with at most CHUNK_CONCURRENCY completions in flight; results keep the prompt order
+    private List<LlmCompletion> completeAll(String stage, List<String> prompts) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        List<LlmCompletion> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(CHUNK_CONCURRENCY, prompts.size()));
+        try {
+            List<Future<LlmCompletion>> futures = new ArrayList<>();
+            for (String prompt : prompts) {
+                futures.add(executor.submit(() -> summarizer.complete(prompt, null)));
+            }
+            for (Future<LlmCompletion> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException("Summarizing failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();  // interrupts the rest if one failed or we were cancelled
+        }
+        stages.add(StageReport.of(stage, results, System.nanoTime() - start));
+        return results;
+    }
+
+    private static String joinSummaries(List<String> summaries) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < summaries.size(); i++) {
+            sb.append("### Part ").append(i + 1).append("\n").append(summaries.get(i)).append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    // Pack consecutive summaries into groups that each fit the budget
+    private static List<String> groupToBudget(List<String> summaries, int budgetTokens) {
+        List<String> groups = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        for (String summary : summaries) {
+            current.add(summary);
+            if (current.size() > 1 && estimateTokens(joinSummaries(current)) > budgetTokens) {
+                current.removeLast();
+                groups.add(joinSummaries(current));
+                current = new ArrayList<>(List.of(summary));
+            }
+        }
+        if (!current.isEmpty()) groups.add(joinSummaries(current));
+        return groups;
+    }
+
+    // Split into pieces of at most maxChars, preferring line breaks, then commas, then spaces
+    static List<String> split(String text, int maxChars) {
+        List<String> chunks = new ArrayList<>();
+        int pos = 0;
+        while (pos < text.length()) {
+            int end = Math.min(text.length(), pos + maxChars);
+            if (end < text.length()) {
+                int floor = pos + maxChars * 3 / 4;
+                int cut = text.lastIndexOf('\n', end - 1);
+                if (cut < floor) cut = text.lastIndexOf(',', end - 1);
+                if (cut < floor) cut = text.lastIndexOf(' ', end - 1);
+                if (cut >= floor) end = cut + 1;
+            }
+            chunks.add(text.substring(pos, end));
+            pos = end;
+        }
+        return chunks;
+    }
+
+    // Structural sample of a JSON body; anything else is returned unchanged
+    static String sample(String body) {
+        if (body == null) return "";
+        String trimmed = body.trim();
+        if (!trimmed.startsWith("{") && !trimmed.startsWith("[")) return body;
+        try {
+            return sample(JsonParser.parseString(trimmed)).toString();
+        } catch (RuntimeException e) {
+            return body;
+        }
+    }
+
+    private static JsonElement sample(JsonElement element) {
+        if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            JsonArray sampled = new JsonArray();
+            int keep = Math.min(array.size(), SAMPLE_ARRAY_ITEMS);
+            for (int i = 0; i < keep; i++) sampled.add(sample(array.get(i)));
+            if (array.size() > keep) {
+                sampled.add("... " + (array.size() - keep) + " more items (" + array.size() + " in total)");
+            }
+            return sampled;
+        }
+        if (element.isJsonObject()) {
+            JsonObject sampled = new JsonObject();
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                sampled.add(entry.getKey(), sample(entry.getValue()));
+            }
+            return sampled;
+        }
+        if (element.isJsonPrimitive() && element.getAsJsonPrimitive().isString()) {
+            String value = element.getAsString();
+            if (value.length() > MAX_STRING_CHARS) {
+                return new JsonPrimitive(value.substring(0, MAX_STRING_CHARS) + "... (" + value.length() + " chars)");
+            }
+        }
+        return element;
+    }
+
+    // Latency and token use of one stage
+    static class StageReport {
+        final String name;
+        final int calls;
+        final long nanos, promptTokens, completionTokens;
+        final long inputTokens;  // sample stage: tokens before sampling (promptTokens = after)
+
+        StageReport(String name, int calls, long nanos, long inputTokens, long promptTokens, long completionTokens) {
+            this.name = name;
+            this.calls = calls;
+            this.nanos = nanos;
+            this.inputTokens = inputTokens;
+            this.promptTokens = promptTokens;
+            this.completionTokens = completionTokens;
+        }
+
+        static StageReport of(String name, List<LlmCompletion> completions, long nanos) {
+            long prompt = 0, completion = 0;
+            for (LlmCompletion c : completions) {
+                prompt += c.getPromptTokens();
+                completion += c.getCompletionTokens();
+            }
+            return new StageReport(name, completions.size(), nanos, 0, prompt, completion);
+        }
+    }
+
+    // Final summary plus the per-stage report
+    static class Result {
+        private final String markdown;
+        private final List<StageReport> stages;
+
+        Result(String markdown, List<StageReport> stages) {
+            this.markdown = markdown;
+            this.stages = stages;
+        }
+
+        public String getMarkdown() { return markdown; }
+        public List<StageReport> getStages() { return stages; }
+
+        // Tokens actually sent to and received from the model
+        public long getTotalTokens() {
+            long total = 0;
+            for (StageReport stage : stages) {
+                if (!stage.name.equals("sample")) total += stage.promptTokens + stage.completionTokens;
+            }
+            return total;
+        }
+
+        public String toHtmlReport() {
+            StringBuilder sb = new StringBuilder("<p><small><i>");
+            for (StageReport stage : stages) {
+                if (stage.name.equals("sample")) {
+                    if (stage.inputTokens == stage.promptTokens) continue;
+                    sb.append(String.format("sample: ~%d &rarr; ~%d tokens, %.0f ms<br>",
+                            stage.inputTokens, stage.promptTokens, stage.nanos / 1e6));
+                } else {
+                    sb.append(String.format("%s: %d call%s, %.0f ms, %d prompt + %d completion tokens<br>",
+                            stage.name, stage.calls, stage.calls == 1 ? "" : "s", stage.nanos / 1e6,
+                            stage.promptTokens, stage.completionTokens));
+                }
+            }
+            return sb.append("</i></small></p>").toString();
+        }
+    }
+}
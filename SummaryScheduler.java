@@ -0,0 +1,207 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs AI summaries in the background so that only the newest one per target
+ * is ever shown.
+ *
+ * Every summary is submitted for a slot (e.g. the response pane). A newer
+ * submission for the same slot supersedes the older one: its callbacks are
+ * never delivered, and if nobody else is waiting for it, it is cancelled.
+ * Submissions for a body that is already being summarized join that job
+ * instead of starting another. At most creo.ai.summaryQueue jobs wait; when
+ * the queue is full the oldest waiting job is dropped.
+ *
+ * Callbacks run on the callback executor (the EDT for the UI), and whether the
+ * submission is still current is checked there, right before delivery. Partial
+ * Markdown is rendered to HTML on the worker first, so the callback only has
+ * to show it.
+ */
+public class SummaryScheduler {
+    static final int CONCURRENCY = Integer.getInteger("creo.ai.summaryConcurrency", 2);
+    static final int QUEUE_CAPACITY = Integer.getInteger("creo.ai.summaryQueue", 8);
+
+    interface Listener {
+        void onPartial(String html);  // the summary so far, already rendered
+        void onSummary(String html);
+        void onError(Exception e);
+    }
+
+    private final Summarizer summarizer;
+    private final Executor callbackExecutor;
+    private final ThreadPoolExecutor executor;
+
+    // Guarded by this
+    private final Map<String, Ticket> currentBySlot = new HashMap<>();
+    private final Map<String, Job> activeByKey = new LinkedHashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    public SummaryScheduler(Summarizer summarizer, Executor callbackExecutor) {
+        this.summarizer = summarizer;
+        this.callbackExecutor = callbackExecutor;
+        this.executor = new ThreadPoolExecutor(CONCURRENCY, CONCURRENCY, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), Thread.ofPlatform().name("summary-", 0).daemon().factory());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Summarize the body for the slot, superseding whatever the slot was waiting for
+    public void submit(String slot, String body, String headers, Listener listener) {
+        submit(slot, summarizer, body, headers, listener);
+    }
+
+    // Same, with a specific summarizer (e.g. the remote one when the user asks for it)
+    public synchronized void submit(String slot, Summarizer summarizer, String body, String headers, Listener listener) {
+        submitted.incrementAndGet();
+        String key = summarizer.getName() + ":" + SummaryCache.key(body, AISummary.PROMPT, AISummary.MODEL);
+        Job job = activeByKey.get(key);
+        if (job != null) {
+            coalesced.incrementAndGet();
+        } else {
+            job = new Job(key, summarizer, body, headers);
+            makeRoom();
+            activeByKey.put(key, job);
+            Job started = job;
+            job.future = executor.submit(() -> run(started));
+        }
+        Ticket ticket = new Ticket(slot, job, listener);
+        job.tickets.add(ticket);
+        release(currentBySlot.put(slot, ticket));
+    }
+
+    // Stop waiting for the slot's summary, e.g. when the pane shows something else
+    public synchronized void cancel(String slot) {
+        release(currentBySlot.remove(slot));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Drop the previous ticket of a slot; a job nobody waits for any more is cancelled
+    private void release(Ticket previous) {
+        if (previous == null) return;
+        Job job = previous.job;
+        job.tickets.remove(previous);
+        if (job.tickets.isEmpty() && activeByKey.remove(job.key, job)) {
+            superseded.incrementAndGet();
+            job.future.cancel(true);
+            executor.purge();
+        }
+    }
+
+    // Keep the number of waiting jobs within the queue capacity by dropping the oldest waiting one
+    private void makeRoom() {
+        if (executor.getQueue().remainingCapacity() > 0) return;
+        for (Iterator<Job> it = activeByKey.values().iterator(); it.hasNext(); ) {
+            Job job = it.next();
+            if (job.started) continue;
+            it.remove();
+            dropped.incrementAndGet();
+            job.future.cancel(false);
+            executor.purge();
+            for (Ticket ticket : job.tickets) {
+                deliver(ticket, () -> ticket.listener.onError(new CancellationException("Summary dropped: too many pending")));
+            }
+            return;
+        }
+    }
+
+    private void run(Job job) {
+        synchronized (this) {
+            if (activeByKey.get(job.key) != job) return;  // cancelled while it was waiting
+            job.started = true;
+        }
+        try {
+            String html = job.summarizer.summarize(job.body, job.headers,
+                    markdown -> {
+                        String partial = AISummary.convertMarkdownToHtml(markdown);
+                        forEachTicket(job, ticket -> ticket.listener.onPartial(partial));
+                    });
+            completed.incrementAndGet();
+            finish(job, ticket -> ticket.listener.onSummary(html));
+        } catch (InterruptedException e) {
+            // superseded; nobody is listening any more
+        } catch (Exception e) {
+            finish(job, ticket -> ticket.listener.onError(e));
+        }
+    }
+
+    private void finish(Job job, Consumer<Ticket> callback) {
+        synchronized (this) {
+            activeByKey.remove(job.key, job);
+        }
+        forEachTicket(job, callback);
+    }
+
+    private void forEachTicket(Job job, Consumer<Ticket> callback) {
+        List<Ticket> tickets;
+        synchronized (this) {
+            tickets = new ArrayList<>(job.tickets);
+        }
+        for (Ticket ticket : tickets) {
+            deliver(ticket, () -> callback.accept(ticket));
+        }
+    }
+
+    // Run the callback on the callback executor, unless the ticket was superseded by then
+    private void deliver(Ticket ticket, Runnable callback) {
+        callbackExecutor.execute(() -> {
+            boolean current;
+            synchronized (this) {
+                current = currentBySlot.get(ticket.slot) == ticket;
+            }
+            if (current) callback.run();
+        });
+    }
+
+    public String getStats() {
+        return "Summary scheduler: submitted=" + submitted.get() + " coalesced=" + coalesced.get()
+                + " superseded=" + superseded.get() + " dropped=" + dropped.get() + " completed=" + completed.get();
+    }
+
+    // One summary being computed, shared by every submission of the same body
+    private static class Job {
+        final String key, body, headers;
+        final Summarizer summarizer;
+        final List<Ticket> tickets = new ArrayList<>();
+        Future<?> future;
+        boolean started;
+
+        Job(String key, Summarizer summarizer, String body, String headers) {
+            this.key = key;
+            this.summarizer = summarizer;
+            this.body = body;
+            this.headers = headers;
+        }
+    }
+
+    // One submission: who is waiting for which job
+    private static class Ticket {
+        final String slot;
+        final Job job;
+        final Listener listener;
+
+        Ticket(String slot, Job job, Listener listener) {
+            this.slot = slot;
+            this.job = job;
+            this.listener = listener;
+        }
+    }
+}
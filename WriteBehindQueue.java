@@ -0,0 +1,324 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Write-behind persistence for captured request/response pairs.
+ *
+ * Callers enqueue an exchange and return immediately; a single writer thread
+ * drains the queue and stores up to {@code flushSize} exchanges per transaction,
+ * waiting at most {@code flushIntervalMs} for a batch to fill. The queue is
+ * bounded by count ({@code creo.db.queueCapacity}, default 1024) and by the
+ * body and header bytes it holds ({@code creo.db.queueMaxBytes}, default
+ * 64 MB); when either is reached, {@link #enqueue} blocks until the writer
+ * catches up. So queued bodies take at most queueMaxBytes of heap, plus one
+ * exchange larger than that, which is let in alone. Pending exchanges
+ * are written before the database pool closes on shutdown. A batch that fails
+ * is retried with backoff, then written one exchange at a time, so only the
+ * exchanges that cannot be stored are lost.
+ */
+public class WriteBehindQueue {
+    private static final long POLL_MS = 200;
+    // A batch that fails is retried this many times before its exchanges are written one by one
+    private static final int WRITE_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MS = 100;
+    // Offered by close() to wake the writer without interrupting it
+    private static final PendingExchange SHUTDOWN = new PendingExchange(null, null, null, 0);
+
+    private final BlockingQueue<PendingExchange> queue;
+    private final long maxBytes;
+    private long queuedBytes;  // guarded by budgetLock
+    private final Object budgetLock = new Object();
+    private final int flushSize;
+    private final long flushIntervalMs;
+    private final Thread writerThread;
+    private final RequestsDAO requestsDAO = new RequestsDAO();
+    private final ResponsesDAO responsesDAO = new ResponsesDAO();
+    private final List<BiConsumer<Request, Response>> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean closed = false;
+
+    // Statistics
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong backpressureWaits = new AtomicLong();
+
+    public WriteBehindQueue() {
+        this(Integer.getInteger("creo.db.queueCapacity", 1024),
+                Long.getLong("creo.db.queueMaxBytes", 64L * 1024 * 1024),
+                Integer.getInteger("creo.db.flushSize", 64),
+                Long.getLong("creo.db.flushIntervalMs", 250));
+    }
+
+    public WriteBehindQueue(int capacity, long maxBytes, int flushSize, long flushIntervalMs) {
+        if (capacity < 1 || maxBytes < 1 || flushSize < 1 || flushIntervalMs < 0) {
+            throw new IllegalArgumentException("Invalid write-behind configuration");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBytes = maxBytes;
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.writerThread = new Thread(this::runWriter, "db-write-behind");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+        DBHandle.addShutdownTask(this::close);
+    }
+
+    // Queue a request and its response (response may be null). Blocks while the queue is full.
+    public void enqueue(Request request, Response response) {
+        long bytes = (request.getBody() != null ? request.getBody().length() : 0)
+                + (request.getHeaders() != null ? request.getHeaders().length() : 0)
+                + (response != null ? response.heldBytes() : 0);
+        put(new PendingExchange(request, response, null, bytes));
+        enqueued.incrementAndGet();
+    }
+
+    // Returns a future that completes once everything queued before this call is committed
+    public CompletableFuture<Void> flush() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (closed && !writerThread.isAlive()) {
+            done.complete(null);
+            return done;
+        }
+        put(new PendingExchange(null, null, done, 0));
+        return done;
+    }
+
+    // Called on the writer thread with each stored request and response (IDs filled in) after its batch commits
+    public void addListener(BiConsumer<Request, Response> listener) {
+        listeners.add(listener);
+    }
+
+    // Stop accepting work and wait for the writer to drain what is already queued
+    public void close() {
+        if (closed) return;
+        closed = true;
+        // Never interrupt the writer: an interrupt inside DBHandle.connect() would fail the batch it is writing.
+        // If the queue is full the writer is busy and sees the flag after this batch anyway.
+        queue.offer(SHUTDOWN);
+        synchronized (budgetLock) {
+            budgetLock.notifyAll();  // callers waiting for room give up
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getStats() {
+        long bytes;
+        synchronized (budgetLock) {
+            bytes = queuedBytes;
+        }
+        return "Write-behind: queued=" + queue.size()
+                + " queuedBytes=" + bytes
+                + " enqueued=" + enqueued.get()
+                + " written=" + written.get()
+                + " failed=" + failed.get()
+                + " batches=" + batches.get()
+                + " backpressureWaits=" + backpressureWaits.get();
+    }
+
+    private void put(PendingExchange item) {
+        if (closed) {
+            throw new IllegalStateException("Write-behind queue is closed");
+        }
+        boolean waited;
+        try {
+            waited = reserve(item.bytes);
+        } catch (InterruptedException e) {
+            throw interrupted(e);
+        }
+        try {
+            if (!queue.offer(item)) {
+                waited = true;
+                queue.put(item);
+            }
+        } catch (InterruptedException e) {
+            release(item.bytes);
+            throw interrupted(e);
+        }
+        if (waited) backpressureWaits.incrementAndGet();
+    }
+
+    private static IllegalStateException interrupted(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return new IllegalStateException("Interrupted while waiting for the write-behind queue", e);
+    }
+
+    // Wait until the bytes fit in the budget (an exchange larger than all of it goes in alone); true if it had to wait
+    private boolean reserve(long bytes) throws InterruptedException {
+        if (bytes == 0) return false;
+        boolean waited = false;
+        synchronized (budgetLock) {
+            while (queuedBytes > 0 && queuedBytes + bytes > maxBytes) {
+                waited = true;
+                budgetLock.wait();
+                if (closed) throw new IllegalStateException("Write-behind queue is closed");
+            }
+            queuedBytes += bytes;
+        }
+        return waited;
+    }
+
+    private void release(long bytes) {
+        if (bytes == 0) return;
+        synchronized (budgetLock) {
+            queuedBytes -= bytes;
+            budgetLock.notifyAll();
+        }
+    }
+
+    private void runWriter() {
+        List<PendingExchange> batch = new ArrayList<>(flushSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingExchange first = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null || first == SHUTDOWN) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < flushSize && first.flushSignal == null) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    PendingExchange next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    if (next == SHUTDOWN) continue;
+                    batch.add(next);
+                    if (next.flushSignal != null) break;
+                }
+            } catch (InterruptedException e) {
+                // Nobody should interrupt the writer; carry on so queued exchanges are still written
+            }
+            queue.drainTo(batch, Math.max(0, flushSize - batch.size()));
+            batch.remove(SHUTDOWN);
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                long bytes = 0;
+                for (PendingExchange item : batch) bytes += item.bytes;
+                release(bytes);
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingExchange> batch) {
+        List<PendingExchange> exchanges = new ArrayList<>(batch.size());
+        for (PendingExchange item : batch) {
+            if (item.flushSignal == null) exchanges.add(item);
+        }
+        List<Request> storedRequests = new ArrayList<>(exchanges.size());
+        List<Response> storedResponses = new ArrayList<>(exchanges.size());
+        if (!exchanges.isEmpty()) {
+            SQLException error = null;
+            for (int attempt = 1; attempt <= WRITE_ATTEMPTS; attempt++) {
+                error = writeTransaction(exchanges, storedRequests, storedResponses);
+                if (error == null) break;
+                if (attempt < WRITE_ATTEMPTS) pause(RETRY_BACKOFF_MS << (attempt - 1));
+            }
+            if (error == null) {
+                batches.incrementAndGet();
+                written.addAndGet(exchanges.size());
+            } else if (exchanges.size() > 1) {
+                // Keep whatever can be stored, e.g. when one exchange violates a constraint
+                System.err.println("✗ Batch of " + exchanges.size() + " queued exchanges failed (" + error.getMessage()
+                        + "), writing them one by one");
+                for (PendingExchange item : exchanges) {
+                    SQLException itemError = writeTransaction(List.of(item), storedRequests, storedResponses);
+                    if (itemError == null) {
+                        written.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                        System.err.println("✗ Failed to write queued exchange " + item.request.getMethod() + " "
+                                + item.request.getUrl() + ": " + itemError.getMessage());
+                    }
+                }
+            } else {
+                failed.incrementAndGet();
+                System.err.println("✗ Failed to write queued exchange after " + WRITE_ATTEMPTS + " attempts: " + error.getMessage());
+            }
+        }
+        for (int i = 0; i < storedRequests.size(); i++) {
+            for (BiConsumer<Request, Response> listener : listeners) {
+                try {
+                    listener.accept(storedRequests.get(i), storedResponses.get(i));
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        for (PendingExchange item : batch) {
+            if (item.flushSignal != null) item.flushSignal.complete(null);
+        }
+    }
+
+    // Store the exchanges in one transaction, adding them to stored* on commit; returns the error on failure
+    private SQLException writeTransaction(List<PendingExchange> exchanges, List<Request> storedRequests, List<Response> storedResponses) {
+        // A stray interrupt would make DBHandle.connect() give up on the writer lock
+        Thread.interrupted();
+        List<Request> requests = new ArrayList<>(exchanges.size());
+        List<Response> responses = new ArrayList<>(exchanges.size());
+        try (Connection con = DBHandle.connect()) {
+            if (con == null) throw new SQLException("No database connection");
+            con.setAutoCommit(false);
+            try {
+                for (PendingExchange item : exchanges) {
+                    int requestId = requestsDAO.insert(con, item.request);
+                    Response response = null;
+                    if (item.response != null) {
+                        response = item.response.withRequestID(requestId);
+                        responsesDAO.insert(con, response);
+                    }
+                    Request req = item.request;
+                    requests.add(new Request(requestId, req.getMethod(), req.getUrl(), req.getHeaders(),
+                            req.getBody(), req.getTimestamp()));
+                    responses.add(response);
+                }
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            return e;
+        }
+        storedRequests.addAll(requests);
+        storedResponses.addAll(responses);
+        return null;
+    }
+
+    private static void pause(long millis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            Thread.interrupted();  // a pending interrupt would end every park at once
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static class PendingExchange {
+        final Request request;
+        final Response response;
+        final CompletableFuture<Void> flushSignal;
+        final long bytes;  // counted against the queue's byte budget
+
+        PendingExchange(Request request, Response response, CompletableFuture<Void> flushSignal, long bytes) {
+            this.request = request;
+            this.response = response;
+            this.flushSignal = flushSignal;
+            this.bytes = bytes;
+        }
+    }
+}